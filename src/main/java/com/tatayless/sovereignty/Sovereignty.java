@@ -7,6 +7,7 @@ import com.tatayless.sovereignty.listeners.ListenerManager;
 import com.tatayless.sovereignty.localization.LocalizationManager;
 import com.tatayless.sovereignty.services.ServiceManager;
 import com.tatayless.sovereignty.services.VaultUpdateManager;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.sql.SQLException;
@@ -20,6 +21,7 @@ public class Sovereignty extends JavaPlugin {
     private CommandManager commandManager;
     private ListenerManager listenerManager;
     private VaultUpdateManager vaultUpdateManager;
+    private DebugLogger debugLogger;
 
     @Override
     public void onEnable() {
@@ -27,6 +29,9 @@ public class Sovereignty extends JavaPlugin {
         configManager = new ConfigManager(this);
         configManager.loadConfig();
 
+        // Initialize per-subsystem debug logging
+        debugLogger = new DebugLogger(this);
+
         // Initialize localization
         localizationManager = new LocalizationManager(this, configManager.getLanguage());
 
@@ -61,6 +66,22 @@ public class Sovereignty extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (serviceManager != null && serviceManager.getVaultService() != null) {
+            serviceManager.getVaultService().shutdown();
+        }
+
+        if (serviceManager != null && serviceManager.getTradeService() != null) {
+            serviceManager.getTradeService().shutdown();
+        }
+
+        if (serviceManager != null && serviceManager.getWarService() != null) {
+            serviceManager.getWarService().shutdown();
+        }
+
+        if (serviceManager != null && serviceManager.getMessageDispatcher() != null) {
+            serviceManager.getMessageDispatcher().shutdown();
+        }
+
         if (databaseManager != null) {
             databaseManager.shutdown();
         }
@@ -96,4 +117,8 @@ public class Sovereignty extends JavaPlugin {
     public VaultUpdateManager getVaultUpdateManager() {
         return vaultUpdateManager;
     }
+
+    public DebugLogger getDebugLogger() {
+        return debugLogger;
+    }
 }
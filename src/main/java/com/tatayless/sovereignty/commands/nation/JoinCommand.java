@@ -3,7 +3,7 @@ package com.tatayless.sovereignty.commands.nation;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.SovereigntyPlayer;
-import org.bukkit.Bukkit;
+import com.tatayless.sovereignty.services.MessageDispatcher.Recipients;
 import org.bukkit.entity.Player;
 
 import java.util.Collections;
@@ -84,6 +84,7 @@ public class JoinCommand implements NationCommandExecutor.SubCommand {
         // Save changes
         plugin.getServiceManager().getPlayerService().updatePlayer(sovereigntyPlayer);
         plugin.getServiceManager().getNationService().saveNation(nation);
+        plugin.getServiceManager().getNationService().publishMembershipChange(playerId, null, nation.getId());
 
         // Remove invitation
         inviteCommand.removeInvite(player.getUniqueId());
@@ -94,19 +95,10 @@ public class JoinCommand implements NationCommandExecutor.SubCommand {
                 "name", nation.getName()));
 
         // Notify other nation members
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            SovereigntyPlayer member = plugin.getServiceManager().getPlayerService()
-                    .getPlayer(onlinePlayer.getUniqueId().toString());
-
-            if (member != null && member.getNationId() != null &&
-                    member.getNationId().equals(nation.getId()) &&
-                    !member.getId().equals(playerId)) {
-
-                onlinePlayer.sendMessage(plugin.getLocalizationManager().getComponent(
-                        "nation.player-joined",
-                        "player", player.getName()));
-            }
-        }
+        plugin.getServiceManager().getMessageDispatcher().send(
+                Recipients.nations(nation.getId()).except(playerId),
+                "nation.player-joined",
+                "player", player.getName());
 
         return true;
     }
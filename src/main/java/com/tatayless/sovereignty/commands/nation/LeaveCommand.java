@@ -3,7 +3,7 @@ package com.tatayless.sovereignty.commands.nation;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.SovereigntyPlayer;
-import org.bukkit.Bukkit;
+import com.tatayless.sovereignty.services.MessageDispatcher.Recipients;
 import org.bukkit.entity.Player;
 
 import java.util.Collections;
@@ -70,6 +70,7 @@ public class LeaveCommand implements NationCommandExecutor.SubCommand {
         // Save changes
         plugin.getServiceManager().getPlayerService().updatePlayer(sovereigntyPlayer);
         plugin.getServiceManager().getNationService().saveNation(nation);
+        plugin.getServiceManager().getNationService().publishMembershipChange(playerId, oldNationId, null);
 
         // Send messages
         player.sendMessage(plugin.getLocalizationManager().getComponent(
@@ -77,16 +78,10 @@ public class LeaveCommand implements NationCommandExecutor.SubCommand {
                 "name", nationName));
 
         // Notify other nation members
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            SovereigntyPlayer member = plugin.getServiceManager().getPlayerService()
-                    .getPlayer(onlinePlayer.getUniqueId().toString());
-
-            if (member != null && oldNationId.equals(member.getNationId())) {
-                onlinePlayer.sendMessage(plugin.getLocalizationManager().getComponent(
-                        "nation.player-left",
-                        "player", player.getName()));
-            }
-        }
+        plugin.getServiceManager().getMessageDispatcher().send(
+                Recipients.nations(oldNationId),
+                "nation.player-left",
+                "player", player.getName());
 
         return true;
     }
@@ -41,6 +41,7 @@ public class NationCommandExecutor implements CommandExecutor, TabCompleter {
         registerSubCommand(new AppointCommand(plugin));
         registerSubCommand(new AllianceCommand(plugin)); // Register the alliance command
         registerSubCommand(new VaultNPCCommand(plugin)); // Register the vault NPC command
+        registerSubCommand(new NationVaultCommand(plugin)); // Register the vault command
         registerSubCommand(new TradeCommand(plugin)); // Register the trade command
     }
 
@@ -0,0 +1,234 @@
+package com.tatayless.sovereignty.commands.nation;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.commands.nation.NationCommandExecutor.SubCommand;
+import com.tatayless.sovereignty.models.ChunkLocation;
+import com.tatayless.sovereignty.models.Nation;
+import com.tatayless.sovereignty.models.SovereigntyPlayer;
+import com.tatayless.sovereignty.services.VaultService;
+import com.tatayless.sovereignty.services.vault.VaultIntakeManager;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class NationVaultCommand implements SubCommand {
+    private final Sovereignty plugin;
+    private final VaultService vaultService;
+
+    public NationVaultCommand(Sovereignty plugin) {
+        this.plugin = plugin;
+        this.vaultService = plugin.getServiceManager().getVaultService();
+    }
+
+    @Override
+    public String getName() {
+        return "vault";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Search, roll back or feed your nation's vault";
+    }
+
+    @Override
+    public boolean execute(Player player, String[] args) {
+        String playerId = player.getUniqueId().toString();
+        SovereigntyPlayer sovereigntyPlayer = plugin.getServiceManager().getPlayerService().getPlayer(playerId);
+
+        // Check if player is in a nation
+        if (sovereigntyPlayer == null || !sovereigntyPlayer.hasNation()) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("nation.not-in-nation"));
+            return true;
+        }
+
+        String nationId = sovereigntyPlayer.getNationId();
+
+        if (args.length == 0) {
+            showHelp(player);
+            return true;
+        }
+
+        // Handle subcommands
+        String subCmd = args[0].toLowerCase();
+        switch (subCmd) {
+            case "search":
+                return handleSearch(player, nationId, Arrays.copyOfRange(args, 1, args.length));
+            case "rollback":
+                return handleRollback(player, sovereigntyPlayer, Arrays.copyOfRange(args, 1, args.length));
+            case "intake":
+                return handleIntake(player, nationId);
+            case "audit":
+                return handleAudit(player, nationId, Arrays.copyOfRange(args, 1, args.length));
+            default:
+                showHelp(player);
+                return true;
+        }
+    }
+
+    private boolean handleSearch(Player player, String nationId, String[] args) {
+        if (args.length < 1) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.search-specify-material"));
+            return true;
+        }
+
+        Material material = Material.matchMaterial(args[0]);
+        if (material == null || material.isAir() || !material.isItem()) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.search-invalid-material",
+                    "material", args[0]));
+            return true;
+        }
+
+        vaultService.searchVault(player, nationId, material);
+        return true;
+    }
+
+    private boolean handleRollback(Player player, SovereigntyPlayer sovereigntyPlayer, String[] args) {
+        // Only the president can roll back the vault
+        if (!sovereigntyPlayer.isPresident() && !player.hasPermission("sovereignty.admin.bypass")) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.rollback-not-president"));
+            return true;
+        }
+
+        if (args.length < 1) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.rollback-usage"));
+            return true;
+        }
+
+        long ago = parseDuration(args[0]);
+        if (ago <= 0) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.rollback-invalid-time",
+                    "time", args[0]));
+            return true;
+        }
+
+        player.sendMessage(plugin.getLocalizationManager().getComponent("vault.rollback-started",
+                "time", args[0]));
+        vaultService.rollbackVault(player, sovereigntyPlayer.getNationId(), System.currentTimeMillis() - ago);
+        return true;
+    }
+
+    private boolean handleIntake(Player player, String nationId) {
+        if (!plugin.getConfigManager().isVaultIntakeEnabled()) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.intake-disabled"));
+            return true;
+        }
+
+        // Check if player is an officer (president or senator)
+        Nation nation = plugin.getServiceManager().getNationService().getNation(nationId);
+        if (nation == null || !nation.isOfficer(player.getUniqueId().toString())) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("nation.no-permission"));
+            return true;
+        }
+
+        Block block = player.getTargetBlockExact(5);
+        if (block == null || block.getType() != Material.HOPPER) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.intake-not-hopper"));
+            return true;
+        }
+
+        Nation owner = plugin.getServiceManager().getNationService()
+                .getNationByChunk(new ChunkLocation(block.getChunk()));
+        if (owner == null || !owner.getId().equals(nationId)) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.intake-not-territory"));
+            return true;
+        }
+
+        VaultIntakeManager intakeManager = vaultService.getIntakeManager();
+        if (nationId.equals(intakeManager.getIntakeNationId(block))) {
+            intakeManager.setIntake(block, null);
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.intake-removed"));
+        } else {
+            intakeManager.setIntake(block, nationId);
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.intake-added"));
+        }
+        return true;
+    }
+
+    private boolean handleAudit(Player player, String nationId, String[] args) {
+        // Check if player is an officer (president or senator)
+        Nation nation = plugin.getServiceManager().getNationService().getNation(nationId);
+        if (nation == null || !nation.isOfficer(player.getUniqueId().toString())) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("nation.no-permission"));
+            return true;
+        }
+
+        int page = 1;
+        if (args.length > 0) {
+            try {
+                page = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+            if (page < 1) {
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.audit-invalid-page",
+                        "page", args[0]));
+                return true;
+            }
+        }
+
+        vaultService.showAuditLog(player, nationId, page - 1);
+        return true;
+    }
+
+    /**
+     * Parses durations like "30m", "2h" or "1d" into milliseconds. A bare number
+     * is read as minutes.
+     *
+     * @return The duration in milliseconds, or -1 if it could not be parsed
+     */
+    private long parseDuration(String input) {
+        String value = input.toLowerCase();
+        long unit = 60_000L;
+        if (value.endsWith("m")) {
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("h")) {
+            unit = 3_600_000L;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("d")) {
+            unit = 86_400_000L;
+            value = value.substring(0, value.length() - 1);
+        }
+
+        try {
+            return Long.parseLong(value) * unit;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void showHelp(Player player) {
+        player.sendMessage(plugin.getLocalizationManager().getComponent("help.vault-header"));
+        player.sendMessage(plugin.getLocalizationManager().getComponent("help.vault-search"));
+        player.sendMessage(plugin.getLocalizationManager().getComponent("help.vault-rollback"));
+        player.sendMessage(plugin.getLocalizationManager().getComponent("help.vault-intake"));
+        player.sendMessage(plugin.getLocalizationManager().getComponent("help.vault-audit"));
+    }
+
+    @Override
+    public List<String> tabComplete(Player player, String[] args) {
+        if (args.length == 1) {
+            return Arrays.asList("search", "rollback", "intake", "audit").stream()
+                    .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
+                    .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("search")) {
+            String prefix = args[1].toLowerCase();
+            return Arrays.stream(Material.values())
+                    .filter(Material::isItem)
+                    .filter(m -> !m.isLegacy() && !m.isAir())
+                    .map(m -> m.name().toLowerCase())
+                    .filter(s -> s.startsWith(prefix))
+                    .limit(50)
+                    .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("rollback")) {
+            return Arrays.asList("30m", "1h", "6h", "1d").stream()
+                    .filter(s -> s.startsWith(args[1].toLowerCase()))
+                    .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
+    }
+}
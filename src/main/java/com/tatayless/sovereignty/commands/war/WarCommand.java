@@ -6,6 +6,7 @@ import com.tatayless.sovereignty.models.SovereigntyPlayer;
 import com.tatayless.sovereignty.services.NationService;
 import com.tatayless.sovereignty.services.PlayerService;
 import com.tatayless.sovereignty.services.WarService;
+import com.tatayless.sovereignty.services.war.WarEventLog;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class WarCommand implements CommandExecutor, TabCompleter {
@@ -57,6 +59,8 @@ public class WarCommand implements CommandExecutor, TabCompleter {
                 return handleWarInfo(player, args);
             case "cancel":
                 return handleCancelWar(player, playerId, args);
+            case "stats":
+                return handleWarStats(player, playerId, args);
             default:
                 showHelp(player);
                 return true;
@@ -310,11 +314,85 @@ public class WarCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleWarStats(Player player, String playerId, String[] args) {
+        WarEventLog eventLog = warService.getEventLog();
+        player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-header",
+                "days", String.valueOf(eventLog.getDays())));
+
+        if (args.length > 1) {
+            // Show a nation's statistics
+            Nation nation = nationService.getNationByName(args[1]);
+            if (nation == null) {
+                player.sendMessage(
+                        plugin.getLocalizationManager().getComponent("war.nation-not-found", "nation", args[1]));
+                return true;
+            }
+            sendNationStats(player, nation);
+            return true;
+        }
+
+        // Show the player's own statistics and the top killers
+        player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-player",
+                "kills", String.valueOf(eventLog.getPlayerStat(playerId, WarEventLog.Metric.KILLS)),
+                "deaths", String.valueOf(eventLog.getPlayerStat(playerId, WarEventLog.Metric.DEATHS))));
+
+        Nation nation = nationService.getPlayerNation(playerId);
+        if (nation != null) {
+            sendNationStats(player, nation);
+
+            for (WarService.War war : warService.getNationWars(nation.getId())) {
+                Map.Entry<String, Integer> topKiller = eventLog.getTopKiller(war.getId());
+                Nation attacker = nationService.getNation(war.getAttackerNationId());
+                Nation defender = nationService.getNation(war.getDefenderNationId());
+                if (topKiller != null && attacker != null && defender != null) {
+                    player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-war",
+                            "attacker", attacker.getName(),
+                            "defender", defender.getName(),
+                            "player", getPlayerName(topKiller.getKey()),
+                            "kills", String.valueOf(topKiller.getValue())));
+                }
+            }
+        }
+
+        List<Map.Entry<String, Long>> topKillers = eventLog.getTopKillers(5);
+        if (!topKillers.isEmpty()) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-top-header"));
+            int rank = 1;
+            for (Map.Entry<String, Long> killer : topKillers) {
+                player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-top-entry",
+                        "rank", String.valueOf(rank++),
+                        "player", getPlayerName(killer.getKey()),
+                        "kills", String.valueOf(killer.getValue())));
+            }
+        }
+
+        return true;
+    }
+
+    private void sendNationStats(Player player, Nation nation) {
+        WarEventLog eventLog = warService.getEventLog();
+        player.sendMessage(plugin.getLocalizationManager().getComponent("war.stats-nation",
+                "nation", nation.getName(),
+                "kills", String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.KILLS)),
+                "deaths", String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.DEATHS)),
+                "assassinations",
+                String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.ASSASSINATIONS)),
+                "annexed", String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.CHUNKS_ANNEXED)),
+                "won", String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.WARS_WON)),
+                "lost", String.valueOf(eventLog.getNationStat(nation.getId(), WarEventLog.Metric.WARS_LOST))));
+    }
+
+    private String getPlayerName(String playerId) {
+        SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(playerId);
+        return sovereigntyPlayer != null ? sovereigntyPlayer.getName() : playerId;
+    }
+
     private void showHelp(Player player) {
         player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-header"));
         player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-declare"));
         player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-list"));
         player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-info"));
+        player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-stats"));
 
         if (player.hasPermission("sovereignty.admin.wars")) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("war.help-cancel"));
@@ -330,7 +408,7 @@ public class WarCommand implements CommandExecutor, TabCompleter {
         Player player = (Player) sender;
 
         if (args.length == 1) {
-            List<String> subCommands = new ArrayList<>(Arrays.asList("declare", "list", "info"));
+            List<String> subCommands = new ArrayList<>(Arrays.asList("declare", "list", "info", "stats"));
             if (player.hasPermission("sovereignty.admin.wars")) {
                 subCommands.add("cancel");
             }
@@ -342,7 +420,8 @@ public class WarCommand implements CommandExecutor, TabCompleter {
             // Tab complete for nation names
             String subCommand = args[0].toLowerCase();
 
-            if (subCommand.equals("declare") || subCommand.equals("info") || subCommand.equals("cancel")) {
+            if (subCommand.equals("declare") || subCommand.equals("info") || subCommand.equals("cancel")
+                    || subCommand.equals("stats")) {
                 return nationService.getAllNations().stream()
                         .map(Nation::getName)
                         .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
@@ -16,6 +16,11 @@ public class ConfigManager {
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
         this.config = plugin.getConfig();
+
+        // Debug toggles and sampling rates are cached, pick up the reloaded values
+        if (plugin.getDebugLogger() != null) {
+            plugin.getDebugLogger().reload();
+        }
     }
 
     public void saveConfig() {
@@ -118,6 +123,18 @@ public class ConfigManager {
         return config.getBoolean("war.enable-assassination", false);
     }
 
+    public int getWarKillFlushSeconds() {
+        return Math.max(1, config.getInt("war.kill-flush-seconds", 2));
+    }
+
+    public int getWarEventFlushSeconds() {
+        return Math.max(1, config.getInt("war.events.flush-seconds", 5));
+    }
+
+    public int getWarStatsDays() {
+        return Math.max(1, config.getInt("war.events.stats-days", 30));
+    }
+
     public double getAnnexationPercentage() {
         double percentage = config.getDouble("war.annexation-percentage", 0.25);
         // Ensure value is between 0 and 1
@@ -150,6 +167,42 @@ public class ConfigManager {
         return config.getInt("vaults.max-pages", 10);
     }
 
+    public boolean isVaultSnapshotsEnabled() {
+        return config.getBoolean("vaults.snapshots.enabled", true);
+    }
+
+    public int getVaultSnapshotIntervalMinutes() {
+        return config.getInt("vaults.snapshots.interval-minutes", 10);
+    }
+
+    public int getVaultSnapshotKeyframeInterval() {
+        return Math.max(1, config.getInt("vaults.snapshots.keyframe-every", 12));
+    }
+
+    public int getVaultSnapshotRetentionHours() {
+        return config.getInt("vaults.snapshots.retention-hours", 72);
+    }
+
+    public boolean isVaultIntakeEnabled() {
+        return config.getBoolean("vaults.intake.enabled", true);
+    }
+
+    public int getVaultIntakeMaxStacksPerTick() {
+        return Math.max(1, config.getInt("vaults.intake.max-stacks-per-tick", 64));
+    }
+
+    public int getVaultIntakeSaveDelaySeconds() {
+        return Math.max(1, config.getInt("vaults.intake.save-delay-seconds", 10));
+    }
+
+    public boolean isVaultAuditEnabled() {
+        return config.getBoolean("vaults.audit.enabled", true);
+    }
+
+    public int getVaultAuditFlushSeconds() {
+        return Math.max(1, config.getInt("vaults.audit.flush-seconds", 5));
+    }
+
     // Trade Settings
     public int getTradeConsecutiveForPower() {
         return config.getInt("trade.consecutive-trades-for-power", 5);
@@ -167,6 +220,23 @@ public class ConfigManager {
         return config.getInt("trade.max-interval-days", 7);
     }
 
+    public int getTradeVaultSaveDelaySeconds() {
+        return Math.max(1, config.getInt("trade.vault-cache.save-delay-seconds", 5));
+    }
+
+    public int getTradeVaultCacheIdleMinutes() {
+        return Math.max(1, config.getInt("trade.vault-cache.idle-minutes", 10));
+    }
+
+    // Debug Settings
+    public boolean isDebugEnabled(String subsystem) {
+        return config.getBoolean("debug." + subsystem, false);
+    }
+
+    public int getDebugSampleIntervalSeconds() {
+        return config.getInt("debug.sample-interval-seconds", 10);
+    }
+
     public FileConfiguration getConfig() {
         return config;
     }
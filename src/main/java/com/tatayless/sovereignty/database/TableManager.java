@@ -5,7 +5,10 @@ import com.tatayless.sovereignty.database.migration.InitialSchemaMigration;
 import com.tatayless.sovereignty.database.migration.MigrationManager;
 import com.tatayless.sovereignty.database.migration.NationVaultsMigration;
 import com.tatayless.sovereignty.database.migration.TradeVaultNpcsMigration;
+import com.tatayless.sovereignty.database.migration.VaultAuditLogMigration;
+import com.tatayless.sovereignty.database.migration.VaultSnapshotsMigration;
 import com.tatayless.sovereignty.database.migration.VaultNpcsMigration;
+import com.tatayless.sovereignty.database.migration.WarEventsMigration;
 import org.jooq.DSLContext;
 
 import java.sql.Connection;
@@ -42,6 +45,15 @@ public class TableManager {
                 // Register the trade vault npcs migration
                 migrationManager.registerMigration(new TradeVaultNpcsMigration(isMySQL));
 
+                // Register the vault snapshots migration
+                migrationManager.registerMigration(new VaultSnapshotsMigration(isMySQL));
+
+                // Register the vault audit log migration
+                migrationManager.registerMigration(new VaultAuditLogMigration(isMySQL));
+
+                // Register the war events migration
+                migrationManager.registerMigration(new WarEventsMigration(isMySQL));
+
                 // Add future migrations here in order of version number
                 // Example: migrationManager.registerMigration(new SomeFutureMigration());
         }
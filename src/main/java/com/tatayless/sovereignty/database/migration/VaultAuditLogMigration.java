@@ -0,0 +1,62 @@
+package com.tatayless.sovereignty.database.migration;
+
+import org.jooq.DSLContext;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class VaultAuditLogMigration implements Migration {
+
+    private final boolean isMySQL;
+
+    public VaultAuditLogMigration(boolean isMySQL) {
+        this.isMySQL = isMySQL;
+    }
+
+    @Override
+    public int getVersion() {
+        return 6; // Next version after VaultSnapshotsMigration (which is version 5)
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create vault_audit_log table for vault deposits and withdrawals";
+    }
+
+    @Override
+    public boolean apply(Connection connection, DSLContext context) throws SQLException {
+        try {
+            if (isMySQL) {
+                context.execute("CREATE TABLE IF NOT EXISTS vault_audit_log (" +
+                        "id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                        "vault_id VARCHAR(36) NOT NULL, " +
+                        "player_id VARCHAR(36) NOT NULL, " +
+                        "player_name VARCHAR(16) NOT NULL, " +
+                        "material VARCHAR(64) NOT NULL, " +
+                        "amount INT NOT NULL, " + // Positive for deposits, negative for withdrawals
+                        "page INT NOT NULL, " +
+                        "created_at BIGINT NOT NULL, " + // Epoch millis
+                        "INDEX idx_vault_audit_log_vault (vault_id, id)" +
+                        ")");
+            } else {
+                context.execute("CREATE TABLE IF NOT EXISTS vault_audit_log (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "vault_id TEXT NOT NULL, " +
+                        "player_id TEXT NOT NULL, " +
+                        "player_name TEXT NOT NULL, " +
+                        "material TEXT NOT NULL, " +
+                        "amount INTEGER NOT NULL, " + // Positive for deposits, negative for withdrawals
+                        "page INTEGER NOT NULL, " +
+                        "created_at INTEGER NOT NULL" + // Epoch millis
+                        ")");
+                context.execute("CREATE INDEX IF NOT EXISTS idx_vault_audit_log_vault " +
+                        "ON vault_audit_log (vault_id, id)");
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error creating vault_audit_log table: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.tatayless.sovereignty.database.migration;
+
+import org.jooq.DSLContext;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class VaultSnapshotsMigration implements Migration {
+
+    private final boolean isMySQL;
+
+    public VaultSnapshotsMigration(boolean isMySQL) {
+        this.isMySQL = isMySQL;
+    }
+
+    @Override
+    public int getVersion() {
+        return 5; // Next version after TradeVaultNpcsMigration (which is version 4)
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create vault_snapshots table for vault history and rollback";
+    }
+
+    @Override
+    public boolean apply(Connection connection, DSLContext context) throws SQLException {
+        try {
+            if (isMySQL) {
+                context.execute("CREATE TABLE IF NOT EXISTS vault_snapshots (" +
+                        "id VARCHAR(36) PRIMARY KEY, " +
+                        "vault_id VARCHAR(36) NOT NULL, " +
+                        "taken_at BIGINT NOT NULL, " + // Epoch millis
+                        "keyframe BOOLEAN NOT NULL DEFAULT FALSE, " + // Full snapshot rather than a delta
+                        "data MEDIUMTEXT NOT NULL, " + // Base64 of the compressed changed pages
+                        "INDEX idx_vault_snapshots_vault_time (vault_id, taken_at), " +
+                        "FOREIGN KEY (vault_id) REFERENCES nation_vaults(id) ON DELETE CASCADE" +
+                        ")");
+            } else {
+                context.execute("CREATE TABLE IF NOT EXISTS vault_snapshots (" +
+                        "id TEXT PRIMARY KEY, " +
+                        "vault_id TEXT NOT NULL, " +
+                        "taken_at INTEGER NOT NULL, " + // Epoch millis
+                        "keyframe INTEGER NOT NULL DEFAULT 0, " + // Full snapshot rather than a delta
+                        "data TEXT NOT NULL, " + // Base64 of the compressed changed pages
+                        "FOREIGN KEY (vault_id) REFERENCES nation_vaults(id) ON DELETE CASCADE" +
+                        ")");
+                context.execute("CREATE INDEX IF NOT EXISTS idx_vault_snapshots_vault_time " +
+                        "ON vault_snapshots (vault_id, taken_at)");
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error creating vault_snapshots table: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
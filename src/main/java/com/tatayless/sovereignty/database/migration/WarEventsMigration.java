@@ -0,0 +1,65 @@
+package com.tatayless.sovereignty.database.migration;
+
+import org.jooq.DSLContext;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class WarEventsMigration implements Migration {
+
+    private final boolean isMySQL;
+
+    public WarEventsMigration(boolean isMySQL) {
+        this.isMySQL = isMySQL;
+    }
+
+    @Override
+    public int getVersion() {
+        return 7; // Next version after VaultAuditLogMigration (which is version 6)
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create war_events table for kills, assassinations, annexations and war ends";
+    }
+
+    @Override
+    public boolean apply(Connection connection, DSLContext context) throws SQLException {
+        try {
+            if (isMySQL) {
+                context.execute("CREATE TABLE IF NOT EXISTS war_events (" +
+                        "id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                        "war_id VARCHAR(36) NOT NULL, " +
+                        "type VARCHAR(16) NOT NULL, " +
+                        "player_id VARCHAR(36), " + // Killer
+                        "nation_id VARCHAR(36), " + // Killer's nation, annexing or winning nation
+                        "target_player_id VARCHAR(36), " + // Victim
+                        "target_nation_id VARCHAR(36), " + // Victim's nation, annexed or losing nation
+                        "amount INT NOT NULL, " + // Chunks for annexations, 1 otherwise
+                        "created_at BIGINT NOT NULL, " + // Epoch millis
+                        "INDEX idx_war_events_created (created_at), " +
+                        "INDEX idx_war_events_war (war_id)" +
+                        ")");
+            } else {
+                context.execute("CREATE TABLE IF NOT EXISTS war_events (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "war_id TEXT NOT NULL, " +
+                        "type TEXT NOT NULL, " +
+                        "player_id TEXT, " + // Killer
+                        "nation_id TEXT, " + // Killer's nation, annexing or winning nation
+                        "target_player_id TEXT, " + // Victim
+                        "target_nation_id TEXT, " + // Victim's nation, annexed or losing nation
+                        "amount INTEGER NOT NULL, " + // Chunks for annexations, 1 otherwise
+                        "created_at INTEGER NOT NULL" + // Epoch millis
+                        ")");
+                context.execute("CREATE INDEX IF NOT EXISTS idx_war_events_created ON war_events (created_at)");
+                context.execute("CREATE INDEX IF NOT EXISTS idx_war_events_war ON war_events (war_id)");
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error creating war_events table: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
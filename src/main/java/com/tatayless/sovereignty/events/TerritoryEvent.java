@@ -0,0 +1,204 @@
+package com.tatayless.sovereignty.events;
+
+import com.tatayless.sovereignty.models.ChunkLocation;
+
+/**
+ * Changes to who owns land and who may act on it.
+ * Published through the {@link TerritoryEventBus} after the change has been
+ * applied in memory, so subscribers can drop anything they derived from the
+ * old state.
+ */
+public abstract class TerritoryEvent {
+
+    /**
+     * A nation claimed or annexed a chunk nobody owned
+     */
+    public static final class ClaimAdded extends TerritoryEvent {
+        private final ChunkLocation chunk;
+        private final String nationId;
+
+        public ClaimAdded(ChunkLocation chunk, String nationId) {
+            this.chunk = chunk;
+            this.nationId = nationId;
+        }
+
+        public ChunkLocation getChunk() {
+            return chunk;
+        }
+
+        public String getNationId() {
+            return nationId;
+        }
+    }
+
+    /**
+     * A chunk was unclaimed or its nation disbanded
+     */
+    public static final class ClaimRemoved extends TerritoryEvent {
+        private final ChunkLocation chunk;
+        private final String nationId;
+
+        public ClaimRemoved(ChunkLocation chunk, String nationId) {
+            this.chunk = chunk;
+            this.nationId = nationId;
+        }
+
+        public ChunkLocation getChunk() {
+            return chunk;
+        }
+
+        public String getNationId() {
+            return nationId;
+        }
+    }
+
+    /**
+     * A chunk changed hands, e.g. annexed after a war
+     */
+    public static final class ClaimTransferred extends TerritoryEvent {
+        private final ChunkLocation chunk;
+        private final String fromNationId;
+        private final String toNationId;
+
+        public ClaimTransferred(ChunkLocation chunk, String fromNationId, String toNationId) {
+            this.chunk = chunk;
+            this.fromNationId = fromNationId;
+            this.toNationId = toNationId;
+        }
+
+        public ChunkLocation getChunk() {
+            return chunk;
+        }
+
+        public String getFromNationId() {
+            return fromNationId;
+        }
+
+        public String getToNationId() {
+            return toNationId;
+        }
+    }
+
+    /**
+     * A player joined, left or was removed from a nation
+     */
+    public static final class MembershipChanged extends TerritoryEvent {
+        private final String playerId;
+        private final String oldNationId;
+        private final String newNationId;
+
+        public MembershipChanged(String playerId, String oldNationId, String newNationId) {
+            this.playerId = playerId;
+            this.oldNationId = oldNationId;
+            this.newNationId = newNationId;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * @return The nation the player left, or null
+         */
+        public String getOldNationId() {
+            return oldNationId;
+        }
+
+        /**
+         * @return The nation the player joined, or null
+         */
+        public String getNewNationId() {
+            return newNationId;
+        }
+    }
+
+    public static final class WarStarted extends TerritoryEvent {
+        private final String warId;
+        private final String attackerNationId;
+        private final String defenderNationId;
+
+        public WarStarted(String warId, String attackerNationId, String defenderNationId) {
+            this.warId = warId;
+            this.attackerNationId = attackerNationId;
+            this.defenderNationId = defenderNationId;
+        }
+
+        public String getWarId() {
+            return warId;
+        }
+
+        public String getAttackerNationId() {
+            return attackerNationId;
+        }
+
+        public String getDefenderNationId() {
+            return defenderNationId;
+        }
+    }
+
+    /**
+     * A war was won or cancelled
+     */
+    public static final class WarEnded extends TerritoryEvent {
+        private final String warId;
+        private final String attackerNationId;
+        private final String defenderNationId;
+        private final String winnerNationId;
+
+        public WarEnded(String warId, String attackerNationId, String defenderNationId, String winnerNationId) {
+            this.warId = warId;
+            this.attackerNationId = attackerNationId;
+            this.defenderNationId = defenderNationId;
+            this.winnerNationId = winnerNationId;
+        }
+
+        public String getWarId() {
+            return warId;
+        }
+
+        public String getAttackerNationId() {
+            return attackerNationId;
+        }
+
+        public String getDefenderNationId() {
+            return defenderNationId;
+        }
+
+        /**
+         * @return The winning nation, or null if the war was cancelled
+         */
+        public String getWinnerNationId() {
+            return winnerNationId;
+        }
+    }
+
+    /**
+     * Two nations formed or broke an alliance
+     */
+    public static final class AllianceChanged extends TerritoryEvent {
+        private final String nationId;
+        private final String allyNationId;
+        private final boolean allied;
+
+        public AllianceChanged(String nationId, String allyNationId, boolean allied) {
+            this.nationId = nationId;
+            this.allyNationId = allyNationId;
+            this.allied = allied;
+        }
+
+        public String getNationId() {
+            return nationId;
+        }
+
+        public String getAllyNationId() {
+            return allyNationId;
+        }
+
+        /**
+         * @return true if the alliance was formed, false if it was broken
+         */
+        public boolean isAllied() {
+            return allied;
+        }
+    }
+}
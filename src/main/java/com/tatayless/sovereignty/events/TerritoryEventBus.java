@@ -0,0 +1,62 @@
+package com.tatayless.sovereignty.events;
+
+import com.tatayless.sovereignty.Sovereignty;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@link TerritoryEvent}s to the caches that derive state from
+ * territory, membership, wars and alliances.
+ * Events are delivered synchronously on the publishing thread, which may be
+ * an async database thread, so subscribers must be thread-safe and cheap,
+ * typically just invalidating something. A failing subscriber is logged and
+ * doesn't stop delivery to the others.
+ */
+public class TerritoryEventBus {
+    private final Sovereignty plugin;
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    public TerritoryEventBus(Sovereignty plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Subscribe to an event type. Subscribing to {@link TerritoryEvent} itself
+     * receives every event.
+     *
+     * @param type     The event class
+     * @param listener Called for each matching event
+     */
+    public <T extends TerritoryEvent> void subscribe(Class<T> type, Consumer<? super T> listener) {
+        subscriptions.add(new Subscription<>(type, listener));
+    }
+
+    public void publish(TerritoryEvent event) {
+        for (Subscription<?> subscription : subscriptions) {
+            try {
+                subscription.deliver(event);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Territory event subscriber failed on "
+                        + event.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Subscription<T extends TerritoryEvent> {
+        private final Class<T> type;
+        private final Consumer<? super T> listener;
+
+        Subscription(Class<T> type, Consumer<? super T> listener) {
+            this.type = type;
+            this.listener = listener;
+        }
+
+        void deliver(TerritoryEvent event) {
+            if (type.isInstance(event)) {
+                listener.accept(type.cast(event));
+            }
+        }
+    }
+}
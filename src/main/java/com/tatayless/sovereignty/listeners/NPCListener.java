@@ -17,6 +17,7 @@ import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityTargetEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
 
 public class NPCListener implements Listener {
     private final Sovereignty plugin;
@@ -44,8 +45,7 @@ public class NPCListener implements Listener {
             return;
         }
 
-        int entityId = entity.getEntityId();
-        String vaultId = vaultService.getVaultIdFromEntity(entityId);
+        String vaultId = vaultService.getVaultIdFromEntity(entity);
 
         // If this is a nation vault NPC
         if (vaultId != null) {
@@ -74,7 +74,7 @@ public class NPCListener implements Listener {
         }
 
         // Check if this is a trade vault NPC
-        String tradeId = tradeService.getTradeIdFromEntity(entityId);
+        String tradeId = tradeService.getTradeIdFromEntity(entity);
         if (tradeId != null) {
             event.setCancelled(true); // Cancel normal villager interaction
 
@@ -87,7 +87,7 @@ public class NPCListener implements Listener {
             }
 
             // Determine if this NPC is for the sending or receiving nation
-            boolean isSenderNPC = tradeService.isSenderEntity(entityId);
+            boolean isSenderNPC = tradeService.isSenderEntity(entity);
             String nationId = sovereigntyPlayer.getNationId();
 
             // Open the corresponding trade vault
@@ -95,6 +95,17 @@ public class NPCListener implements Listener {
         }
     }
 
+    /**
+     * Check vault and trade NPCs once a chunk's entities are loaded, entities
+     * aren't available yet when the chunk itself loads
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        vaultService.getNpcManager().materialize(event.getChunk(), event.getEntities());
+        tradeService.adoptUntaggedNPCs(event.getChunk(), event.getEntities());
+        tradeService.removeStaleNPCs(event.getEntities());
+    }
+
     /**
      * Prevent any damage to Vault or Trade NPCs
      */
@@ -105,9 +116,8 @@ public class NPCListener implements Listener {
             return;
         }
 
-        int entityId = entity.getEntityId();
-        String vaultId = vaultService.getVaultIdFromEntity(entityId);
-        String tradeId = tradeService.getTradeIdFromEntity(entityId);
+        String vaultId = vaultService.getVaultIdFromEntity(entity);
+        String tradeId = tradeService.getTradeIdFromEntity(entity);
 
         // If this is a vault NPC or trade NPC, cancel all damage
         if (vaultId != null || tradeId != null) {
@@ -129,9 +139,8 @@ public class NPCListener implements Listener {
             return;
         }
 
-        int entityId = target.getEntityId();
-        String vaultId = vaultService.getVaultIdFromEntity(entityId);
-        String tradeId = tradeService.getTradeIdFromEntity(entityId);
+        String vaultId = vaultService.getVaultIdFromEntity(target);
+        String tradeId = tradeService.getTradeIdFromEntity(target);
 
         // If this is a vault NPC or trade NPC, prevent targeting
         if (vaultId != null || tradeId != null) {
@@ -149,9 +158,8 @@ public class NPCListener implements Listener {
             return;
         }
 
-        int entityId = entity.getEntityId();
-        String vaultId = vaultService.getVaultIdFromEntity(entityId);
-        String tradeId = tradeService.getTradeIdFromEntity(entityId);
+        String vaultId = vaultService.getVaultIdFromEntity(entity);
+        String tradeId = tradeService.getTradeIdFromEntity(entity);
 
         // If this is a vault NPC or trade NPC, cancel all damage
         if (vaultId != null || tradeId != null) {
@@ -37,10 +37,14 @@ public class PlayerListener implements Listener {
             playerService.updatePlayer(sovereigntyPlayer);
             plugin.getLogger().info("Updated name for player " + player.getName());
         }
+
+        plugin.getServiceManager().getMessageDispatcher().playerJoined(player);
+        plugin.getServiceManager().getWarService().getBossBars().playerJoined(player);
     }
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        // Nothing special needed here for now, but could be used for cleanup tasks
+        plugin.getServiceManager().getMessageDispatcher().playerQuit(event.getPlayer());
+        plugin.getServiceManager().getWarService().getBossBars().playerQuit(event.getPlayer());
     }
 }
@@ -1,13 +1,13 @@
 package com.tatayless.sovereignty.listeners;
 
 import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.events.TerritoryEvent;
 import com.tatayless.sovereignty.models.ChunkLocation;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.SovereigntyPlayer;
 import com.tatayless.sovereignty.services.NationService;
 import com.tatayless.sovereignty.services.PlayerService;
 import com.tatayless.sovereignty.services.WarService;
-import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -18,6 +18,12 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("unused")
 public class ProtectionListener implements Listener {
@@ -26,88 +32,50 @@ public class ProtectionListener implements Listener {
     private final PlayerService playerService;
     private final WarService warService;
 
+    // Player -> access verdict for the chunk they last acted in
+    private final Map<UUID, BuildAccess> buildAccess = new ConcurrentHashMap<>();
+    private final AtomicLong territoryVersion = new AtomicLong();
+
     public ProtectionListener(Sovereignty plugin) {
         this.plugin = plugin;
         this.nationService = plugin.getServiceManager().getNationService();
         this.playerService = plugin.getServiceManager().getPlayerService();
         this.warService = plugin.getServiceManager().getWarService();
+
+        // Any change to territory, membership, wars or alliances can change a verdict
+        plugin.getServiceManager().getEventBus().subscribe(TerritoryEvent.class, event -> {
+            territoryVersion.incrementAndGet();
+            buildAccess.clear();
+        });
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
         Player player = event.getPlayer();
-        Block block = event.getBlock();
-
-        // Check if the block is in a claimed chunk
-        ChunkLocation chunkLocation = new ChunkLocation(block.getChunk());
-        Nation ownerNation = nationService.getNationByChunk(chunkLocation);
-
-        if (ownerNation != null) {
-            SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(player.getUniqueId().toString());
-
-            // Check if player has permission to break blocks in this nation
-            if (sovereigntyPlayer == null ||
-                    (!ownerNation.isMember(sovereigntyPlayer.getId()) &&
-                            !player.hasPermission("sovereignty.admin.bypass"))) {
-
-                // Check if player's nation is at war with owner nation and war destruction is
-                // enabled
-                boolean warException = false;
-                if (sovereigntyPlayer != null && sovereigntyPlayer.hasNation()) {
-                    Nation playerNation = nationService.getNation(sovereigntyPlayer.getNationId());
-                    if (playerNation != null &&
-                            warService.isAtWar(playerNation.getId(), ownerNation.getId()) &&
-                            plugin.getConfigManager().isWarDestructionEnabled()) {
-                        warException = true;
-                    }
-                }
-
-                if (!warException) {
-                    event.setCancelled(true);
-                    player.sendMessage(plugin.getLocalizationManager().getComponent(
-                            "protection.cannot-break",
-                            "nation", ownerNation.getName()));
-                }
-            }
+        BuildAccess access = getBuildAccess(player, new ChunkLocation(event.getBlock().getChunk()));
+
+        // Check if player has permission to break blocks in this nation, war
+        // destruction lets enemies through
+        if (access.isDenied(player) && !access.canDestroyInWar()) {
+            event.setCancelled(true);
+            player.sendMessage(plugin.getLocalizationManager().getComponent(
+                    "protection.cannot-break",
+                    "nation", access.owner.getName()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
         Player player = event.getPlayer();
-        Block block = event.getBlock();
-
-        // Check if the block is in a claimed chunk
-        ChunkLocation chunkLocation = new ChunkLocation(block.getChunk());
-        Nation ownerNation = nationService.getNationByChunk(chunkLocation);
-
-        if (ownerNation != null) {
-            SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(player.getUniqueId().toString());
-
-            // Check if player has permission to place blocks in this nation
-            if (sovereigntyPlayer == null ||
-                    (!ownerNation.isMember(sovereigntyPlayer.getId()) &&
-                            !player.hasPermission("sovereignty.admin.bypass"))) {
-
-                // Check if player's nation is at war with owner nation and war destruction is
-                // enabled
-                boolean warException = false;
-                if (sovereigntyPlayer != null && sovereigntyPlayer.hasNation()) {
-                    Nation playerNation = nationService.getNation(sovereigntyPlayer.getNationId());
-                    if (playerNation != null &&
-                            warService.isAtWar(playerNation.getId(), ownerNation.getId()) &&
-                            plugin.getConfigManager().isWarDestructionEnabled()) {
-                        warException = true;
-                    }
-                }
-
-                if (!warException) {
-                    event.setCancelled(true);
-                    player.sendMessage(plugin.getLocalizationManager().getComponent(
-                            "protection.cannot-place",
-                            "nation", ownerNation.getName()));
-                }
-            }
+        BuildAccess access = getBuildAccess(player, new ChunkLocation(event.getBlock().getChunk()));
+
+        // Check if player has permission to place blocks in this nation, war
+        // destruction lets enemies through
+        if (access.isDenied(player) && !access.canDestroyInWar()) {
+            event.setCancelled(true);
+            player.sendMessage(plugin.getLocalizationManager().getComponent(
+                    "protection.cannot-place",
+                    "nation", access.owner.getName()));
         }
     }
 
@@ -117,25 +85,83 @@ public class ProtectionListener implements Listener {
             return;
 
         Player player = event.getPlayer();
-        Block block = event.getClickedBlock();
+        BuildAccess access = getBuildAccess(player, new ChunkLocation(event.getClickedBlock().getChunk()));
+
+        // Check if player has permission to interact with blocks in this nation
+        if (access.isDenied(player)) {
+            event.setCancelled(true);
+            player.sendMessage(plugin.getLocalizationManager().getComponent(
+                    "protection.cannot-interact",
+                    "nation", access.owner.getName()));
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        buildAccess.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Gets the player's access to a chunk, reusing the last verdict while the
+     * player stays in the same chunk and no territory event came in since
+     */
+    private BuildAccess getBuildAccess(Player player, ChunkLocation chunkLocation) {
+        // Read the version first, a verdict computed while an event comes in is never reused
+        long version = territoryVersion.get();
+        BuildAccess cached = buildAccess.get(player.getUniqueId());
+        if (cached != null && cached.version == version && cached.chunk.equals(chunkLocation)) {
+            return cached;
+        }
 
-        // Check if the block is in a claimed chunk
-        ChunkLocation chunkLocation = new ChunkLocation(block.getChunk());
         Nation ownerNation = nationService.getNationByChunk(chunkLocation);
+        SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(player.getUniqueId().toString());
+
+        boolean member = false;
+        boolean atWar = false;
+        if (ownerNation != null && sovereigntyPlayer != null) {
+            member = ownerNation.isMember(sovereigntyPlayer.getId());
+            atWar = sovereigntyPlayer.hasNation() &&
+                    warService.isAtWar(sovereigntyPlayer.getNationId(), ownerNation.getId());
+        }
 
-        if (ownerNation != null) {
-            SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(player.getUniqueId().toString());
+        BuildAccess access = new BuildAccess(version, chunkLocation, ownerNation, sovereigntyPlayer != null,
+                member, atWar);
+        // Players without a record yet aren't cached, creating the record publishes no event
+        if (sovereigntyPlayer != null) {
+            buildAccess.put(player.getUniqueId(), access);
+        }
+        return access;
+    }
 
-            // Check if player has permission to interact with blocks in this nation
-            if (sovereigntyPlayer == null ||
-                    (!ownerNation.isMember(sovereigntyPlayer.getId()) &&
-                            !player.hasPermission("sovereignty.admin.bypass"))) {
+    /**
+     * What a player may do in a chunk, derived from territory, membership and wars
+     */
+    private class BuildAccess {
+        private final long version;
+        private final ChunkLocation chunk;
+        private final Nation owner;
+        private final boolean known;
+        private final boolean member;
+        private final boolean atWar;
+
+        BuildAccess(long version, ChunkLocation chunk, Nation owner, boolean known, boolean member, boolean atWar) {
+            this.version = version;
+            this.chunk = chunk;
+            this.owner = owner;
+            this.known = known;
+            this.member = member;
+            this.atWar = atWar;
+        }
 
-                event.setCancelled(true);
-                player.sendMessage(plugin.getLocalizationManager().getComponent(
-                        "protection.cannot-interact",
-                        "nation", ownerNation.getName()));
-            }
+        /**
+         * Bypass permission and config are checked live, they change without territory events
+         */
+        boolean isDenied(Player player) {
+            return owner != null && (!known || (!member && !player.hasPermission("sovereignty.admin.bypass")));
+        }
+
+        boolean canDestroyInWar() {
+            return atWar && plugin.getConfigManager().isWarDestructionEnabled();
         }
     }
 
@@ -3,6 +3,7 @@ package com.tatayless.sovereignty.listeners;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.services.TradeService;
 import com.tatayless.sovereignty.services.trade.TradeVaultHandler;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -12,8 +13,6 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.logging.Level;
-
 public class TradeListener implements Listener {
     private final Sovereignty plugin;
     private final TradeService tradeService;
@@ -33,11 +32,12 @@ public class TradeListener implements Listener {
         if (event.getInventory().getHolder() instanceof TradeVaultHandler.TradeVaultInventoryHolder) {
             Player player = (Player) event.getWhoClicked();
 
-            // Debug info
-            plugin.getLogger().log(Level.INFO, "Trade vault click: Player=" + player.getName() +
-                    ", Slot=" + event.getSlot() +
-                    ", RawSlot=" + event.getRawSlot() +
-                    ", Action=" + event.getAction());
+            // Debug info, sampled since this fires for every trade vault interaction
+            plugin.getDebugLogger().sampled(DebugLogger.Subsystem.TRADE, "trade-vault-click",
+                    () -> "Trade vault click: Player=" + player.getName() +
+                            ", Slot=" + event.getSlot() +
+                            ", RawSlot=" + event.getRawSlot() +
+                            ", Action=" + event.getAction());
 
             // Let the TradeService handle it
             tradeService.handleInventoryClick(event);
@@ -67,7 +67,8 @@ public class TradeListener implements Listener {
         for (int slot : event.getRawSlots()) {
             if ((slot == TradeVaultHandler.CONFIRM_BUTTON_SLOT ||
                     slot == TradeVaultHandler.INFO_BUTTON_SLOT) && slot < 54) {
-                plugin.getLogger().info("Cancelled drag affecting trade vault buttons");
+                plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE,
+                        () -> "Cancelled drag affecting trade vault buttons");
                 event.setCancelled(true);
                 return;
             }
@@ -81,7 +82,8 @@ public class TradeListener implements Listener {
 
         // Handle trade vault inventories
         if (event.getInventory().getHolder() instanceof TradeVaultHandler.TradeVaultInventoryHolder) {
-            plugin.getLogger().info("Player " + event.getPlayer().getName() + " closing trade vault inventory");
+            plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE,
+                    () -> "Player " + event.getPlayer().getName() + " closing trade vault inventory");
             tradeService.handleInventoryClose(event);
             return;
         }
@@ -94,7 +96,8 @@ public class TradeListener implements Listener {
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        plugin.getLogger().info("Player quit event for trades: " + event.getPlayer().getName());
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE,
+                () -> "Player quit event for trades: " + event.getPlayer().getName());
 
         // If player has an open trade vault inventory, save it before they disconnect
         if (event.getPlayer().getOpenInventory() != null &&
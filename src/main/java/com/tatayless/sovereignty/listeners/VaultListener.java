@@ -2,6 +2,7 @@ package com.tatayless.sovereignty.listeners;
 
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.services.VaultService;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -9,9 +10,10 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.*;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.logging.Level;
+import java.util.function.Supplier;
 
 public class VaultListener implements Listener {
     private final Sovereignty plugin;
@@ -34,17 +36,18 @@ public class VaultListener implements Listener {
 
         Player player = (Player) event.getWhoClicked();
 
-        // Debug the click
-        plugin.getLogger().log(Level.INFO, "Vault click: Player=" + player.getName() +
-                ", Slot=" + event.getSlot() +
-                ", RawSlot=" + event.getRawSlot() +
-                ", Action=" + event.getAction() +
-                ", ClickType=" + event.getClick());
+        // Debug the click, sampled since this fires for every vault interaction
+        plugin.getDebugLogger().sampled(DebugLogger.Subsystem.VAULT, "vault-click",
+                () -> "Vault click: Player=" + player.getName() +
+                        ", Slot=" + event.getSlot() +
+                        ", RawSlot=" + event.getRawSlot() +
+                        ", Action=" + event.getAction() +
+                        ", ClickType=" + event.getClick());
 
         // Check for navigation button clicks
         ItemStack clickedItem = event.getCurrentItem();
         if (clickedItem != null && vaultService.isNavigationItem(clickedItem)) {
-            plugin.getLogger().info("Navigation button clicked by " + player.getName());
+            debug(() -> "Navigation button clicked by " + player.getName());
             event.setCancelled(true);
 
             // Schedule navigation
@@ -63,7 +66,7 @@ public class VaultListener implements Listener {
             if (event.getClick().isShiftClick() && rawSlot >= 54) {
                 // Cancel the event if the destination slot would be a navigation button
                 if (wouldShiftClickToNavigationSlot(event)) {
-                    plugin.getLogger().info("Cancelled shift-click that would affect navigation slots");
+                    debug(() -> "Cancelled shift-click that would affect navigation slots");
                     event.setCancelled(true);
                     return;
                 }
@@ -71,7 +74,7 @@ public class VaultListener implements Listener {
             // For direct clicks on navigation slots
             else if ((rawSlot == VaultService.NEXT_PAGE_SLOT || rawSlot == VaultService.PREV_PAGE_SLOT) &&
                     rawSlot < 54) {
-                plugin.getLogger().info("Cancelled click on navigation slot " + rawSlot);
+                debug(() -> "Cancelled click on navigation slot " + rawSlot);
                 event.setCancelled(true);
                 return;
             }
@@ -79,7 +82,7 @@ public class VaultListener implements Listener {
             else if (event.getClick() == ClickType.NUMBER_KEY) {
                 int slot = event.getSlot();
                 if (slot == VaultService.NEXT_PAGE_SLOT || slot == VaultService.PREV_PAGE_SLOT) {
-                    plugin.getLogger().info("Cancelled hotbar swap with navigation slot " + slot);
+                    debug(() -> "Cancelled hotbar swap with navigation slot " + slot);
                     event.setCancelled(true);
                     return;
                 }
@@ -87,6 +90,10 @@ public class VaultListener implements Listener {
         }
     }
 
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.VAULT, message);
+    }
+
     private boolean wouldShiftClickToNavigationSlot(InventoryClickEvent event) {
         ItemStack clickedItem = event.getCurrentItem();
         if (clickedItem == null)
@@ -128,7 +135,7 @@ public class VaultListener implements Listener {
         if (event.getInventory().getSize() == 54) {
             for (int slot : event.getRawSlots()) {
                 if ((slot == VaultService.NEXT_PAGE_SLOT || slot == VaultService.PREV_PAGE_SLOT) && slot < 54) {
-                    plugin.getLogger().info("Cancelled drag affecting navigation slots");
+                    debug(() -> "Cancelled drag affecting navigation slots");
                     event.setCancelled(true);
                     return;
                 }
@@ -143,13 +150,57 @@ public class VaultListener implements Listener {
         if (!(event.getInventory().getHolder() instanceof VaultService.VaultInventoryHolder))
             return;
 
-        plugin.getLogger().info("Player " + event.getPlayer().getName() + " closing vault inventory");
+        debug(() -> "Player " + event.getPlayer().getName() + " closing vault inventory");
         vaultService.handleInventoryClose(event);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultClickAudit(InventoryClickEvent event) {
+        if (event.getWhoClicked() instanceof Player
+                && event.getInventory().getHolder() instanceof VaultService.VaultInventoryHolder) {
+            vaultService.trackVaultEdit((Player) event.getWhoClicked(),
+                    (VaultService.VaultInventoryHolder) event.getInventory().getHolder());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultDragAudit(InventoryDragEvent event) {
+        if (event.getWhoClicked() instanceof Player
+                && event.getInventory().getHolder() instanceof VaultService.VaultInventoryHolder) {
+            vaultService.trackVaultEdit((Player) event.getWhoClicked(),
+                    (VaultService.VaultInventoryHolder) event.getInventory().getHolder());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        // Avoid block state snapshots, this fires for every hopper transfer on the server
+        InventoryHolder destination = event.getDestination().getHolder(false);
+        if (vaultService.getIntakeManager().getIntakeNationId(destination) != null) {
+            vaultService.getIntakeManager().queue(event.getDestination().getLocation());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onIntakeHopperPush(InventoryMoveItemEvent event) {
+        // Intake hoppers keep their items for the vault instead of passing them on
+        InventoryHolder source = event.getSource().getHolder(false);
+        if (vaultService.getIntakeManager().getIntakeNationId(source) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        InventoryHolder holder = event.getInventory().getHolder(false);
+        if (vaultService.getIntakeManager().getIntakeNationId(holder) != null) {
+            vaultService.getIntakeManager().queue(event.getInventory().getLocation());
+        }
+    }
+
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        plugin.getLogger().info("Player quit event: " + event.getPlayer().getName());
+        debug(() -> "Player quit event: " + event.getPlayer().getName());
         vaultService.handlePlayerQuit(event.getPlayer().getUniqueId());
     }
 }
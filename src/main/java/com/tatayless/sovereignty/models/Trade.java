@@ -84,8 +84,15 @@ public class Trade {
         this.executionInterval = executionInterval;
     }
 
+    /**
+     * Whether the trade still has executions ahead of it
+     */
+    public boolean isSchedulable() {
+        return status == Status.PENDING || status == Status.ACTIVE;
+    }
+
     public boolean isReady() {
-        if (this.status != Status.PENDING) {
+        if (!isSchedulable()) {
             return false;
         }
 
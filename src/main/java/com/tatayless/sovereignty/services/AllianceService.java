@@ -1,10 +1,10 @@
 package com.tatayless.sovereignty.services;
 
 import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.events.TerritoryEvent;
+import com.tatayless.sovereignty.events.TerritoryEventBus;
 import com.tatayless.sovereignty.models.Nation;
-import com.tatayless.sovereignty.models.SovereigntyPlayer;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import com.tatayless.sovereignty.services.MessageDispatcher.Recipients;
 import net.kyori.adventure.text.Component;
 
 import java.util.*;
@@ -14,10 +14,14 @@ public class AllianceService {
     private final Sovereignty plugin;
     private final NationService nationService;
     private final Map<String, Set<String>> allianceRequests = new HashMap<>();
+    private final TerritoryEventBus eventBus;
+    private final MessageDispatcher messageDispatcher;
 
     public AllianceService(Sovereignty plugin, NationService nationService) {
         this.plugin = plugin;
         this.nationService = nationService;
+        this.eventBus = plugin.getServiceManager().getEventBus();
+        this.messageDispatcher = plugin.getServiceManager().getMessageDispatcher();
     }
 
     public void loadAlliances() {
@@ -77,6 +81,7 @@ public class AllianceService {
         // Form alliance
         nation.addAlliance(senderNationId);
         senderNation.addAlliance(nationId);
+        eventBus.publish(new TerritoryEvent.AllianceChanged(nationId, senderNationId, true));
 
         // Remove the request
         requests.remove(senderNationId);
@@ -126,6 +131,7 @@ public class AllianceService {
         // Break alliance
         nation.removeAlliance(allyNationId);
         allyNation.removeAlliance(nationId);
+        eventBus.publish(new TerritoryEvent.AllianceChanged(nationId, allyNationId, false));
 
         // Save nations
         CompletableFuture<Boolean> future1 = nationService.saveNation(nation);
@@ -197,32 +203,10 @@ public class AllianceService {
     }
 
     private void notifyNationOfficers(String nationId, Component message) {
-        Nation nation = nationService.getNation(nationId);
-        if (nation == null)
-            return;
-
-        // Notify president
-        Player president = Bukkit.getPlayer(UUID.fromString(nation.getPresidentId()));
-        if (president != null && president.isOnline()) {
-            president.sendMessage(message);
-        }
-
-        // Notify senators
-        for (String senatorId : nation.getSenators()) {
-            Player senator = Bukkit.getPlayer(UUID.fromString(senatorId));
-            if (senator != null && senator.isOnline()) {
-                senator.sendMessage(message);
-            }
-        }
+        messageDispatcher.send(Recipients.officers(nationId), message);
     }
 
     private void notifyNationPlayers(String nationId, Component message) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            SovereigntyPlayer sovereigntyPlayer = plugin.getServiceManager().getPlayerService()
-                    .getPlayer(player.getUniqueId().toString());
-            if (sovereigntyPlayer != null && nationId.equals(sovereigntyPlayer.getNationId())) {
-                player.sendMessage(message);
-            }
-        }
+        messageDispatcher.send(Recipients.nations(nationId), message);
     }
 }
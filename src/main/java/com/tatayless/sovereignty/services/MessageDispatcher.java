@@ -0,0 +1,290 @@
+package com.tatayless.sovereignty.services;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.events.TerritoryEvent;
+import com.tatayless.sovereignty.models.Nation;
+import com.tatayless.sovereignty.models.SovereigntyPlayer;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Delivers chat messages to players from any thread.
+ * Messages are queued with the players they are for and sent on the main
+ * thread once per tick. Recipients are resolved through an index of online
+ * players by nation, kept up to date from joins, quits and membership events,
+ * so notifying a nation never scans every player. A message is rendered once
+ * no matter how many players receive it.
+ */
+public class MessageDispatcher {
+    private final Sovereignty plugin;
+    private final PlayerService playerService;
+    private final NationService nationService;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+    // Guarded by "this". Online player -> nation ID, or null for players without a nation
+    private final Map<UUID, String> onlineNations = new HashMap<>();
+    private final Map<String, Set<UUID>> onlineByNation = new HashMap<>();
+
+    private BukkitTask task;
+
+    public MessageDispatcher(Sovereignty plugin, PlayerService playerService, NationService nationService) {
+        this.plugin = plugin;
+        this.playerService = playerService;
+        this.nationService = nationService;
+
+        plugin.getServiceManager().getEventBus().subscribe(TerritoryEvent.MembershipChanged.class,
+                event -> moveOnlinePlayer(UUID.fromString(event.getPlayerId()), event.getNewNationId()));
+    }
+
+    /**
+     * Starts the per-tick delivery task
+     */
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stops the delivery task and sends whatever is still queued. Must be
+     * called on the main thread.
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+    }
+
+    /**
+     * Queue a message. Safe to call from any thread.
+     *
+     * @param recipients Who gets the message
+     * @param message    The message
+     */
+    public void send(Recipients recipients, Component message) {
+        queue.add(new Pending(recipients, () -> message));
+    }
+
+    /**
+     * Queue a localized message, rendered on the main thread only once
+     *
+     * @param recipients   Who gets the message
+     * @param key          The localization key
+     * @param placeholders Placeholder name and value pairs
+     */
+    public void send(Recipients recipients, String key, String... placeholders) {
+        queue.add(new Pending(recipients,
+                () -> plugin.getLocalizationManager().getComponent(key, placeholders)));
+    }
+
+    /**
+     * Index every player that is already online, e.g. after a reload. Runs on
+     * the main thread.
+     *
+     * @return A future completed once the players are indexed
+     */
+    public CompletableFuture<Void> indexOnlinePlayers() {
+        CompletableFuture<Void> indexed = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                playerJoined(player);
+            }
+            indexed.complete(null);
+        });
+        return indexed;
+    }
+
+    public void playerJoined(Player player) {
+        SovereigntyPlayer sovereigntyPlayer = playerService.getPlayer(player.getUniqueId().toString());
+        String nationId = sovereigntyPlayer != null ? sovereigntyPlayer.getNationId() : null;
+        synchronized (this) {
+            unindex(player.getUniqueId());
+            index(player.getUniqueId(), nationId);
+        }
+    }
+
+    public synchronized void playerQuit(Player player) {
+        unindex(player.getUniqueId());
+    }
+
+    private synchronized void moveOnlinePlayer(UUID playerId, String nationId) {
+        if (onlineNations.containsKey(playerId)) {
+            unindex(playerId);
+            index(playerId, nationId);
+        }
+    }
+
+    private void index(UUID playerId, String nationId) {
+        onlineNations.put(playerId, nationId);
+        if (nationId != null) {
+            onlineByNation.computeIfAbsent(nationId, k -> new HashSet<>()).add(playerId);
+        }
+    }
+
+    private void unindex(UUID playerId) {
+        String nationId = onlineNations.remove(playerId);
+        if (nationId != null) {
+            Set<UUID> members = onlineByNation.get(nationId);
+            if (members != null) {
+                members.remove(playerId);
+                if (members.isEmpty()) {
+                    onlineByNation.remove(nationId);
+                }
+            }
+        }
+    }
+
+    private void flush() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            Set<UUID> recipients = new LinkedHashSet<>();
+            synchronized (this) {
+                pending.recipients.collect(this, recipients);
+            }
+            if (recipients.isEmpty()) {
+                continue;
+            }
+
+            Component message = pending.message.get();
+            for (UUID playerId : recipients) {
+                Player player = Bukkit.getPlayer(playerId);
+                if (player != null) {
+                    player.sendMessage(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The online members of a nation, without scanning online players
+     */
+    public synchronized Set<UUID> getOnlinePlayers(String nationId) {
+        return new HashSet<>(getOnlineMembers(nationId));
+    }
+
+    private Set<UUID> getOnlineMembers(String nationId) {
+        Set<UUID> members = onlineByNation.get(nationId);
+        return members != null ? members : Collections.emptySet();
+    }
+
+    private Nation getNation(String nationId) {
+        return nationService.getNation(nationId);
+    }
+
+    private static class Pending {
+        private final Recipients recipients;
+        private final Supplier<Component> message;
+
+        Pending(Recipients recipients, Supplier<Component> message) {
+            this.recipients = recipients;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Selects the online players a message goes to. Resolved on the main
+     * thread when the message is delivered, not when it's queued.
+     */
+    public static final class Recipients {
+        private enum Type {
+            ALL, PLAYERS, NATIONS, OFFICERS
+        }
+
+        private final Type type;
+        private final List<String> ids;
+        private final Set<String> excluded = new HashSet<>();
+
+        private Recipients(Type type, List<String> ids) {
+            this.type = type;
+            this.ids = ids;
+        }
+
+        /**
+         * Every online player
+         */
+        public static Recipients all() {
+            return new Recipients(Type.ALL, Collections.emptyList());
+        }
+
+        public static Recipients player(String playerId) {
+            return new Recipients(Type.PLAYERS, Collections.singletonList(playerId));
+        }
+
+        /**
+         * Online members of one or more nations, each player at most once
+         */
+        public static Recipients nations(String... nationIds) {
+            return new Recipients(Type.NATIONS, List.of(nationIds));
+        }
+
+        /**
+         * The nation's president and senators
+         */
+        public static Recipients officers(String nationId) {
+            return new Recipients(Type.OFFICERS, Collections.singletonList(nationId));
+        }
+
+        /**
+         * Leave a player out, e.g. the one who caused the message
+         */
+        public Recipients except(String playerId) {
+            excluded.add(playerId);
+            return this;
+        }
+
+        private void collect(MessageDispatcher dispatcher, Set<UUID> result) {
+            switch (type) {
+                case ALL:
+                    result.addAll(dispatcher.onlineNations.keySet());
+                    break;
+                case PLAYERS:
+                    for (String id : ids) {
+                        UUID playerId = UUID.fromString(id);
+                        if (dispatcher.onlineNations.containsKey(playerId)) {
+                            result.add(playerId);
+                        }
+                    }
+                    break;
+                case NATIONS:
+                    for (String nationId : ids) {
+                        result.addAll(dispatcher.getOnlineMembers(nationId));
+                    }
+                    break;
+                case OFFICERS:
+                    Nation nation = dispatcher.getNation(ids.get(0));
+                    if (nation != null) {
+                        for (UUID playerId : dispatcher.getOnlineMembers(nation.getId())) {
+                            if (nation.isOfficer(playerId.toString())) {
+                                result.add(playerId);
+                            }
+                        }
+                    }
+                    break;
+            }
+            if (!excluded.isEmpty()) {
+                result.removeIf(playerId -> excluded.contains(playerId.toString()));
+            }
+        }
+    }
+}
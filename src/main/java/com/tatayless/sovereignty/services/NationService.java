@@ -4,6 +4,8 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.events.TerritoryEvent;
+import com.tatayless.sovereignty.events.TerritoryEventBus;
 import com.tatayless.sovereignty.models.ChunkLocation;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.SovereigntyPlayer;
@@ -17,18 +19,22 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class NationService {
     private final Sovereignty plugin;
     private final PlayerService playerService;
     private final Map<String, Nation> nations = new HashMap<>();
-    private final Map<ChunkLocation, String> chunkOwners = new HashMap<>();
+    // The authoritative chunk ownership index, every change is published on the event bus
+    private final Map<ChunkLocation, String> chunkOwners = new ConcurrentHashMap<>();
+    private final TerritoryEventBus eventBus;
     private final Gson gson = new Gson();
 
     public NationService(Sovereignty plugin, PlayerService playerService) {
         this.plugin = plugin;
         this.playerService = playerService;
+        this.eventBus = plugin.getServiceManager().getEventBus();
     }
 
     public void loadNations() {
@@ -188,6 +194,8 @@ public class NationService {
                     playerService.updatePlayer(finalSovereigntyPlayer);
 
                     nations.put(nationId, nation);
+                    eventBus.publish(new TerritoryEvent.MembershipChanged(
+                            finalSovereigntyPlayer.getId(), null, nationId));
                     return nation;
                 }
             });
@@ -214,6 +222,7 @@ public class NationService {
                     player.setNationId(null);
                     player.setRole(null);
                     playerService.updatePlayer(player);
+                    eventBus.publish(new TerritoryEvent.MembershipChanged(player.getId(), nationId, null));
                 }
 
                 // Delete nation
@@ -223,11 +232,11 @@ public class NationService {
 
                 // Remove from chunk map
                 for (ChunkLocation chunk : nation.getClaimedChunks()) {
-                    chunkOwners.remove(chunk);
+                    releaseChunk(chunk, nationId);
                 }
 
                 for (ChunkLocation chunk : nation.getAnnexedChunks()) {
-                    chunkOwners.remove(chunk);
+                    releaseChunk(chunk, nationId);
                 }
 
                 nations.remove(nationId);
@@ -297,6 +306,7 @@ public class NationService {
 
         nation.addClaimedChunk(chunkLocation);
         chunkOwners.put(chunkLocation, nationId);
+        eventBus.publish(new TerritoryEvent.ClaimAdded(chunkLocation, nationId));
 
         return saveNation(nation);
     }
@@ -321,7 +331,7 @@ public class NationService {
             nation.removeClaimedChunk(chunkLocation);
         }
 
-        chunkOwners.remove(chunkLocation);
+        releaseChunk(chunkLocation, nationId);
 
         return saveNation(nation);
     }
@@ -333,11 +343,47 @@ public class NationService {
         }
 
         nation.addAnnexedChunk(chunkLocation);
-        chunkOwners.put(chunkLocation, nationId);
+        String previousOwner = chunkOwners.put(chunkLocation, nationId);
+        if (previousOwner == null) {
+            eventBus.publish(new TerritoryEvent.ClaimAdded(chunkLocation, nationId));
+        } else if (!previousOwner.equals(nationId)) {
+            eventBus.publish(new TerritoryEvent.ClaimTransferred(chunkLocation, previousOwner, nationId));
+        }
 
         return saveNation(nation);
     }
 
+    /**
+     * Moves a chunk from one nation to another as an annexed chunk. Neither
+     * nation is saved, the caller saves both once all transfers are done.
+     *
+     * @param chunkLocation The chunk to move
+     * @param from          The nation losing the chunk
+     * @param to            The nation annexing it
+     */
+    public void transferChunk(ChunkLocation chunkLocation, Nation from, Nation to) {
+        if (!from.removeClaimedChunk(chunkLocation)) {
+            from.removeAnnexedChunk(chunkLocation);
+        }
+        to.addAnnexedChunk(chunkLocation);
+        chunkOwners.put(chunkLocation, to.getId());
+        eventBus.publish(new TerritoryEvent.ClaimTransferred(chunkLocation, from.getId(), to.getId()));
+    }
+
+    /**
+     * Tells subscribers that a player joined or left a nation. Called by
+     * whatever changed the player's nation, after the change is applied.
+     */
+    public void publishMembershipChange(String playerId, String oldNationId, String newNationId) {
+        eventBus.publish(new TerritoryEvent.MembershipChanged(playerId, oldNationId, newNationId));
+    }
+
+    private void releaseChunk(ChunkLocation chunkLocation, String nationId) {
+        if (chunkOwners.remove(chunkLocation, nationId)) {
+            eventBus.publish(new TerritoryEvent.ClaimRemoved(chunkLocation, nationId));
+        }
+    }
+
     public CompletableFuture<Boolean> appointSenator(String nationId, String playerId, String targetId) {
         Nation nation = getNation(nationId);
         if (nation == null || !nation.getPresidentId().equals(playerId)) {
@@ -23,8 +23,8 @@ public class PlayerService {
         this.plugin = plugin;
     }
 
-    public void loadPlayers() {
-        CompletableFuture.runAsync(() -> {
+    public CompletableFuture<Void> loadPlayers() {
+        return CompletableFuture.runAsync(() -> {
             try (Connection conn = plugin.getDatabaseManager().getConnection()) {
                 DSLContext context = plugin.getDatabaseManager().createContextSafe(conn);
                 Result<Record> results = context.select().from("players").fetch();
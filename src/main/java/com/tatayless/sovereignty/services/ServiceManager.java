@@ -1,11 +1,17 @@
 package com.tatayless.sovereignty.services;
 
 import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.events.TerritoryEventBus;
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.CompletableFuture;
 
 public class ServiceManager {
     private final Sovereignty plugin;
+    private final TerritoryEventBus eventBus;
 
     private NationService nationService;
+    private MessageDispatcher messageDispatcher;
     private PlayerService playerService;
     private ChunkService chunkService;
     private WarService warService;
@@ -17,12 +23,14 @@ public class ServiceManager {
 
     public ServiceManager(Sovereignty plugin) {
         this.plugin = plugin;
+        this.eventBus = new TerritoryEventBus(plugin);
     }
 
     public void initializeServices() {
         // Initialize services in correct order (dependency order)
         playerService = new PlayerService(plugin);
         nationService = new NationService(plugin, playerService);
+        messageDispatcher = new MessageDispatcher(plugin, playerService, nationService);
         chunkService = new ChunkService(plugin, nationService);
         warService = new WarService(plugin, nationService, playerService);
         allianceService = new AllianceService(plugin, nationService);
@@ -33,17 +41,33 @@ public class ServiceManager {
         adminService = new AdminService(plugin, nationService);
 
         // Load data
-        playerService.loadPlayers();
+        CompletableFuture<Void> playersIndexed = playerService.loadPlayers()
+                .thenCompose(loaded -> messageDispatcher.indexOnlinePlayers());
         nationService.loadNations();
-        warService.loadWars();
+        CompletableFuture<Void> warsLoaded = warService.loadWars();
+        // Players already online after a reload get their war bars once both are in
+        CompletableFuture.allOf(playersIndexed, warsLoaded).thenRun(() -> Bukkit.getScheduler()
+                .runTask(plugin, () -> warService.getBossBars().showActiveWars()));
         allianceService.loadAlliances();
         tradeService.loadTrades();
         // Replace direct loadVaults with initialize to ensure proper setup
         vaultService.initialize();
 
         // Start tasks
+        messageDispatcher.start();
         powerService.startRecalculationTask();
         tradeService.startTradeExecutionTask();
+        warService.startKillFlushTask();
+        warService.getBossBars().start();
+        warService.getEventLog().start();
+    }
+
+    public TerritoryEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public MessageDispatcher getMessageDispatcher() {
+        return messageDispatcher;
     }
 
     public AdminService getAdminService() {
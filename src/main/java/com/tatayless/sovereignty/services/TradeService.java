@@ -5,10 +5,11 @@ import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
 import com.tatayless.sovereignty.models.Trade;
 import com.tatayless.sovereignty.services.trade.*;
+import org.bukkit.Chunk;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
@@ -21,21 +22,22 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TradeService {
     private final Sovereignty plugin;
     private final NationService nationService;
     private final VaultService vaultService;
-    private final Map<String, Trade> activeTrades = new HashMap<>();
+    private final Map<String, Trade> activeTrades = new ConcurrentHashMap<>();
+    private final TradeIndex tradeIndex = new TradeIndex();
     private final Map<UUID, TradeSession> playerSessions = new HashMap<>();
-    private final Map<Integer, String> entityToTradeVault = new HashMap<>(); // Maps entity ID to trade vault ID
 
     // Specialized handlers
     private final TradeUIHandler uiHandler;
     private final TradeVaultHandler vaultHandler;
     private final TradeNPCHandler npcHandler;
     private final TradeExecutionHandler executionHandler;
+    private final TradeScheduler scheduler;
 
     private final Gson gson = new Gson();
 
@@ -49,6 +51,7 @@ public class TradeService {
         this.vaultHandler = new TradeVaultHandler(this, plugin);
         this.npcHandler = new TradeNPCHandler(this, plugin);
         this.executionHandler = new TradeExecutionHandler(this, plugin, vaultService, nationService);
+        this.scheduler = new TradeScheduler(plugin, executionHandler::executeTrades);
     }
 
     public void loadTrades() {
@@ -99,29 +102,19 @@ public class TradeService {
                             }
                         }
 
-                        activeTrades.put(id, trade);
+                        registerTrade(trade);
                     }
 
-                    // Load trade NPCs
-                    Result<Record> npcResults = context.select().from("trade_vault_npcs").fetch();
-
-                    for (Record record : npcResults) {
-                        int entityId = record.get("entity_id", Integer.class);
-                        String tradeId = record.get("trade_id", String.class);
-
-                        // Associate entity with trade vault for quick lookup
-                        entityToTradeVault.put(entityId, tradeId);
-                    }
-
-                    plugin.getLogger().info("Loaded " + activeTrades.size() + " trades from database");
-
-                    // Start a scheduler to process trades
-                    scheduleTradeProcessing();
+                    plugin.getLogger().info("Loaded " + activeTrades.size() + " trades from database ("
+                            + scheduler.getScheduledCount() + " scheduled)");
 
                     return null;
                 }
             });
         });
+
+        // Trade NPCs placed before they were tagged are picked up as their chunks load
+        npcHandler.loadUntaggedNPCLocations();
     }
 
     private Date parseDateTime(Object dateTimeObj) {
@@ -139,37 +132,52 @@ public class TradeService {
         return null;
     }
 
-    private void scheduleTradeProcessing() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                processReadyTrades();
-            }
-        }.runTaskTimerAsynchronously(plugin, 1200, 1200); // Run every minute (20 ticks/sec * 60 sec)
+    /**
+     * Starts the trade execution task that runs due trades.
+     * This method should be called during plugin startup.
+     */
+    public void startTradeExecutionTask() {
+        scheduler.start();
+        vaultHandler.getVaultCache().start();
     }
 
-    private void processReadyTrades() {
-        plugin.getLogger().info("Processing trades...");
-        List<Trade> readyTrades = activeTrades.values().stream()
-                .filter(Trade::isReady)
-                .collect(Collectors.toList());
+    /**
+     * Stops trade execution and writes out pending trade vault changes.
+     * Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        scheduler.stop();
+        vaultHandler.getVaultCache().stop();
+    }
 
-        if (!readyTrades.isEmpty()) {
-            plugin.getLogger().info("Found " + readyTrades.size() + " trades ready for execution");
-        }
+    /**
+     * Adds a trade to the in-memory trades and schedules its next execution
+     */
+    public void registerTrade(Trade trade) {
+        activeTrades.put(trade.getId(), trade);
+        tradeIndex.add(trade);
+        scheduler.schedule(trade);
+    }
 
-        for (Trade trade : readyTrades) {
-            executionHandler.executeTrade(trade);
+    /**
+     * Removes a trade from the in-memory trades and the execution schedule
+     */
+    public void unregisterTrade(String tradeId) {
+        Trade trade = activeTrades.remove(tradeId);
+        if (trade != null) {
+            tradeIndex.remove(trade);
         }
+        scheduler.unschedule(tradeId);
+        vaultHandler.clearCache(tradeId);
     }
 
     /**
-     * Starts the trade execution task that runs periodically to check and execute
-     * trades.
-     * This method should be called during plugin startup.
+     * Changes a trade's status in memory and keeps the trade index in sync.
+     * The caller is responsible for persisting the status.
      */
-    public void startTradeExecutionTask() {
-        scheduleTradeProcessing();
+    public void updateTradeStatus(Trade trade, Trade.Status status) {
+        trade.setStatus(status);
+        tradeIndex.updateStatus(trade);
     }
 
     /**
@@ -179,10 +187,17 @@ public class TradeService {
      * @return List of Trade objects where the nation is either sending or receiving
      */
     public List<Trade> getNationTrades(String nationId) {
-        return activeTrades.values().stream()
-                .filter(trade -> trade.getSendingNationId().equals(nationId) ||
-                        trade.getReceivingNationId().equals(nationId))
-                .collect(Collectors.toList());
+        return tradeIndex.getTrades(nationId);
+    }
+
+    /**
+     * Gets the pending and active trades associated with a specific nation.
+     * 
+     * @param nationId the nation ID to get trades for
+     * @return List of Trade objects that can still be executed
+     */
+    public List<Trade> getOpenNationTrades(String nationId) {
+        return tradeIndex.getOpenTrades(nationId);
     }
 
     // UI-related methods - delegate to UIHandler
@@ -313,10 +328,6 @@ public class TradeService {
         return playerSessions;
     }
 
-    public Map<Integer, String> getEntityToTradeVault() {
-        return entityToTradeVault;
-    }
-
     public Gson getGson() {
         return gson;
     }
@@ -337,31 +348,25 @@ public class TradeService {
         return executionHandler;
     }
 
-    // Trade utils
-    public String getTradeIdFromEntity(int entityId) {
-        return entityToTradeVault.get(entityId);
+    public TradeScheduler getScheduler() {
+        return scheduler;
     }
 
-    public boolean isSenderEntity(int entityId) {
-        String tradeId = entityToTradeVault.get(entityId);
-        if (tradeId == null)
-            return false;
+    // Trade utils
+    public String getTradeIdFromEntity(Entity entity) {
+        return npcHandler.getTradeIdFromEntity(entity);
+    }
 
-        // Look up in database
-        return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
-            @Override
-            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
-                Record record = context.select()
-                        .from("trade_vault_npcs")
-                        .where(DSL.field("entity_id").eq(entityId))
-                        .fetchOne();
+    public void adoptUntaggedNPCs(Chunk chunk, List<Entity> entities) {
+        npcHandler.adoptUntaggedNPCs(chunk, entities);
+    }
 
-                if (record == null)
-                    return false;
+    public void removeStaleNPCs(List<Entity> entities) {
+        npcHandler.removeStaleNPCs(entities);
+    }
 
-                return record.get("is_for_sender", Integer.class) == 1;
-            }
-        });
+    public boolean isSenderEntity(Entity entity) {
+        return npcHandler.isSenderEntity(entity);
     }
 
     // For compatibility with older code - can be removed after refactoring
@@ -391,7 +396,8 @@ public class TradeService {
             return false;
         }
 
-        trade.setStatus(Trade.Status.ACTIVE);
+        updateTradeStatus(trade, Trade.Status.ACTIVE);
+        scheduler.schedule(trade);
 
         // Update in database
         return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
@@ -2,9 +2,17 @@ package com.tatayless.sovereignty.services;
 
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.models.Nation;
+import com.tatayless.sovereignty.services.vault.SlotMerge;
+import com.tatayless.sovereignty.services.vault.VaultAuditLog;
+import com.tatayless.sovereignty.services.vault.VaultIntakeManager;
+import com.tatayless.sovereignty.services.vault.VaultMaterialIndex;
 import com.tatayless.sovereignty.services.vault.VaultNPCManager;
+import com.tatayless.sovereignty.services.vault.VaultOverflowScheduler;
+import com.tatayless.sovereignty.services.vault.VaultSnapshotManager;
 import com.tatayless.sovereignty.services.vault.VaultStorageManager;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.*;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.inventory.Inventory;
@@ -12,30 +20,44 @@ import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
+import org.jooq.DSLContext;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class VaultService {
     private final Sovereignty plugin;
     private final NationService nationService;
     private final Map<String, NationVault> nationVaults = new HashMap<>();
     private final Map<UUID, PlayerVaultSession> playerSessions = new ConcurrentHashMap<>();
+    // Live page inventories keyed by "vaultId:page", only touched from the main thread
+    private final Map<String, VaultInventoryHolder> sharedPages = new HashMap<>();
 
     private final VaultNPCManager npcManager;
     private final VaultStorageManager storageManager;
+    private final VaultOverflowScheduler overflowScheduler;
+    private final VaultSnapshotManager snapshotManager;
+    private final VaultIntakeManager intakeManager;
+    private final VaultAuditLog auditLog;
     private final NamespacedKey vaultPageKey;
 
     public static final int MAX_SINGLE_PAGE_SIZE = 54;
     public static final int NEXT_PAGE_SLOT = 53;
     public static final int PREV_PAGE_SLOT = 45;
+    public static final int AUDIT_PAGE_SIZE = 10;
 
     public VaultService(Sovereignty plugin, NationService nationService) {
         this.plugin = plugin;
         this.nationService = nationService;
         this.npcManager = new VaultNPCManager(plugin);
         this.storageManager = new VaultStorageManager(plugin);
+        this.overflowScheduler = new VaultOverflowScheduler(plugin, this::expireOverflow);
+        this.snapshotManager = new VaultSnapshotManager(plugin);
+        this.intakeManager = new VaultIntakeManager(plugin, this);
+        this.auditLog = new VaultAuditLog(plugin);
         this.vaultPageKey = new NamespacedKey(plugin, "vault_page");
 
         plugin.getLogger().info("VaultService created");
@@ -49,11 +71,12 @@ public class VaultService {
 
     public void loadVaults() {
         for (Nation nation : nationService.getNations().values()) {
-            storageManager.getOrCreateVault(nation.getId(), nationVaults);
+            storageManager.getOrCreateVault(nation.getId(), nationVaults).thenAccept(overflowScheduler::track);
         }
 
-        storageManager.scheduleOverflowCleanup(nationVaults);
-        npcManager.loadAndRespawnNPCs();
+        overflowScheduler.start();
+        auditLog.start();
+        npcManager.loadNPCLocations();
 
         plugin.getLogger().info("Vault service initialized with " + nationVaults.size() + " vaults");
     }
@@ -65,12 +88,11 @@ public class VaultService {
             return;
         }
 
-        plugin.getLogger()
-                .info("Attempting to open vault for nation: " + nationId + " and player: " + player.getName());
+        debug(() -> "Attempting to open vault for nation: " + nationId + " and player: " + player.getName());
 
         storageManager.getOrCreateVault(nationId, nationVaults).thenAccept(vault -> {
             if (vault != null) {
-                plugin.getLogger().info("Vault found, opening page 0 for " + player.getName());
+                debug(() -> "Vault found, opening page 0 for " + player.getName());
                 Bukkit.getScheduler().runTask(plugin, () -> openVaultPage(player, vault, 0));
             } else {
                 player.sendMessage(plugin.getLocalizationManager().getComponent("vault.no-vault"));
@@ -86,14 +108,14 @@ public class VaultService {
             return;
         }
 
-        plugin.getLogger().info("Attempting to open vault page " + page + " for nation: " + nationId);
+        debug(() -> "Attempting to open vault page " + page + " for nation: " + nationId);
         storageManager.getOrCreateVault(nationId, nationVaults).thenAccept(vault -> {
             if (vault != null) {
                 Bukkit.getScheduler().runTask(plugin, () -> {
                     int maxPages = calculateMaxPages(nation.getPowerLevel());
                     int adjustedPage = Math.max(0, Math.min(page, maxPages - 1));
                     if (adjustedPage != page) {
-                        plugin.getLogger().info("Adjusted requested page " + page + " to " + adjustedPage +
+                        debug(() -> "Adjusted requested page " + page + " to " + adjustedPage +
                                 " (maxPages: " + maxPages + ")");
                     }
                     openVaultPage(player, vault, adjustedPage);
@@ -105,6 +127,47 @@ public class VaultService {
         });
     }
 
+    /**
+     * Looks up a material in the nation's vault index and opens the first page
+     * that holds it
+     */
+    public void searchVault(Player player, String nationId, Material material) {
+        Nation nation = nationService.getNation(nationId);
+        if (nation == null) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("vault.no-vault"));
+            return;
+        }
+
+        getOrCreateVault(nationId).thenAccept(vault -> {
+            if (vault == null) {
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.no-vault"));
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                String materialName = material.name().toLowerCase();
+                int page = vault.getMaterialIndex().findFirstPage(material);
+                int maxPages = calculateMaxPages(nation.getPowerLevel());
+                if (page < 0 || page >= maxPages) {
+                    player.sendMessage(plugin.getLocalizationManager().getComponent("vault.search-not-found",
+                            "material", materialName));
+                    return;
+                }
+
+                Map<Integer, Integer> pageCounts = vault.getMaterialIndex().getPageCounts(material);
+                String pages = pageCounts.keySet().stream()
+                        .filter(p -> p < maxPages)
+                        .map(p -> String.valueOf(p + 1))
+                        .collect(Collectors.joining(", "));
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.search-found",
+                        "material", materialName,
+                        "count", String.valueOf(vault.countMaterial(material)),
+                        "pages", pages));
+                openVaultPage(player, vault, page);
+            });
+        });
+    }
+
     private void openVaultPage(Player player, NationVault vault, int page) {
         Nation nation = nationService.getNation(vault.getNationId());
         if (nation == null) {
@@ -113,33 +176,57 @@ public class VaultService {
         }
 
         UUID playerId = player.getUniqueId();
-        PlayerVaultSession currentSession = playerSessions.get(playerId);
-        if (currentSession != null && currentSession.nationId.equals(vault.getNationId())) {
-            if (player.getOpenInventory() != null) {
-                Inventory topInv = player.getOpenInventory().getTopInventory();
-                if (topInv != null && topInv.getHolder() instanceof VaultInventoryHolder) {
-                    VaultInventoryHolder holder = (VaultInventoryHolder) topInv.getHolder();
-                    if (holder.getVaultId().equals(vault.getId()) && holder.getPage() == currentSession.page) {
-                        plugin.getLogger().info(
-                                "Saving current page " + currentSession.page + " before switching to page " + page);
-                        saveInventoryToVault(topInv, vault, currentSession.page);
-                    }
-                }
+        String pageKey = getPageKey(vault.getId(), page);
+        VaultInventoryHolder holder = sharedPages.get(pageKey);
+
+        Inventory topInv = player.getOpenInventory().getTopInventory();
+        if (topInv.getHolder() instanceof VaultInventoryHolder) {
+            VaultInventoryHolder currentHolder = (VaultInventoryHolder) topInv.getHolder();
+            if (currentHolder == holder) {
+                debug(() -> "Player " + player.getName() + " is already viewing vault page " + page);
+                return;
             }
+            // Release the page being left first so the close event that follows is a no-op
+            debug(() -> "Releasing current page " + currentHolder.getPage() + " before switching to page " + page);
+            releaseSharedPage(playerId, currentHolder);
         }
 
+        if (holder == null) {
+            holder = createSharedPage(vault, nation, page);
+            sharedPages.put(pageKey, holder);
+        }
+        holder.addViewer(playerId);
+
+        playerSessions.put(playerId, new PlayerVaultSession(vault.getNationId(), page));
+        plugin.getVaultUpdateManager().registerNationVaultViewer(vault.getId(), playerId, page);
+
+        player.openInventory(holder.getInventory());
+        int viewerCount = holder.getViewerCount();
+        debug(() -> "Opened vault " + vault.getId() + " page " + page + " for player " + player.getName()
+                + " (" + viewerCount + " viewers)");
+    }
+
+    /**
+     * Builds the live inventory for a vault page. The returned holder owns the
+     * inventory and is shared by every player viewing that page, so edits are
+     * visible to all viewers without copying.
+     */
+    private VaultInventoryHolder createSharedPage(NationVault vault, Nation nation, int page) {
         int maxPages = calculateMaxPages(nation.getPowerLevel());
-        int baseRows = plugin.getConfigManager().getBaseVaultRows();
-        int additionalRows = plugin.getConfigManager().getAdditionalRowsPerPowerLevel() * (nation.getPowerLevel() - 1);
-        int totalRows = Math.min(6, baseRows + additionalRows);
-        int size = totalRows * 9;
+        int size = getPageSize(nation);
+        int totalRows = size / 9;
 
         VaultInventoryHolder holder = new VaultInventoryHolder(vault.getId(), vault.getNationId(), page);
         Inventory inventory = Bukkit.createInventory(holder, size,
                 net.kyori.adventure.text.Component
                         .text("Nation Vault: " + nation.getName() + " (Page " + (page + 1) + ")"));
+        holder.setInventory(inventory);
 
-        ItemStack[] pageItems = vault.getPageItems(page);
+        ItemStack[] pageItems;
+        synchronized (vault) {
+            pageItems = vault.getPageItems(page);
+            holder.setBase(pageItems, vault.getSlotVersions(page));
+        }
         for (int i = 0; i < Math.min(pageItems.length, size); i++) {
             if ((totalRows == 6) && (i == PREV_PAGE_SLOT || i == NEXT_PAGE_SLOT)) {
                 continue;
@@ -150,19 +237,138 @@ public class VaultService {
         if (totalRows == 6) {
             if (page > 0) {
                 inventory.setItem(PREV_PAGE_SLOT, createNavigationItem(Material.ARROW, "Previous Page", -1));
-                plugin.getLogger().info("Added previous page button for page " + page);
+                debug(() -> "Added previous page button for page " + page);
             }
             if (page < maxPages - 1) {
                 inventory.setItem(NEXT_PAGE_SLOT, createNavigationItem(Material.ARROW, "Next Page", 1));
-                plugin.getLogger().info("Added next page button for page " + page);
+                debug(() -> "Added next page button for page " + page);
             }
         }
 
-        playerSessions.put(playerId, new PlayerVaultSession(vault.getNationId(), page));
-        plugin.getVaultUpdateManager().registerNationVaultViewer(vault.getId(), playerId, page);
+        holder.setAuditCounts(countContents(inventory));
+        debug(() -> "Created shared inventory for vault " + vault.getId() + " page " + page);
+        return holder;
+    }
+
+    /**
+     * Detaches a viewer from a shared vault page. When the last viewer leaves,
+     * the page contents are flushed back to the {@link NationVault} and the
+     * shared inventory is discarded.
+     */
+    private void releaseSharedPage(UUID playerId, VaultInventoryHolder holder) {
+        if (!holder.removeViewer(playerId)) {
+            return;
+        }
+
+        plugin.getVaultUpdateManager().unregisterNationVaultViewer(holder.getVaultId(), playerId, holder.getPage());
+        if (holder.getViewerCount() > 0) {
+            return;
+        }
+
+        sharedPages.remove(getPageKey(holder.getVaultId(), holder.getPage()), holder);
+
+        NationVault vault = findVaultById(holder.getVaultId());
+        if (vault == null) {
+            plugin.getLogger().warning("Could not find vault " + holder.getVaultId() + " to flush page "
+                    + holder.getPage());
+            return;
+        }
+
+        saveInventoryToVault(holder, vault);
+    }
+
+    /**
+     * Called after a click or drag in a shared vault page, before it is applied.
+     * The page is compared with its last known contents on the next tick, once
+     * the click has been applied, and the difference is recorded against the
+     * player who clicked. When another player clicked earlier in the same tick,
+     * their click has already been applied at this point, so it is recorded
+     * against them first.
+     */
+    public void trackVaultEdit(Player player, VaultInventoryHolder holder) {
+        String playerId = player.getUniqueId().toString();
+        if (holder.isAuditPending() && !playerId.equals(holder.getLastEditorId())) {
+            recordAuditDelta(holder);
+        }
+        holder.setLastEditor(playerId, player.getName());
+        if (holder.markAuditPending()) {
+            Bukkit.getScheduler().runTask(plugin, () -> auditPage(holder));
+        }
+    }
+
+    private void auditPage(VaultInventoryHolder holder) {
+        holder.clearAuditPending();
+        recordAuditDelta(holder);
+    }
+
+    private void recordAuditDelta(VaultInventoryHolder holder) {
+        Map<Material, Integer> previous = holder.getAuditCounts();
+        Map<Material, Integer> current = countContents(holder.getInventory());
+
+        Set<Material> materials = new HashSet<>(previous.keySet());
+        materials.addAll(current.keySet());
+        for (Material material : materials) {
+            int delta = current.getOrDefault(material, 0) - previous.getOrDefault(material, 0);
+            auditLog.record(holder.getVaultId(), holder.getLastEditorId(), holder.getLastEditorName(), material,
+                    delta, holder.getPage());
+        }
+        holder.setAuditCounts(current);
+    }
+
+    private Map<Material, Integer> countContents(Inventory inventory) {
+        Map<Material, Integer> counts = new EnumMap<>(Material.class);
+        for (ItemStack item : inventory.getContents()) {
+            if (item != null && !item.getType().isAir() && !isNavigationItem(item)) {
+                counts.merge(item.getType(), item.getAmount(), Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Sends one page of the nation's vault audit log to the player, newest first
+     */
+    public void showAuditLog(Player player, String nationId, int page) {
+        getOrCreateVault(nationId).thenAccept(vault -> {
+            if (vault == null) {
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.no-vault"));
+                return;
+            }
+
+            auditLog.query(vault.getId(), page, AUDIT_PAGE_SIZE).thenAccept(entries -> {
+                if (entries == null || entries.isEmpty()) {
+                    player.sendMessage(plugin.getLocalizationManager().getComponent("vault.audit-empty",
+                            "page", String.valueOf(page + 1)));
+                    return;
+                }
 
-        player.openInventory(inventory);
-        plugin.getLogger().info("Opened vault " + vault.getId() + " page " + page + " for player " + player.getName());
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.audit-header",
+                        "page", String.valueOf(page + 1)));
+                java.text.SimpleDateFormat format = new java.text.SimpleDateFormat("MM-dd HH:mm");
+                for (VaultAuditLog.Entry entry : entries) {
+                    player.sendMessage(plugin.getLocalizationManager().getComponent(
+                            entry.getAmount() > 0 ? "vault.audit-deposit" : "vault.audit-withdraw",
+                            "time", format.format(new Date(entry.getCreatedAt())),
+                            "player", entry.getPlayerName(),
+                            "amount", String.valueOf(Math.abs(entry.getAmount())),
+                            "material", entry.getMaterial().toLowerCase(),
+                            "page", String.valueOf(entry.getPage() + 1)));
+                }
+            });
+        });
+    }
+
+    private NationVault findVaultById(String vaultId) {
+        for (NationVault vault : nationVaults.values()) {
+            if (vault.getId().equals(vaultId)) {
+                return vault;
+            }
+        }
+        return null;
+    }
+
+    private static String getPageKey(String vaultId, int page) {
+        return vaultId + ":" + page;
     }
 
     private ItemStack createNavigationItem(Material material, String name, int direction) {
@@ -182,6 +388,12 @@ public class VaultService {
         return item;
     }
 
+    private int getPageSize(Nation nation) {
+        int baseRows = plugin.getConfigManager().getBaseVaultRows();
+        int additionalRows = plugin.getConfigManager().getAdditionalRowsPerPowerLevel() * (nation.getPowerLevel() - 1);
+        return Math.min(6, baseRows + additionalRows) * 9;
+    }
+
     private int calculateMaxPages(int powerLevel) {
         return Math.max(1, Math.min(plugin.getConfigManager().getMaxVaultPages(), powerLevel));
     }
@@ -205,7 +417,7 @@ public class VaultService {
         }
 
         int newPage = session.page + pageOffset;
-        plugin.getLogger().info("Player " + player.getName() + " navigating from page " + session.page +
+        debug(() -> "Player " + player.getName() + " navigating from page " + session.page +
                 " to page " + newPage + " (offset: " + pageOffset + ")");
 
         openVaultPage(player, session.nationId, newPage);
@@ -222,69 +434,235 @@ public class VaultService {
             return;
 
         VaultInventoryHolder holder = (VaultInventoryHolder) inventory.getHolder();
-        String vaultId = holder.getVaultId();
-        @SuppressWarnings("unused")
-        String nationId = holder.getNationId();
+        debug(() -> "Player " + player.getName() + " closing vault " + holder.getVaultId() + " page "
+                + holder.getPage());
+
+        releaseSharedPage(playerId, holder);
+
+        // Page switches open the next page before this close fires, so only drop a matching session
+        PlayerVaultSession session = playerSessions.get(playerId);
+        if (session != null && session.nationId.equals(holder.getNationId()) && session.page == holder.getPage()) {
+            playerSessions.remove(playerId);
+            debug(() -> "Cleaned up vault session for " + player.getName());
+        }
+    }
+
+    private void saveInventoryToVault(VaultInventoryHolder holder, NationVault vault) {
         int page = holder.getPage();
+        debug(() -> "Saving inventory contents to vault " + vault.getId() + " page " + page);
 
-        plugin.getLogger().info("Player " + player.getName() + " closing vault " + vaultId + " page " + page);
+        Inventory inventory = holder.getInventory();
+        int size = inventory.getSize();
+        ItemStack[] baseItems = holder.getBaseItems();
+        ItemStack[] editedItems = new ItemStack[MAX_SINGLE_PAGE_SIZE];
+        int changedSlots = 0;
+
+        for (int i = 0; i < MAX_SINGLE_PAGE_SIZE; i++) {
+            ItemStack item = i < size ? inventory.getItem(i) : null;
+            boolean navigationSlot = (i == PREV_PAGE_SLOT || i == NEXT_PAGE_SLOT) && size == 54
+                    && (item == null || isNavigationItem(item));
+
+            // Slots the viewer couldn't see keep what the page started with
+            if (i >= size || navigationSlot) {
+                editedItems[i] = i < baseItems.length ? baseItems[i] : null;
+                continue;
+            }
 
-        NationVault vault = null;
-        for (NationVault v : nationVaults.values()) {
-            if (v.getId().equals(vaultId)) {
-                vault = v;
-                break;
+            editedItems[i] = (item != null) ? item.clone() : null;
+            if (!Objects.equals(i < baseItems.length ? baseItems[i] : null, editedItems[i])) {
+                changedSlots++;
             }
         }
 
-        if (vault == null) {
-            plugin.getLogger()
-                    .warning("Could not find vault " + vaultId + " when handling close for " + player.getName());
+        if (changedSlots == 0) {
+            debug(() -> "No changes detected in vault " + vault.getId() + " page " + page);
             return;
         }
 
-        saveInventoryToVault(inventory, vault, page);
+        final int changed = changedSlots;
+        debug(() -> "Updating vault " + vault.getId() + " page " + page + " with new contents ("
+                + changed + " slots changed)");
+        // Snapshot the contents from before this edit so it can be rolled back
+        snapshotManager.captureIfDue(vault);
+        SlotMerge.Result<ItemStack> merge = vault.mergePageItems(page, baseItems, holder.getBaseVersions(),
+                editedItems);
+        List<ItemStack> displaced = merge.getDisplaced();
+
+        if (!merge.getMissing().isEmpty()) {
+            plugin.getLogger().warning(merge.getMissing().size() + " item stacks taken from vault " + vault.getId()
+                    + " page " + page + " had already been taken by another write");
+        }
 
-        playerSessions.remove(playerId);
-        plugin.getVaultUpdateManager().unregisterNationVaultViewer(vaultId, playerId, page);
-        plugin.getLogger().info("Cleaned up vault session for " + player.getName());
+        if (!displaced.isEmpty()) {
+            // Never drop items that lost a conflicting write, park them in overflow
+            plugin.getLogger().info("Moved " + displaced.size() + " conflicting item stacks from vault "
+                    + vault.getId() + " page " + page + " to overflow");
+            vault.addOverflowItems(displaced, plugin.getConfigManager().getVaultExpiryTimeMinutes());
+            overflowScheduler.track(vault);
+        }
+
+        storageManager.saveVault(vault).thenAccept(success -> {
+            debug(() -> "Saved vault " + vault.getId() + " page " + page + " to database: " + success);
+        });
     }
 
-    private void saveInventoryToVault(Inventory inventory, NationVault vault, int page) {
-        plugin.getLogger().info("Saving inventory contents to vault " + vault.getId() + " page " + page);
+    private boolean isNavigationItem(ItemStack item) {
+        return item.getType() == Material.ARROW && item.hasItemMeta()
+                && item.getItemMeta().getPersistentDataContainer().has(vaultPageKey, PersistentDataType.INTEGER);
+    }
 
-        int size = inventory.getSize();
-        ItemStack[] currentItems = vault.getPageItems(page);
-        ItemStack[] newItems = new ItemStack[MAX_SINGLE_PAGE_SIZE];
+    /**
+     * Restores the nation's vault to its contents at the given time. Open pages
+     * are closed first so no viewer can write stale contents back afterwards.
+     */
+    public void rollbackVault(Player player, String nationId, long timestamp) {
+        getOrCreateVault(nationId).thenAccept(vault -> {
+            if (vault == null) {
+                player.sendMessage(plugin.getLocalizationManager().getComponent("vault.no-vault"));
+                return;
+            }
+
+            snapshotManager.loadPagesAt(vault.getId(), timestamp).thenAccept(pages -> {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (pages == null) {
+                        player.sendMessage(plugin.getLocalizationManager().getComponent("vault.rollback-no-snapshot"));
+                        return;
+                    }
+
+                    closeSharedPages(vault.getId());
+
+                    // Keep the current contents so the rollback itself can be undone
+                    if (plugin.getConfigManager().isVaultSnapshotsEnabled()) {
+                        snapshotManager.capture(vault);
+                    }
+
+                    Set<Integer> allPages = new HashSet<>(vault.getPages().keySet());
+                    allPages.addAll(pages.keySet());
+                    for (int page : allPages) {
+                        vault.setPageItems(page, pages.get(page));
+                    }
+
+                    plugin.getLogger().info("Vault " + vault.getId() + " rolled back to " + new Date(timestamp)
+                            + " by " + player.getName());
+                    storageManager.saveVault(vault).thenAccept(success -> {
+                        player.sendMessage(plugin.getLocalizationManager().getComponent(
+                                success ? "vault.rollback-success" : "vault.rollback-failed",
+                                "time", new Date(timestamp).toString()));
+                    });
+                });
+            });
+        });
+    }
+
+    /**
+     * Adds items to the first pages with room, the way a player filling the vault
+     * would. Pages that are open in a shared inventory are skipped so their
+     * viewers never have items appear under them, and anything that doesn't fit
+     * goes to overflow. Must be called on the main thread, the caller is
+     * responsible for saving the vault.
+     *
+     * @param vault The vault to fill
+     * @param items The items to add, may be modified
+     * @return The number of stacks that went to overflow
+     */
+    public int depositItems(NationVault vault, List<ItemStack> items) {
+        Nation nation = nationService.getNation(vault.getNationId());
+        if (nation == null || items.isEmpty()) {
+            return 0;
+        }
+
+        int pageSize = getPageSize(nation);
+        int maxPages = calculateMaxPages(nation.getPowerLevel());
+        List<ItemStack> remaining = new ArrayList<>(items);
+
+        snapshotManager.captureIfDue(vault);
+        for (int page = 0; page < maxPages && !remaining.isEmpty(); page++) {
+            if (sharedPages.containsKey(getPageKey(vault.getId(), page))) {
+                continue;
+            }
+
+            synchronized (vault) {
+                ItemStack[] pageItems = Arrays.copyOf(vault.getPageItems(page), MAX_SINGLE_PAGE_SIZE);
+                if (fillPage(pageItems, pageSize, remaining)) {
+                    vault.setPageItems(page, pageItems);
+                }
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            vault.addOverflowItems(remaining, plugin.getConfigManager().getVaultExpiryTimeMinutes());
+            overflowScheduler.track(vault);
+        }
+        return remaining.size();
+    }
+
+    /**
+     * Tops up matching stacks and then fills empty slots. Placed items are
+     * removed from the list, stored stacks are replaced rather than modified
+     * since page arrays are shared with snapshots.
+     *
+     * @return true if the page changed
+     */
+    private boolean fillPage(ItemStack[] pageItems, int pageSize, List<ItemStack> remaining) {
         boolean changed = false;
+        Iterator<ItemStack> iterator = remaining.iterator();
 
-        for (int i = 0; i < size; i++) {
-            if ((i == PREV_PAGE_SLOT || i == NEXT_PAGE_SLOT) && (size == 54)) {
-                ItemStack item = inventory.getItem(i);
-                if (item != null && item.getType() == Material.ARROW && item.hasItemMeta() &&
-                        item.getItemMeta().getPersistentDataContainer().has(vaultPageKey, PersistentDataType.INTEGER)) {
+        while (iterator.hasNext()) {
+            ItemStack item = iterator.next();
+            for (int i = 0; i < pageSize && item.getAmount() > 0; i++) {
+                if (pageSize == 54 && (i == PREV_PAGE_SLOT || i == NEXT_PAGE_SLOT)) {
                     continue;
                 }
+
+                ItemStack stored = pageItems[i];
+                if (stored == null || stored.getType().isAir()) {
+                    continue;
+                }
+                int space = stored.getMaxStackSize() - stored.getAmount();
+                if (space > 0 && stored.isSimilar(item)) {
+                    int moved = Math.min(space, item.getAmount());
+                    ItemStack merged = stored.clone();
+                    merged.setAmount(stored.getAmount() + moved);
+                    pageItems[i] = merged;
+                    item.setAmount(item.getAmount() - moved);
+                    changed = true;
+                }
             }
 
-            ItemStack item = inventory.getItem(i);
-            newItems[i] = (item != null) ? item.clone() : null;
+            for (int i = 0; i < pageSize && item.getAmount() > 0; i++) {
+                if (pageSize == 54 && (i == PREV_PAGE_SLOT || i == NEXT_PAGE_SLOT)) {
+                    continue;
+                }
+                if (pageItems[i] == null || pageItems[i].getType().isAir()) {
+                    pageItems[i] = item.clone();
+                    item.setAmount(0);
+                    changed = true;
+                }
+            }
 
-            if (!Objects.equals(currentItems[i], newItems[i])) {
-                changed = true;
-                plugin.getLogger().info("Item changed in slot " + i + " of vault " + vault.getId() + " page " + page);
+            if (item.getAmount() <= 0) {
+                iterator.remove();
             }
         }
+        return changed;
+    }
 
-        if (changed) {
-            plugin.getLogger().info("Updating vault " + vault.getId() + " page " + page + " with new contents");
-            vault.setPageItems(page, newItems);
-
-            storageManager.saveVault(vault).thenAccept(success -> {
-                plugin.getLogger().info("Saved vault " + vault.getId() + " page " + page + " to database: " + success);
-            });
-        } else {
-            plugin.getLogger().info("No changes detected in vault " + vault.getId() + " page " + page);
+    /**
+     * Closes every open page of a vault for all of its viewers, flushing them
+     */
+    private void closeSharedPages(String vaultId) {
+        for (VaultInventoryHolder holder : new ArrayList<>(sharedPages.values())) {
+            if (!holder.getVaultId().equals(vaultId)) {
+                continue;
+            }
+            for (UUID viewerId : holder.getViewers()) {
+                Player viewer = Bukkit.getPlayer(viewerId);
+                if (viewer != null) {
+                    viewer.closeInventory();
+                }
+                // Release directly in case the viewer was already gone
+                releaseSharedPage(viewerId, holder);
+            }
         }
     }
 
@@ -294,28 +672,19 @@ public class VaultService {
             return;
 
         Player player = Bukkit.getPlayer(playerId);
-        if (player != null && player.getOpenInventory() != null) {
+        if (player != null) {
             Inventory inventory = player.getOpenInventory().getTopInventory();
-            if (inventory != null && inventory.getHolder() instanceof VaultInventoryHolder) {
-                VaultInventoryHolder holder = (VaultInventoryHolder) inventory.getHolder();
-                String vaultId = holder.getVaultId();
-
-                NationVault vault = null;
-                for (NationVault v : nationVaults.values()) {
-                    if (v.getId().equals(vaultId)) {
-                        vault = v;
-                        break;
-                    }
-                }
-
-                if (vault != null) {
-                    saveInventoryToVault(inventory, vault, holder.getPage());
-                }
+            if (inventory.getHolder() instanceof VaultInventoryHolder) {
+                releaseSharedPage(playerId, (VaultInventoryHolder) inventory.getHolder());
             }
         }
 
         playerSessions.remove(playerId);
-        plugin.getLogger().info("Cleaned up vault session for disconnected player " + playerId);
+        debug(() -> "Cleaned up vault session for disconnected player " + playerId);
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.VAULT, message);
     }
 
     public boolean isNavigationItem(ItemStack item) {
@@ -325,15 +694,81 @@ public class VaultService {
     }
 
     public CompletableFuture<NationVault> getOrCreateVault(String nationId) {
-        return storageManager.getOrCreateVault(nationId, nationVaults);
+        return storageManager.getOrCreateVault(nationId, nationVaults).thenApply(vault -> {
+            overflowScheduler.track(vault);
+            return vault;
+        });
+    }
+
+    /**
+     * Gets a vault that is already loaded, without touching the database
+     */
+    public NationVault getLoadedVault(String nationId) {
+        return nationVaults.get(nationId);
+    }
+
+    public VaultNPCManager getNpcManager() {
+        return npcManager;
+    }
+
+    public VaultIntakeManager getIntakeManager() {
+        return intakeManager;
+    }
+
+    /**
+     * Stops vault tasks and writes out pending intake saves. Blocks until the
+     * saves have finished so they land before the database is closed.
+     */
+    public void shutdown() {
+        overflowScheduler.stop();
+        auditLog.stop();
+        intakeManager.flushSaves().join();
+    }
+
+    /**
+     * Writes a vault on the caller's connection as part of its transaction.
+     * Items delivered by the transaction are written as overflow without
+     * touching the vault, once it commits they are added in memory with
+     * {@link #applyDeliveredOverflow}.
+     *
+     * @param delivered Items to write on top of the vault's current overflow
+     * @param expiry    The overflow expiry to write with them
+     */
+    public boolean writeVault(DSLContext context, NationVault vault, List<ItemStack> delivered, Date expiry)
+            throws java.sql.SQLException {
+        return storageManager.writeVault(context, vault, delivered, expiry);
+    }
+
+    /**
+     * Adds items that a committed transaction already wrote to the vault's
+     * overflow. Must be called on the main thread.
+     */
+    public void applyDeliveredOverflow(NationVault vault, List<ItemStack> delivered, Date expiry) {
+        vault.addOverflowItems(delivered, expiry);
+        overflowScheduler.track(vault);
+        // A save taken between the commit and now didn't have the items yet
+        storageManager.saveVault(vault);
     }
 
     public CompletableFuture<Boolean> saveVault(NationVault vault) {
+        // Pick up any overflow added by the caller before it is persisted
+        overflowScheduler.track(vault);
         return storageManager.saveVault(vault);
     }
 
-    public String getVaultIdFromEntity(int entityId) {
-        return npcManager.getVaultIdFromEntity(entityId);
+    /**
+     * Clears expired overflow items. Called on the main thread by the overflow
+     * scheduler once the vault's expiry deadline has passed.
+     */
+    private void expireOverflow(NationVault vault) {
+        int expiredItems = vault.getOverflowItems() != null ? vault.getOverflowItems().length : 0;
+        vault.clearOverflow();
+        plugin.getLogger().info("Expired " + expiredItems + " overflow items from vault " + vault.getId());
+        storageManager.saveVault(vault);
+    }
+
+    public String getVaultIdFromEntity(Entity entity) {
+        return npcManager.getVaultIdFromEntity(entity);
     }
 
     public CompletableFuture<Boolean> removeVaultNPC(String nationId) {
@@ -359,7 +794,16 @@ public class VaultService {
         private final String vaultId;
         private final String nationId;
         private final int page;
+        private final Set<UUID> viewers = new HashSet<>();
         private Inventory inventory;
+        // Page contents and slot versions this inventory was filled from
+        private ItemStack[] baseItems = new ItemStack[0];
+        private long[] baseVersions = new long[MAX_SINGLE_PAGE_SIZE];
+        // Contents as of the last audit and who last clicked in the page
+        private Map<Material, Integer> auditCounts = new EnumMap<>(Material.class);
+        private String lastEditorId;
+        private String lastEditorName;
+        private boolean auditPending;
 
         public VaultInventoryHolder(String vaultId, String nationId, int page) {
             this.vaultId = vaultId;
@@ -387,6 +831,75 @@ public class VaultService {
         public int getPage() {
             return page;
         }
+
+        public boolean addViewer(UUID playerId) {
+            return viewers.add(playerId);
+        }
+
+        public boolean removeViewer(UUID playerId) {
+            return viewers.remove(playerId);
+        }
+
+        public int getViewerCount() {
+            return viewers.size();
+        }
+
+        public Set<UUID> getViewers() {
+            return new HashSet<>(viewers);
+        }
+
+        public void setBase(ItemStack[] baseItems, long[] baseVersions) {
+            this.baseItems = baseItems;
+            this.baseVersions = baseVersions;
+        }
+
+        public ItemStack[] getBaseItems() {
+            return baseItems;
+        }
+
+        public long[] getBaseVersions() {
+            return baseVersions;
+        }
+
+        public Map<Material, Integer> getAuditCounts() {
+            return auditCounts;
+        }
+
+        public void setAuditCounts(Map<Material, Integer> auditCounts) {
+            this.auditCounts = auditCounts;
+        }
+
+        public void setLastEditor(String playerId, String playerName) {
+            this.lastEditorId = playerId;
+            this.lastEditorName = playerName;
+        }
+
+        public String getLastEditorId() {
+            return lastEditorId;
+        }
+
+        public String getLastEditorName() {
+            return lastEditorName;
+        }
+
+        /**
+         * @return true if no audit was pending yet
+         */
+        public boolean markAuditPending() {
+            if (auditPending) {
+                return false;
+            }
+            auditPending = true;
+            return true;
+        }
+
+        public void clearAuditPending() {
+            auditPending = false;
+        }
+
+        public boolean isAuditPending() {
+            return auditPending;
+        }
     }
 
     private static class PlayerVaultSession {
@@ -405,6 +918,38 @@ public class VaultService {
         private Map<Integer, ItemStack[]> pages;
         private ItemStack[] overflowItems;
         private Date overflowExpiry;
+        private final VaultMaterialIndex materialIndex = new VaultMaterialIndex();
+        // Page -> version of each slot, bumped whenever the slot's contents change
+        private final Map<Integer, long[]> slotVersions = new HashMap<>();
+
+        private static final SlotMerge.Stacks<ItemStack> ITEM_STACKS = new SlotMerge.Stacks<ItemStack>() {
+            @Override
+            public boolean isEmpty(ItemStack item) {
+                return item.getType().isAir();
+            }
+
+            @Override
+            public boolean isSimilar(ItemStack a, ItemStack b) {
+                return a.isSimilar(b);
+            }
+
+            @Override
+            public int getAmount(ItemStack item) {
+                return item.getAmount();
+            }
+
+            @Override
+            public int getMaxStackSize(ItemStack item) {
+                return item.getMaxStackSize();
+            }
+
+            @Override
+            public ItemStack withAmount(ItemStack template, int amount) {
+                ItemStack item = template.clone();
+                item.setAmount(amount);
+                return item;
+            }
+        };
 
         public NationVault(String id, String nationId, Map<Integer, ItemStack[]> pages,
                 ItemStack[] overflowItems, Date overflowExpiry) {
@@ -413,6 +958,10 @@ public class VaultService {
             this.pages = pages != null ? new HashMap<>(pages) : new HashMap<>();
             this.overflowItems = overflowItems;
             this.overflowExpiry = overflowExpiry;
+
+            for (Map.Entry<Integer, ItemStack[]> entry : this.pages.entrySet()) {
+                materialIndex.updatePage(entry.getKey(), null, entry.getValue());
+            }
         }
 
         public String getId() {
@@ -423,6 +972,14 @@ public class VaultService {
             return nationId;
         }
 
+        /**
+         * Copy of the page map, safe to hand to another thread since page arrays
+         * are never modified in place
+         */
+        public synchronized Map<Integer, ItemStack[]> copyPages() {
+            return new HashMap<>(getPages());
+        }
+
         public Map<Integer, ItemStack[]> getPages() {
             if (this.pages == null) {
                 this.pages = new HashMap<>();
@@ -430,74 +987,154 @@ public class VaultService {
             return pages;
         }
 
-        public ItemStack[] getPageItems(int page) {
+        /**
+         * Page arrays are replaced by {@link #setPageItems} and never modified in
+         * place, so the returned array must be treated as read-only
+         */
+        public synchronized ItemStack[] getPageItems(int page) {
             return pages.computeIfAbsent(page, k -> new ItemStack[MAX_SINGLE_PAGE_SIZE]);
         }
 
-        public void setPageItems(int page, ItemStack[] items) {
+        public synchronized void setPageItems(int page, ItemStack[] items) {
+            ItemStack[] sizedItems = new ItemStack[MAX_SINGLE_PAGE_SIZE];
             if (items != null) {
-                ItemStack[] sizedItems = new ItemStack[MAX_SINGLE_PAGE_SIZE];
                 for (int i = 0; i < MAX_SINGLE_PAGE_SIZE; i++) {
                     if (i < items.length && items[i] != null) {
                         sizedItems[i] = items[i].clone();
-                    } else {
-                        sizedItems[i] = null;
                     }
                 }
-                pages.put(page, sizedItems);
-            } else {
-                pages.put(page, new ItemStack[MAX_SINGLE_PAGE_SIZE]);
             }
+            replacePage(page, sizedItems);
+        }
+
+        /**
+         * Current version of every slot on a page. Pass this back to
+         * {@link #mergePageItems} along with the page array it was read with.
+         */
+        public synchronized long[] getSlotVersions(int page) {
+            return slotVersions.computeIfAbsent(page, k -> new long[MAX_SINGLE_PAGE_SIZE]).clone();
+        }
+
+        /**
+         * Merges an editor's copy of a page into the vault with a per-slot
+         * compare-and-set against the state the editor started from, see
+         * {@link SlotMerge#merge}.
+         *
+         * @param page         The page being written
+         * @param baseItems    The page array the editor started from
+         * @param baseVersions The slot versions read together with baseItems
+         * @param editedItems  The editor's copy of the page
+         * @return The merge result, with items that could not be placed and
+         *         items that were taken out but already gone
+         */
+        public synchronized SlotMerge.Result<ItemStack> mergePageItems(int page, ItemStack[] baseItems,
+                long[] baseVersions, ItemStack[] editedItems) {
+            long[] versions = slotVersions.computeIfAbsent(page, k -> new long[MAX_SINGLE_PAGE_SIZE]);
+            SlotMerge.Result<ItemStack> result = SlotMerge.merge(getPageItems(page), versions, baseItems,
+                    baseVersions, editedItems, MAX_SINGLE_PAGE_SIZE, ITEM_STACKS);
+            replacePage(page, result.getMerged());
+            return result;
+        }
+
+        private void replacePage(int page, ItemStack[] sizedItems) {
+            ItemStack[] previous = pages.put(page, sizedItems);
+            long[] versions = slotVersions.computeIfAbsent(page, k -> new long[MAX_SINGLE_PAGE_SIZE]);
+            SlotMerge.bumpVersions(previous, sizedItems, versions, ITEM_STACKS);
+            materialIndex.updatePage(page, previous, sizedItems);
+        }
+
+        /**
+         * Total amount of a material stored across all saved pages
+         */
+        public int countMaterial(Material material) {
+            return materialIndex.count(material);
+        }
+
+        public VaultMaterialIndex getMaterialIndex() {
+            return materialIndex;
         }
 
         public boolean hasPage(int page) {
             return pages.containsKey(page) && pages.get(page) != null;
         }
 
-        public ItemStack[] getOverflowItems() {
+        public synchronized ItemStack[] getOverflowItems() {
             return overflowItems;
         }
 
-        public boolean hasOverflow() {
+        public synchronized boolean hasOverflow() {
             return overflowItems != null && overflowItems.length > 0;
         }
 
-        public void setOverflowItems(ItemStack[] overflowItems) {
+        public synchronized void setOverflowItems(ItemStack[] overflowItems) {
             this.overflowItems = overflowItems;
         }
 
-        public Date getOverflowExpiry() {
+        public synchronized Date getOverflowExpiry() {
             return overflowExpiry;
         }
 
-        public void setOverflowExpiry(Date overflowExpiry) {
+        public synchronized void setOverflowExpiry(Date overflowExpiry) {
             this.overflowExpiry = overflowExpiry;
         }
 
-        public void clearOverflow() {
+        public synchronized void clearOverflow() {
             this.overflowItems = null;
             this.overflowExpiry = null;
         }
 
         public void addOverflowItems(List<ItemStack> items, int expiryMinutes) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.add(Calendar.MINUTE, expiryMinutes);
+            addOverflowItems(items, calendar.getTime());
+        }
+
+        public synchronized void addOverflowItems(List<ItemStack> items, Date expiry) {
             if (items == null || items.isEmpty())
                 return;
 
+            this.overflowItems = mergeOverflow(overflowItems, items);
+            this.overflowExpiry = expiry;
+        }
+
+        /**
+         * Adds items to a copy of an overflow array
+         *
+         * @param overflow The current overflow, may be null
+         * @param items    The items to add
+         * @return A new overflow array, the given one is not modified
+         */
+        public static ItemStack[] mergeOverflow(ItemStack[] overflow, List<ItemStack> items) {
             List<ItemStack> allOverflow = new ArrayList<>();
 
-            if (overflowItems != null) {
-                Collections.addAll(allOverflow, Arrays.stream(overflowItems)
+            if (overflow != null) {
+                Collections.addAll(allOverflow, Arrays.stream(overflow)
                         .filter(Objects::nonNull)
                         .toArray(ItemStack[]::new));
             }
 
-            allOverflow.addAll(items);
-
-            this.overflowItems = allOverflow.toArray(new ItemStack[0]);
+            // Top up similar stacks first so repeated deliveries don't fragment the overflow
+            for (ItemStack item : items) {
+                int remaining = item.getAmount();
+                for (int i = 0; i < allOverflow.size() && remaining > 0; i++) {
+                    ItemStack stored = allOverflow.get(i);
+                    int space = stored.getMaxStackSize() - stored.getAmount();
+                    if (space > 0 && stored.isSimilar(item)) {
+                        int moved = Math.min(space, remaining);
+                        ItemStack merged = stored.clone();
+                        merged.setAmount(stored.getAmount() + moved);
+                        allOverflow.set(i, merged);
+                        remaining -= moved;
+                    }
+                }
+                if (remaining > 0) {
+                    ItemStack rest = item.clone();
+                    rest.setAmount(remaining);
+                    allOverflow.add(rest);
+                }
+            }
 
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.MINUTE, expiryMinutes);
-            this.overflowExpiry = calendar.getTime();
+            return allOverflow.toArray(new ItemStack[0]);
         }
     }
 }
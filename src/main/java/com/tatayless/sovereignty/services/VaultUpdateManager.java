@@ -1,20 +1,26 @@
 package com.tatayless.sovereignty.services;
 
 import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.services.trade.TradeVaultHandler.TradeVaultInventoryHolder;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Manages real-time updates between players viewing the same vault
+ * Manages real-time updates between players viewing the same vault.
+ * Nation vault pages share a single live inventory between viewers (see
+ * {@link VaultService}), so only viewer membership is tracked for them here.
  */
 public class VaultUpdateManager {
     private final Sovereignty plugin;
@@ -23,6 +29,15 @@ public class VaultUpdateManager {
     private final Map<String, Set<UUID>> nationVaultViewers = new ConcurrentHashMap<>();
     private final Map<String, Set<UUID>> tradeVaultViewers = new ConcurrentHashMap<>();
 
+    // Trade vault updates waiting for the next tick, keyed like tradeVaultViewers
+    private final Map<String, PendingSync> pendingTradeSyncs = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    // Sync statistics, reported in the sampled trade debug output
+    private final AtomicLong updatesCoalesced = new AtomicLong();
+    private final AtomicLong updatesSent = new AtomicLong();
+    private final AtomicLong slotsSent = new AtomicLong();
+
     public VaultUpdateManager(Sovereignty plugin) {
         this.plugin = plugin;
     }
@@ -37,7 +52,7 @@ public class VaultUpdateManager {
     public void registerNationVaultViewer(String vaultId, UUID playerUuid, int page) {
         // Create compound key including page number
         String compoundKey = vaultId + ":" + page;
-        nationVaultViewers.computeIfAbsent(compoundKey, k -> new HashSet<>()).add(playerUuid);
+        nationVaultViewers.computeIfAbsent(compoundKey, k -> ConcurrentHashMap.newKeySet()).add(playerUuid);
     }
 
     /**
@@ -50,7 +65,7 @@ public class VaultUpdateManager {
     public void registerTradeVaultViewer(String tradeId, boolean isSender, UUID playerUuid) {
         // Create compound key including sender/receiver info
         String compoundKey = tradeId + ":" + (isSender ? "sender" : "receiver");
-        tradeVaultViewers.computeIfAbsent(compoundKey, k -> new HashSet<>()).add(playerUuid);
+        tradeVaultViewers.computeIfAbsent(compoundKey, k -> ConcurrentHashMap.newKeySet()).add(playerUuid);
     }
 
     /**
@@ -62,12 +77,10 @@ public class VaultUpdateManager {
      */
     public void unregisterNationVaultViewer(String vaultId, UUID playerUuid, int page) {
         String compoundKey = vaultId + ":" + page;
-        if (nationVaultViewers.containsKey(compoundKey)) {
-            nationVaultViewers.get(compoundKey).remove(playerUuid);
-            if (nationVaultViewers.get(compoundKey).isEmpty()) {
-                nationVaultViewers.remove(compoundKey);
-            }
-        }
+        nationVaultViewers.computeIfPresent(compoundKey, (k, viewers) -> {
+            viewers.remove(playerUuid);
+            return viewers.isEmpty() ? null : viewers;
+        });
     }
 
     /**
@@ -79,173 +92,112 @@ public class VaultUpdateManager {
      */
     public void unregisterTradeVaultViewer(String tradeId, boolean isSender, UUID playerUuid) {
         String compoundKey = tradeId + ":" + (isSender ? "sender" : "receiver");
-        if (tradeVaultViewers.containsKey(compoundKey)) {
-            tradeVaultViewers.get(compoundKey).remove(playerUuid);
-            if (tradeVaultViewers.get(compoundKey).isEmpty()) {
-                tradeVaultViewers.remove(compoundKey);
-            }
-        }
+        tradeVaultViewers.computeIfPresent(compoundKey, (k, viewers) -> {
+            viewers.remove(playerUuid);
+            return viewers.isEmpty() ? null : viewers;
+        });
     }
 
     /**
-     * Update the nation vault inventory for all viewers except the specified player
+     * Check whether anyone is viewing either side of a trade vault
      * 
-     * @param vaultId          The ID of the vault
-     * @param page             The page to update
-     * @param updaterUuid      The UUID of the player who made the change (will be
-     *                         excluded from updates)
-     * @param updatedInventory The updated inventory contents
+     * @param tradeId The ID of the trade
+     * @return true if the sender or receiver side has a viewer
      */
-    public void updateNationVaultViewers(String vaultId, int page, UUID updaterUuid, Inventory updatedInventory) {
-        String compoundKey = vaultId + ":" + page;
-        Set<UUID> viewers = nationVaultViewers.get(compoundKey);
-        if (viewers == null) {
-            plugin.getLogger().info("[DEBUG] No additional viewers found for vault " + vaultId + " page " + page);
-            return;
-        }
+    public boolean hasTradeVaultViewers(String tradeId) {
+        return tradeVaultViewers.containsKey(tradeId + ":sender")
+                || tradeVaultViewers.containsKey(tradeId + ":receiver");
+    }
 
-        // Create a safe copy of viewers to prevent concurrent modification
-        Set<UUID> viewersCopy = new HashSet<>(viewers);
-        plugin.getLogger().info(
-                "[DEBUG] Found " + viewersCopy.size() + " additional viewers for vault " + vaultId + " page " + page);
-
-        // Run on the main thread since inventory operations are not thread-safe
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            try {
-                for (UUID viewerUuid : viewersCopy) {
-                    // Don't update the inventory of the player who made the change
-                    if (viewerUuid.equals(updaterUuid)) {
-                        plugin.getLogger().info("[DEBUG] Skipping updater's inventory: " + viewerUuid);
-                        continue;
-                    }
-
-                    Player viewer = Bukkit.getPlayer(viewerUuid);
-                    if (viewer != null && viewer.isOnline() &&
-                            viewer.getOpenInventory() != null &&
-                            viewer.getOpenInventory().getTopInventory() != null &&
-                            viewer.getOpenInventory().getTopInventory().getSize() == updatedInventory.getSize()) {
-
-                        // Check if the player is still viewing the expected inventory
-                        String title = viewer.getOpenInventory().title().toString();
-                        if (title.startsWith("Nation Vault:") && title.contains("Page " + (page + 1))) {
-                            // Update inventory contents, preserving navigation buttons
-                            plugin.getLogger().info("[DEBUG] Updating inventory for viewer " + viewer.getName() +
-                                    " for vault " + vaultId + " page " + page);
-                            updateInventoryContentsPreservingButtons(viewer.getOpenInventory().getTopInventory(),
-                                    updatedInventory, VaultService.NEXT_PAGE_SLOT, VaultService.PREV_PAGE_SLOT);
-                        } else {
-                            plugin.getLogger().info("[DEBUG] Viewer " + viewer.getName() +
-                                    " no longer viewing the right page. Current title: " + title);
-                        }
-                    } else {
-                        plugin.getLogger().info("[DEBUG] Viewer " + viewerUuid + " no longer valid for updates");
-                    }
-                }
-            } catch (Exception e) {
-                plugin.getLogger().log(Level.SEVERE, "[DEBUG] Error updating nation vault viewers: " + e.getMessage(),
-                        e);
-            }
-        });
+    /**
+     * Check whether anyone is viewing one side of a trade vault
+     * 
+     * @param tradeId  The ID of the trade
+     * @param isSender Whether to check the sender or receiver side
+     * @return true if the side has a viewer
+     */
+    public boolean hasTradeVaultViewers(String tradeId, boolean isSender) {
+        return tradeVaultViewers.containsKey(tradeId + ":" + (isSender ? "sender" : "receiver"));
     }
 
     /**
-     * Update the trade vault inventory for all viewers except the specified player
+     * Queue changed trade vault slots for all other viewers. Changes made within
+     * the same tick are merged per slot and flushed once, so edits of different
+     * slots by different players all reach every viewer.
      * 
-     * @param tradeId          The ID of the trade
-     * @param isSender         Whether to update the sender or receiver side
-     * @param updaterUuid      The UUID of the player who made the change (will be
-     *                         excluded from updates)
-     * @param updatedInventory The updated inventory contents
+     * @param tradeId     The ID of the trade
+     * @param isSender    Whether to update the sender or receiver side
+     * @param updaterUuid The UUID of the player who made the change (will be
+     *                    excluded from updates)
+     * @param slots       The changed slots and their new contents
      */
     public void updateTradeVaultViewers(String tradeId, boolean isSender, UUID updaterUuid,
-            Inventory updatedInventory) {
+            Map<Integer, ItemStack> slots) {
         String compoundKey = tradeId + ":" + (isSender ? "sender" : "receiver");
         Set<UUID> viewers = tradeVaultViewers.get(compoundKey);
-        if (viewers == null)
+        if (viewers == null || viewers.size() < 2)
             return;
 
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            for (UUID viewerUuid : viewers) {
-                // Don't update the inventory of the player who made the change
-                if (viewerUuid.equals(updaterUuid))
-                    continue;
+        PendingSync sync = pendingTradeSyncs.computeIfAbsent(compoundKey, k -> new PendingSync(tradeId, isSender));
+        if (sync.add(updaterUuid, slots)) {
+            updatesCoalesced.incrementAndGet();
+        }
 
-                Player viewer = Bukkit.getPlayer(viewerUuid);
-                if (viewer != null
-                        && viewer.getOpenInventory().getTopInventory().getSize() == updatedInventory.getSize()) {
-                    // Check if the player is still viewing the expected inventory
-                    String title = viewer.getOpenInventory().title().toString();
-                    String expectedTitle = (isSender ? "Trade Sending Vault" : "Trade Receiving Vault");
-
-                    if (title.startsWith(expectedTitle)) {
-                        // Update inventory contents, preserving special buttons
-                        updateInventoryContentsPreservingButtons(viewer.getOpenInventory().getTopInventory(),
-                                updatedInventory,
-                                com.tatayless.sovereignty.services.trade.TradeVaultHandler.CONFIRM_BUTTON_SLOT,
-                                com.tatayless.sovereignty.services.trade.TradeVaultHandler.INFO_BUTTON_SLOT);
-                    }
-                }
-            }
-        });
+        if (flushScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, this::flushPendingSyncs);
+        }
     }
 
     /**
-     * Updates inventory contents while preserving buttons at specific slots
+     * Flush all queued trade vault updates. Runs once per tick on the main thread.
      */
-    private void updateInventoryContentsPreservingButtons(Inventory targetInventory, Inventory sourceInventory,
-            int... preserveSlots) {
-        try {
-            int updatedItems = 0;
-            int preservedButtons = 0;
-            int size = Math.min(targetInventory.getSize(), sourceInventory.getSize()); // Use the smaller size
-
-            plugin.getLogger()
-                    .info("[DEBUG] Updating viewer inventory (" + targetInventory.getType() + " size "
-                            + targetInventory.getSize() + ") from source (" + sourceInventory.getType() + " size "
-                            + sourceInventory.getSize() + ")");
-
-            for (int i = 0; i < size; i++) {
-                boolean isPreservedSlot = false;
-                for (int slot : preserveSlots) {
-                    if (i == slot) {
-                        isPreservedSlot = true;
-                        break;
-                    }
-                }
+    private void flushPendingSyncs() {
+        flushScheduled.set(false);
+
+        for (String compoundKey : new ArrayList<>(pendingTradeSyncs.keySet())) {
+            PendingSync sync = pendingTradeSyncs.remove(compoundKey);
+            Set<UUID> viewers = tradeVaultViewers.get(compoundKey);
+            if (sync == null || viewers == null)
+                continue;
 
-                if (isPreservedSlot) {
-                    // Optionally verify the item in the target slot *is* a button before preserving
-                    // This prevents preserving non-button items if the slot index is wrong
-                    ItemStack targetItem = targetInventory.getItem(i);
-                    // We assume the target already has the correct button, so we don't touch it.
-                    // If we wanted to ensure the *correct* button is there, we'd need access to
-                    // VaultService.createNavigationItem
-                    if (targetItem != null) { // Check if something is actually there to preserve
-                        preservedButtons++;
-                        plugin.getLogger().log(Level.INFO,
-                                "[DEBUG] Preserving item in slot " + i + ": " + targetItem.getType());
-                    } else {
-                        plugin.getLogger().log(Level.INFO,
-                                "[DEBUG] Slot " + i + " marked for preservation, but is empty in target inventory.");
-                        // If the source has the button, maybe place it? Requires VaultService access.
-                        // For now, just leave it empty if it was empty.
-                    }
-                } else {
-                    // Update non-preserved slots
-                    ItemStack sourceItem = sourceInventory.getItem(i);
-                    targetInventory.setItem(i, sourceItem != null ? sourceItem.clone() : null); // Clone for safety
-                    if (sourceItem != null) {
-                        updatedItems++;
-                    }
+            for (UUID viewerUuid : viewers) {
+                Player viewer = Bukkit.getPlayer(viewerUuid);
+                if (viewer == null)
+                    continue;
+
+                // Match the viewer by holder identity rather than by inventory title
+                Inventory target = viewer.getOpenInventory().getTopInventory();
+                if (!(target.getHolder() instanceof TradeVaultInventoryHolder))
+                    continue;
+
+                TradeVaultInventoryHolder holder = (TradeVaultInventoryHolder) target.getHolder();
+                if (!holder.getTradeId().equals(sync.tradeId) || holder.isSender() != sync.sender)
+                    continue;
+
+                // Don't send a player back the slots they changed themselves
+                int changed = holder.applyChanges(sync.slotsFor(viewerUuid));
+                if (changed > 0) {
+                    updatesSent.incrementAndGet();
+                    slotsSent.addAndGet(changed);
                 }
             }
-
-            plugin.getLogger().info("[DEBUG] Viewer inventory update complete: " + updatedItems +
-                    " items updated, " + preservedButtons + " slots preserved.");
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "[DEBUG] Error updating viewer inventory contents: " + e.getMessage(),
-                    e);
         }
+
+        plugin.getDebugLogger().sampled(DebugLogger.Subsystem.TRADE, "trade-vault-sync",
+                () -> "Trade vault viewer sync: " + getUpdatesSent() + " viewer updates with " + getSlotsSent()
+                        + " slots sent, " + getUpdatesCoalesced() + " updates merged into a pending tick");
+    }
+
+    public long getUpdatesCoalesced() {
+        return updatesCoalesced.get();
+    }
+
+    public long getUpdatesSent() {
+        return updatesSent.get();
+    }
+
+    public long getSlotsSent() {
+        return slotsSent.get();
     }
 
     /**
@@ -255,19 +207,68 @@ public class VaultUpdateManager {
      */
     public void unregisterPlayerFromAllVaults(UUID playerUuid) {
         // Remove from nation vault viewers
-        for (Map.Entry<String, Set<UUID>> entry : nationVaultViewers.entrySet()) {
-            entry.getValue().remove(playerUuid);
-            if (entry.getValue().isEmpty()) {
-                nationVaultViewers.remove(entry.getKey());
-            }
+        for (String compoundKey : nationVaultViewers.keySet()) {
+            nationVaultViewers.computeIfPresent(compoundKey, (k, viewers) -> {
+                viewers.remove(playerUuid);
+                return viewers.isEmpty() ? null : viewers;
+            });
         }
 
         // Remove from trade vault viewers
-        for (Map.Entry<String, Set<UUID>> entry : tradeVaultViewers.entrySet()) {
-            entry.getValue().remove(playerUuid);
-            if (entry.getValue().isEmpty()) {
-                tradeVaultViewers.remove(entry.getKey());
+        for (String compoundKey : tradeVaultViewers.keySet()) {
+            tradeVaultViewers.computeIfPresent(compoundKey, (k, viewers) -> {
+                viewers.remove(playerUuid);
+                return viewers.isEmpty() ? null : viewers;
+            });
+        }
+    }
+
+    /**
+     * Trade vault slots changed within one tick, waiting to be flushed to the
+     * other viewers. A slot changed twice keeps the latest contents.
+     */
+    private static class PendingSync {
+        private final String tradeId;
+        private final boolean sender;
+        private final Map<Integer, SlotChange> slots = new HashMap<>();
+
+        private PendingSync(String tradeId, boolean sender) {
+            this.tradeId = tradeId;
+            this.sender = sender;
+        }
+
+        /**
+         * @return true if changes were already pending
+         */
+        private synchronized boolean add(UUID updaterUuid, Map<Integer, ItemStack> changes) {
+            boolean merged = !slots.isEmpty();
+            for (Map.Entry<Integer, ItemStack> change : changes.entrySet()) {
+                slots.put(change.getKey(), new SlotChange(updaterUuid, change.getValue()));
             }
+            return merged;
+        }
+
+        /**
+         * The pending slots a viewer still has to receive
+         */
+        private synchronized Map<Integer, ItemStack> slotsFor(UUID viewerUuid) {
+            Map<Integer, ItemStack> result = new HashMap<>();
+            for (Map.Entry<Integer, SlotChange> slot : slots.entrySet()) {
+                if (!slot.getValue().updaterUuid.equals(viewerUuid)) {
+                    result.put(slot.getKey(), slot.getValue().item);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class SlotChange {
+        private final UUID updaterUuid;
+        private final ItemStack item;
+
+        private SlotChange(UUID updaterUuid, ItemStack item) {
+            this.updaterUuid = updaterUuid;
+            this.item = item;
         }
     }
 }
@@ -2,38 +2,65 @@ package com.tatayless.sovereignty.services;
 
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.events.TerritoryEvent;
+import com.tatayless.sovereignty.events.TerritoryEventBus;
 import com.tatayless.sovereignty.models.ChunkLocation;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.SovereigntyPlayer;
+import com.tatayless.sovereignty.services.MessageDispatcher.Recipients;
+import com.tatayless.sovereignty.services.war.AnnexationEngine;
+import com.tatayless.sovereignty.services.war.TerritorySnapshot;
+import com.tatayless.sovereignty.services.war.WarBossBars;
+import com.tatayless.sovereignty.services.war.WarEventLog;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.jooq.impl.DSL;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WarService {
     private final Sovereignty plugin;
     private final NationService nationService;
     private final PlayerService playerService;
-    private final Map<String, War> activeWars = new HashMap<>();
-    private final Map<ChunkLocation, String> chunkOwners = new HashMap<>();
+    private final Map<String, War> activeWars = new ConcurrentHashMap<>();
+    // Nation ID -> opponent nation ID -> war, indexed under both nations
+    private final Map<String, Map<String, War>> warsByNation = new ConcurrentHashMap<>();
+
+    // Kills not yet written to the database, flushed every few seconds
+    private static final String UPDATE_KILLS_SQL = "UPDATE wars SET attacker_kills = ?, defender_kills = ? WHERE id = ?";
+    private static final String UPDATE_LIVES_SQL = "UPDATE players SET soldier_lives = ? WHERE id = ?";
+    private final Map<String, War> dirtyWars = new ConcurrentHashMap<>();
+    private final Map<String, SovereigntyPlayer> dirtySoldiers = new ConcurrentHashMap<>();
+    private BukkitTask killFlushTask;
+    private final TerritoryEventBus eventBus;
+    private final MessageDispatcher messageDispatcher;
+    private final WarBossBars bossBars;
+    private final WarEventLog eventLog;
 
     public WarService(Sovereignty plugin, NationService nationService, PlayerService playerService) {
         this.plugin = plugin;
         this.nationService = nationService;
         this.playerService = playerService;
+        this.eventBus = plugin.getServiceManager().getEventBus();
+        this.messageDispatcher = plugin.getServiceManager().getMessageDispatcher();
+        this.bossBars = new WarBossBars(plugin, this);
+        this.eventLog = new WarEventLog(plugin);
     }
 
-    public void loadWars() {
-        CompletableFuture.runAsync(() -> {
+    public CompletableFuture<Void> loadWars() {
+        return CompletableFuture.runAsync(() -> {
             try (Connection conn = plugin.getDatabaseManager().getConnection()) {
                 DSLContext context = plugin.getDatabaseManager().createContextSafe(conn);
                 Result<Record> results = context.select().from("wars")
@@ -56,7 +83,7 @@ public class WarService {
                         war.setAttackerKills(attackerKills);
                         war.setDefenderKills(defenderKills);
 
-                        activeWars.put(id, war);
+                        registerWar(war);
 
                         // Update nations with war reference
                         attackerNation.addWar(id);
@@ -115,7 +142,8 @@ public class WarService {
                     nationService.saveNation(attackerNation);
                     nationService.saveNation(defenderNation);
 
-                    activeWars.put(warId, war);
+                    registerWar(war);
+                    eventBus.publish(new TerritoryEvent.WarStarted(warId, attackerNationId, defenderNationId));
 
                     // Notify players
                     notifyNationPlayers(attackerNationId,
@@ -141,19 +169,26 @@ public class WarService {
         Nation attackerNation = nationService.getNation(war.getAttackerNationId());
         Nation defenderNation = nationService.getNation(war.getDefenderNationId());
         Nation winner = nationService.getNation(winnerId);
-        Nation loser = winnerId.equals(attackerNation.getId()) ? defenderNation : attackerNation;
 
         if (attackerNation == null || defenderNation == null || winner == null) {
             return CompletableFuture.completedFuture(false);
         }
+        Nation loser = winnerId.equals(attackerNation.getId()) ? defenderNation : attackerNation;
+
+        // Copy both territories before leaving the caller's thread
+        TerritorySnapshot loserClaims = TerritorySnapshot.ofClaims(loser);
+        TerritorySnapshot winnerTerritory = TerritorySnapshot.ofTerritory(winner);
 
         return CompletableFuture.supplyAsync(() -> {
             try (Connection conn = plugin.getDatabaseManager().getConnection()) {
                 DSLContext context = plugin.getDatabaseManager().createContextSafe(conn);
                 // Update war record
+                dirtyWars.remove(warId);
                 context.update(DSL.table("wars"))
                         .set(DSL.field("status"), "ended")
                         .set(DSL.field("winner_id"), winnerId)
+                        .set(DSL.field("attacker_kills"), war.getAttackerKills())
+                        .set(DSL.field("defender_kills"), war.getDefenderKills())
                         .set(DSL.field("ended_at"), new Timestamp(System.currentTimeMillis()))
                         .where(DSL.field("id").eq(warId))
                         .execute();
@@ -170,12 +205,15 @@ public class WarService {
                 }
 
                 // Annex chunks from the loser
-                annexChunks(winner, loser);
+                annexChunks(warId, winner, loser, loserClaims, winnerTerritory);
 
                 nationService.saveNation(attackerNation);
                 nationService.saveNation(defenderNation);
 
-                activeWars.remove(warId);
+                unregisterWar(war);
+                eventLog.recordEnd(warId, winnerId, loser.getId());
+                eventBus.publish(new TerritoryEvent.WarEnded(warId, war.getAttackerNationId(),
+                        war.getDefenderNationId(), winnerId));
 
                 // Notify players
                 String winnerName = winner.getName();
@@ -185,9 +223,7 @@ public class WarService {
                         "defender", defenderNation.getName(),
                         "winner", winnerName);
 
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    player.sendMessage(message);
-                }
+                messageDispatcher.send(Recipients.all(), message);
 
                 return true;
             } catch (SQLException e) {
@@ -201,159 +237,48 @@ public class WarService {
      * Annexes a portion of the loser's chunks to the winner's territory
      * The annexed chunks will form a contiguous region where possible
      * 
-     * @param winner The nation that won the war
-     * @param loser  The nation that lost the war
+     * @param warId          The war that was won
+     * @param winner         The nation that won the war
+     * @param loser          The nation that lost the war
+     * @param loserClaims    The loser's claims when the war ended
+     * @param winnerTerritory The winner's territory when the war ended
      */
-    private void annexChunks(Nation winner, Nation loser) {
-        Set<ChunkLocation> loserChunks = new HashSet<>(loser.getClaimedChunks());
-        if (loserChunks.isEmpty()) {
+    private void annexChunks(String warId, Nation winner, Nation loser, TerritorySnapshot loserClaims,
+            TerritorySnapshot winnerTerritory) {
+        if (loserClaims.isEmpty()) {
             return; // No chunks to annex
         }
 
         // Calculate how many chunks to annex
-        int annexCount = Math.max(1, (int) (loserChunks.size() * plugin.getConfigManager().getAnnexationPercentage()));
-        annexCount = Math.min(annexCount, loserChunks.size()); // Don't try to annex more chunks than available
-
-        // Find a starting chunk that is adjacent to winner territory if possible
-        ChunkLocation startingChunk = findStartingChunk(winner, loserChunks);
-        if (startingChunk == null) {
-            // If no adjacent chunk found, just pick the first one
-            startingChunk = loserChunks.iterator().next();
-        }
+        int annexCount = Math.max(1, (int) (loserClaims.size() * plugin.getConfigManager().getAnnexationPercentage()));
+        annexCount = Math.min(annexCount, loserClaims.size()); // Don't try to annex more chunks than available
 
-        // Use BFS to find contiguous chunks to annex
-        Set<ChunkLocation> chunksToAnnex = findContiguousChunks(startingChunk, loserChunks, annexCount);
+        List<ChunkLocation> chunksToAnnex = AnnexationEngine.select(loserClaims, winnerTerritory, annexCount);
 
         // Annex the selected chunks
         int annexed = 0;
         for (ChunkLocation chunk : chunksToAnnex) {
-            // Remove chunk from loser's claimed chunks
-            loser.removeClaimedChunk(chunk);
-
-            // Add to winner's annexed chunks
-            winner.addAnnexedChunk(chunk);
-
-            // Update chunk owner in the chunk map
-            chunkOwners.put(chunk, winner.getId());
-
+            // Move the chunk from the loser's claims to the winner's annexed chunks
+            nationService.transferChunk(chunk, loser, winner);
             annexed++;
         }
 
-        // Notify players about annexation
+        // Record the annexation and notify players
         if (annexed > 0) {
+            eventLog.recordAnnexation(warId, winner.getId(), loser.getId(), annexed);
+
             Component message = plugin.getLocalizationManager().getComponent(
                     "war.chunks-annexed",
                     "winner", winner.getName(),
                     "loser", loser.getName(),
                     "count", String.valueOf(annexed));
 
-            notifyNationPlayers(winner.getId(), message);
-            notifyNationPlayers(loser.getId(), message);
+            messageDispatcher.send(Recipients.nations(winner.getId(), loser.getId()), message);
 
             plugin.getLogger().info(annexed + " chunks annexed from " + loser.getName() + " to " + winner.getName());
         }
     }
 
-    /**
-     * Find a good starting chunk for annexation that borders the winner's territory
-     * 
-     * @param winner      The winning nation
-     * @param loserChunks The set of chunks owned by the loser
-     * @return A chunk location to start annexation from, or null if none found
-     */
-    private ChunkLocation findStartingChunk(Nation winner, Set<ChunkLocation> loserChunks) {
-        // Combine winner's claimed and annexed chunks
-        Set<ChunkLocation> winnerTerritory = new HashSet<>();
-        winnerTerritory.addAll(winner.getClaimedChunks());
-        winnerTerritory.addAll(winner.getAnnexedChunks());
-
-        // Look for a loser chunk that is adjacent to winner territory
-        for (ChunkLocation loserChunk : loserChunks) {
-            List<ChunkLocation> adjacentChunks = getAdjacentChunks(loserChunk);
-            for (ChunkLocation adjacentChunk : adjacentChunks) {
-                if (winnerTerritory.contains(adjacentChunk)) {
-                    return loserChunk; // Found a chunk that borders winner territory
-                }
-            }
-        }
-
-        return null; // No good starting point found
-    }
-
-    /**
-     * Find a contiguous set of chunks to annex
-     * 
-     * @param startingChunk   The chunk to start from
-     * @param availableChunks All available chunks that can be annexed
-     * @param maxChunks       Maximum number of chunks to annex
-     * @return A set of contiguous chunks to annex
-     */
-    private Set<ChunkLocation> findContiguousChunks(ChunkLocation startingChunk, Set<ChunkLocation> availableChunks,
-            int maxChunks) {
-        Set<ChunkLocation> chunksToAnnex = new HashSet<>();
-        Queue<ChunkLocation> queue = new LinkedList<>();
-
-        // Start with the initial chunk
-        queue.add(startingChunk);
-        chunksToAnnex.add(startingChunk);
-
-        while (!queue.isEmpty() && chunksToAnnex.size() < maxChunks) {
-            ChunkLocation current = queue.poll();
-
-            // Get all adjacent chunks
-            List<ChunkLocation> adjacentChunks = getAdjacentChunks(current);
-
-            // Add all valid adjacent chunks to the queue
-            for (ChunkLocation adjacent : adjacentChunks) {
-                if (availableChunks.contains(adjacent) && !chunksToAnnex.contains(adjacent)) {
-                    queue.add(adjacent);
-                    chunksToAnnex.add(adjacent);
-
-                    // Stop if we've reached the target number of chunks
-                    if (chunksToAnnex.size() >= maxChunks) {
-                        break;
-                    }
-                }
-            }
-        }
-
-        // If we couldn't get enough contiguous chunks, add more non-contiguous ones to
-        // reach the target
-        if (chunksToAnnex.size() < maxChunks) {
-            for (ChunkLocation chunk : availableChunks) {
-                if (!chunksToAnnex.contains(chunk)) {
-                    chunksToAnnex.add(chunk);
-                    if (chunksToAnnex.size() >= maxChunks) {
-                        break;
-                    }
-                }
-            }
-        }
-
-        return chunksToAnnex;
-    }
-
-    /**
-     * Get all chunks adjacent to the given chunk
-     * 
-     * @param chunk The chunk to find adjacents for
-     * @return List of adjacent chunk locations
-     */
-    private List<ChunkLocation> getAdjacentChunks(ChunkLocation chunk) {
-        List<ChunkLocation> adjacentChunks = new ArrayList<>(4);
-
-        // North
-        adjacentChunks.add(new ChunkLocation(chunk.getX(), chunk.getZ() - 1, chunk.getWorldName()));
-        // South
-        adjacentChunks.add(new ChunkLocation(chunk.getX(), chunk.getZ() + 1, chunk.getWorldName()));
-        // East
-        adjacentChunks.add(new ChunkLocation(chunk.getX() + 1, chunk.getZ(), chunk.getWorldName()));
-        // West
-        adjacentChunks.add(new ChunkLocation(chunk.getX() - 1, chunk.getZ(), chunk.getWorldName()));
-
-        return adjacentChunks;
-    }
-
     public CompletableFuture<Boolean> cancelWar(String warId) {
         War war = activeWars.get(warId);
         if (war == null) {
@@ -371,8 +296,11 @@ public class WarService {
             try (Connection conn = plugin.getDatabaseManager().getConnection()) {
                 DSLContext context = plugin.getDatabaseManager().createContextSafe(conn);
                 // Update war record
+                dirtyWars.remove(warId);
                 context.update(DSL.table("wars"))
                         .set(DSL.field("status"), "cancelled")
+                        .set(DSL.field("attacker_kills"), war.getAttackerKills())
+                        .set(DSL.field("defender_kills"), war.getDefenderKills())
                         .set(DSL.field("ended_at"), new Timestamp(System.currentTimeMillis()))
                         .where(DSL.field("id").eq(warId))
                         .execute();
@@ -384,25 +312,15 @@ public class WarService {
                 nationService.saveNation(attackerNation);
                 nationService.saveNation(defenderNation);
 
-                activeWars.remove(warId);
+                unregisterWar(war);
+                eventLog.recordEnd(warId, null, null);
+                eventBus.publish(new TerritoryEvent.WarEnded(warId, war.getAttackerNationId(),
+                        war.getDefenderNationId(), null));
 
                 // Notify players
                 Component message = plugin.getLocalizationManager().getComponent("war.cancelled");
 
-                // Update both notify calls to handle the Component
-                for (SovereigntyPlayer player : playerService.getPlayersByNation(attackerNation.getId())) {
-                    Player bukkitPlayer = Bukkit.getPlayer(UUID.fromString(player.getId()));
-                    if (bukkitPlayer != null && bukkitPlayer.isOnline()) {
-                        bukkitPlayer.sendMessage(message);
-                    }
-                }
-
-                for (SovereigntyPlayer player : playerService.getPlayersByNation(defenderNation.getId())) {
-                    Player bukkitPlayer = Bukkit.getPlayer(UUID.fromString(player.getId()));
-                    if (bukkitPlayer != null && bukkitPlayer.isOnline()) {
-                        bukkitPlayer.sendMessage(message);
-                    }
-                }
+                messageDispatcher.send(Recipients.nations(attackerNation.getId(), defenderNation.getId()), message);
 
                 return true;
             } catch (SQLException e) {
@@ -412,6 +330,10 @@ public class WarService {
         });
     }
 
+    /**
+     * Records a kill between two nations at war. Kill counts and soldier lives
+     * are only updated in memory here and written by the next kill flush.
+     */
     public CompletableFuture<Boolean> recordKill(String playerId, String victimId) {
         SovereigntyPlayer player = playerService.getPlayer(playerId);
         SovereigntyPlayer victim = playerService.getPlayer(victimId);
@@ -430,98 +352,193 @@ public class WarService {
 
         // Update kill count and check for win condition
         boolean isAttackerKill = player.getNationId().equals(war.getAttackerNationId());
-
-        if (isAttackerKill) {
-            war.incrementAttackerKills();
-        } else {
-            war.incrementDefenderKills();
+        int kills = isAttackerKill ? war.incrementAttackerKills() : war.incrementDefenderKills();
+        dirtyWars.put(war.getId(), war);
+        bossBars.markChanged(war.getId());
+
+        // Reduce victim's soldier lives if they're a soldier
+        if (victim.isSoldier()) {
+            victim.setSoldierLives(victim.getSoldierLives() - 1);
+            dirtySoldiers.put(victim.getId(), victim);
         }
 
         // Handle special assassination case
         boolean isAssassination = plugin.getConfigManager().isAssassinationModeEnabled() && victim.isPresident();
+        eventLog.recordKill(war.getId(), player.getId(), player.getNationId(), victim.getId(), victim.getNationId(),
+                isAssassination);
 
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-                DSLContext context = plugin.getDatabaseManager().createContextSafe(conn);
-                // Update war record
-                context.update(DSL.table("wars"))
-                        .set(
-                                DSL.field(isAttackerKill ? "attacker_kills" : "defender_kills"),
-                                isAttackerKill ? war.getAttackerKills() : war.getDefenderKills())
-                        .where(DSL.field("id").eq(war.getId()))
-                        .execute();
+        // Check win conditions
+        String winnerId = null;
 
-                // Reduce victim's soldier lives if they're a soldier
-                if (victim.isSoldier()) {
-                    victim.setSoldierLives(victim.getSoldierLives() - 1);
-                    playerService.updatePlayer(victim);
-                }
+        if (isAssassination) {
+            // President assassination = instant win
+            winnerId = player.getNationId();
 
-                // Check win conditions
-                String winnerId = null;
-
-                if (isAssassination) {
-                    // President assassination = instant win
-                    winnerId = player.getNationId();
-
-                    // Broadcast assassination message
-                    String nationName = nationService.getNation(victim.getNationId()).getName();
-                    Component message = plugin.getLocalizationManager().getComponent(
-                            "war.president-killed",
-                            "nation", nationName);
-                    Bukkit.getServer().broadcast(message);
-                } else if (isAttackerKill && war.getAttackerKills() >= war.getRequiredKills()) {
-                    winnerId = war.getAttackerNationId();
-                } else if (!isAttackerKill && war.getDefenderKills() >= war.getRequiredKills()) {
-                    winnerId = war.getDefenderNationId();
-                }
+            // Broadcast assassination message
+            String nationName = nationService.getNation(victim.getNationId()).getName();
+            Component message = plugin.getLocalizationManager().getComponent(
+                    "war.president-killed",
+                    "nation", nationName);
+            messageDispatcher.send(Recipients.all(), message);
+        } else if (kills >= war.getRequiredKills()) {
+            winnerId = player.getNationId();
+        }
 
-                // Broadcast kill
-                @SuppressWarnings("unused")
-                Nation playerNation = nationService.getNation(player.getNationId());
-                Component killMessage = plugin.getLocalizationManager().getComponent(
-                        "war.player-killed",
-                        "player", victim.getName(),
-                        "nation", nationService.getNation(victim.getNationId()).getName(),
-                        "current",
-                        isAttackerKill ? String.valueOf(war.getAttackerKills())
-                                : String.valueOf(war.getDefenderKills()),
-                        "required", String.valueOf(war.getRequiredKills()));
-
-                notifyNationPlayers(player.getNationId(), killMessage);
-                notifyNationPlayers(victim.getNationId(), killMessage);
-
-                // End war if won
-                if (winnerId != null) {
-                    endWar(war.getId(), winnerId);
-                }
+        // Broadcast kill
+        Component killMessage = plugin.getLocalizationManager().getComponent(
+                "war.player-killed",
+                "player", victim.getName(),
+                "nation", nationService.getNation(victim.getNationId()).getName(),
+                "current", String.valueOf(kills),
+                "required", String.valueOf(war.getRequiredKills()));
+
+        messageDispatcher.send(Recipients.nations(player.getNationId(), victim.getNationId()), killMessage);
 
+        // End war if won, only the first winning kill ends it
+        if (winnerId != null && war.markEnding()) {
+            endWar(war.getId(), winnerId);
+        }
+
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Starts the task that writes buffered kill counts and soldier lives
+     */
+    public void startKillFlushTask() {
+        if (killFlushTask != null) {
+            return;
+        }
+        long intervalTicks = plugin.getConfigManager().getWarKillFlushSeconds() * 20L;
+        killFlushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flushKills,
+                intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Stops the kill flush task and writes whatever is still buffered
+     */
+    public void shutdown() {
+        bossBars.stop();
+        eventLog.stop();
+        if (killFlushTask != null) {
+            killFlushTask.cancel();
+            killFlushTask = null;
+        }
+        flushKills();
+    }
+
+    /**
+     * Writes the kill counts of every war with new kills and the lives of
+     * every soldier who died since the last flush, as two JDBC batches.
+     * Anything that fails to save is retried with the next flush.
+     */
+    private synchronized void flushKills() {
+        if (dirtyWars.isEmpty() && dirtySoldiers.isEmpty()) {
+            return;
+        }
+
+        List<War> wars = drain(dirtyWars);
+        List<SovereigntyPlayer> soldiers = drain(dirtySoldiers);
+
+        Boolean written = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            @Override
+            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                try (PreparedStatement statement = conn.prepareStatement(UPDATE_KILLS_SQL)) {
+                    for (War war : wars) {
+                        statement.setInt(1, war.getAttackerKills());
+                        statement.setInt(2, war.getDefenderKills());
+                        statement.setString(3, war.getId());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                try (PreparedStatement statement = conn.prepareStatement(UPDATE_LIVES_SQL)) {
+                    for (SovereigntyPlayer soldier : soldiers) {
+                        statement.setInt(1, soldier.getSoldierLives());
+                        statement.setString(2, soldier.getId());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
                 return true;
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to record kill: " + e.getMessage());
-                return false;
             }
         });
-    }
 
-    public boolean isAtWar(String nationId1, String nationId2) {
-        for (War war : activeWars.values()) {
-            if ((war.getAttackerNationId().equals(nationId1) && war.getDefenderNationId().equals(nationId2)) ||
-                    (war.getAttackerNationId().equals(nationId2) && war.getDefenderNationId().equals(nationId1))) {
-                return true;
+        if (written == null || !written) {
+            plugin.getLogger().warning("Failed to save kills for " + wars.size() + " wars and "
+                    + soldiers.size() + " soldiers, they will be retried");
+            for (War war : wars) {
+                dirtyWars.putIfAbsent(war.getId(), war);
             }
+            for (SovereigntyPlayer soldier : soldiers) {
+                dirtySoldiers.putIfAbsent(soldier.getId(), soldier);
+            }
+            return;
         }
-        return false;
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.WAR,
+                () -> "Saved kills for " + wars.size() + " wars and " + soldiers.size() + " soldiers");
     }
 
-    public War getWarBetweenNations(String nationId1, String nationId2) {
-        for (War war : activeWars.values()) {
-            if ((war.getAttackerNationId().equals(nationId1) && war.getDefenderNationId().equals(nationId2)) ||
-                    (war.getAttackerNationId().equals(nationId2) && war.getDefenderNationId().equals(nationId1))) {
-                return war;
+    private static <T> List<T> drain(Map<String, T> dirty) {
+        List<T> drained = new ArrayList<>();
+        for (String id : new ArrayList<>(dirty.keySet())) {
+            T value = dirty.remove(id);
+            if (value != null) {
+                drained.add(value);
             }
         }
-        return null;
+        return drained;
+    }
+
+    /**
+     * Adds a war to the active wars and indexes it under both nations
+     */
+    private void registerWar(War war) {
+        activeWars.put(war.getId(), war);
+        indexWar(war.getAttackerNationId(), war.getDefenderNationId(), war);
+        indexWar(war.getDefenderNationId(), war.getAttackerNationId(), war);
+    }
+
+    private void unregisterWar(War war) {
+        activeWars.remove(war.getId());
+        unindexWar(war.getAttackerNationId(), war.getDefenderNationId(), war);
+        unindexWar(war.getDefenderNationId(), war.getAttackerNationId(), war);
+    }
+
+    private void indexWar(String nationId, String opponentId, War war) {
+        warsByNation.compute(nationId, (k, wars) -> {
+            Map<String, War> updated = wars != null ? wars : new ConcurrentHashMap<>();
+            updated.put(opponentId, war);
+            return updated;
+        });
+    }
+
+    private void unindexWar(String nationId, String opponentId, War war) {
+        warsByNation.computeIfPresent(nationId, (k, wars) -> {
+            wars.remove(opponentId, war);
+            return wars.isEmpty() ? null : wars;
+        });
+    }
+
+    public boolean isAtWar(String nationId1, String nationId2) {
+        return getWarBetweenNations(nationId1, nationId2) != null;
+    }
+
+    public War getWarBetweenNations(String nationId1, String nationId2) {
+        Map<String, War> wars = warsByNation.get(nationId1);
+        return wars != null ? wars.get(nationId2) : null;
+    }
+
+    public War getWar(String warId) {
+        return activeWars.get(warId);
+    }
+
+    public WarBossBars getBossBars() {
+        return bossBars;
+    }
+
+    public WarEventLog getEventLog() {
+        return eventLog;
     }
 
     public List<War> getActiveWars() {
@@ -529,39 +546,27 @@ public class WarService {
     }
 
     public List<War> getNationWars(String nationId) {
-        List<War> wars = new ArrayList<>();
-        for (War war : activeWars.values()) {
-            if (war.getAttackerNationId().equals(nationId) || war.getDefenderNationId().equals(nationId)) {
-                wars.add(war);
-            }
-        }
-        return wars;
+        Map<String, War> wars = warsByNation.get(nationId);
+        return wars != null ? new ArrayList<>(wars.values()) : new ArrayList<>();
     }
 
     private void notifyNationPlayers(String nationId, Component message) {
-        List<SovereigntyPlayer> players = playerService.getPlayersByNation(nationId);
-        for (SovereigntyPlayer player : players) {
-            Player bukkitPlayer = Bukkit.getPlayer(UUID.fromString(player.getId()));
-            if (bukkitPlayer != null && bukkitPlayer.isOnline()) {
-                bukkitPlayer.sendMessage(message);
-            }
-        }
+        messageDispatcher.send(Recipients.nations(nationId), message);
     }
 
     public static class War {
         private String id;
         private String attackerNationId;
         private String defenderNationId;
-        private int attackerKills;
-        private int defenderKills;
+        private final AtomicInteger attackerKills = new AtomicInteger();
+        private final AtomicInteger defenderKills = new AtomicInteger();
+        private final AtomicBoolean ending = new AtomicBoolean();
         private int requiredKills;
 
         public War(String id, String attackerNationId, String defenderNationId, int requiredKills) {
             this.id = id;
             this.attackerNationId = attackerNationId;
             this.defenderNationId = defenderNationId;
-            this.attackerKills = 0;
-            this.defenderKills = 0;
             this.requiredKills = requiredKills;
         }
 
@@ -578,27 +583,42 @@ public class WarService {
         }
 
         public int getAttackerKills() {
-            return attackerKills;
+            return attackerKills.get();
         }
 
         public void setAttackerKills(int attackerKills) {
-            this.attackerKills = attackerKills;
+            this.attackerKills.set(attackerKills);
         }
 
-        public void incrementAttackerKills() {
-            this.attackerKills++;
+        /**
+         * @return The attacker's kills including this one
+         */
+        public int incrementAttackerKills() {
+            return attackerKills.incrementAndGet();
         }
 
         public int getDefenderKills() {
-            return defenderKills;
+            return defenderKills.get();
         }
 
         public void setDefenderKills(int defenderKills) {
-            this.defenderKills = defenderKills;
+            this.defenderKills.set(defenderKills);
+        }
+
+        /**
+         * @return The defender's kills including this one
+         */
+        public int incrementDefenderKills() {
+            return defenderKills.incrementAndGet();
         }
 
-        public void incrementDefenderKills() {
-            this.defenderKills++;
+        /**
+         * Claims the right to end this war
+         *
+         * @return true for the first caller only
+         */
+        public boolean markEnding() {
+            return ending.compareAndSet(false, true);
         }
 
         public int getRequiredKills() {
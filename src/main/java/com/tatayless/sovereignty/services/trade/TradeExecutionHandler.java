@@ -1,6 +1,5 @@
 package com.tatayless.sovereignty.services.trade;
 
-import com.google.gson.reflect.TypeToken;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
 import com.tatayless.sovereignty.models.Nation;
@@ -8,17 +7,17 @@ import com.tatayless.sovereignty.models.Trade;
 import com.tatayless.sovereignty.services.NationService;
 import com.tatayless.sovereignty.services.TradeService;
 import com.tatayless.sovereignty.services.VaultService;
+import org.bukkit.Bukkit;
 import org.bukkit.inventory.ItemStack;
 import org.jooq.DSLContext;
-import org.jooq.Record;
 import org.jooq.impl.DSL;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TradeExecutionHandler {
     private final TradeService tradeService;
@@ -34,169 +33,295 @@ public class TradeExecutionHandler {
         this.nationService = nationService;
     }
 
+    /**
+     * Executes a batch of due trades.
+     * Trades are grouped by receiving nation so each receiver's vault is only
+     * written once per batch. Every group runs as one transaction on a shared
+     * connection, with a savepoint per trade so a single failing trade doesn't
+     * undo the other deliveries. Nothing inside the database lock waits on
+     * another database task.
+     * The sending side of every trade is claimed on the main thread first, so
+     * nobody can edit it between reading what it sends and emptying it. Trades
+     * whose sending side is open are skipped and retried by the scheduler.
+     *
+     * @param trades The trades to execute
+     */
+    public void executeTrades(List<Trade> trades) {
+        TradeVaultHandler vaultHandler = tradeService.getVaultHandler();
+        TradeVaultCache vaultCache = vaultHandler.getVaultCache();
+
+        // Load trade vaults that aren't cached yet, so they can be claimed without touching the database
+        for (Trade trade : trades) {
+            try {
+                vaultCache.getManifest(trade.getId()).get();
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error loading trade vault for trade " + trade.getId() + ": "
+                        + e.getMessage());
+            }
+        }
+
+        Map<String, TradeVaultCache.Manifest> manifests;
+        try {
+            manifests = Bukkit.getScheduler().callSyncMethod(plugin, () -> vaultHandler.claimSendingVaults(trades))
+                    .get();
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error claiming trade vaults for " + trades.size() + " trades: "
+                    + e.getMessage());
+            return;
+        }
+        if (manifests.isEmpty()) {
+            return;
+        }
+
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        try {
+            executeClaimed(trades, manifests, delivered);
+        } finally {
+            Bukkit.getScheduler().runTask(plugin,
+                    () -> vaultHandler.releaseSendingVaults(manifests.keySet(), delivered));
+        }
+    }
+
     public void executeTrade(Trade trade) {
+        executeTrades(Collections.singletonList(trade));
+    }
+
+    private void executeClaimed(List<Trade> trades, Map<String, TradeVaultCache.Manifest> manifests,
+            Set<String> delivered) {
+        Map<String, List<Trade>> byReceiver = new LinkedHashMap<>();
+        for (Trade trade : trades) {
+            if (manifests.containsKey(trade.getId())) {
+                byReceiver.computeIfAbsent(trade.getReceivingNationId(), k -> new ArrayList<>()).add(trade);
+            }
+        }
+
+        // Pending trade vault edits have to be on disk before the items are moved
+        tradeService.getVaultHandler().getVaultCache().flush();
+
+        // Load receiving vaults up front, outside the database lock
+        Map<String, VaultService.NationVault> receiverVaults = new HashMap<>();
+        for (String receiverId : byReceiver.keySet()) {
+            if (nationService.getNation(receiverId) == null) {
+                continue;
+            }
+
+            VaultService.NationVault vault = vaultService.getLoadedVault(receiverId);
+            if (vault == null) {
+                try {
+                    vault = vaultService.getOrCreateVault(receiverId).get();
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error loading vault for nation " + receiverId + ": " + e.getMessage());
+                }
+            }
+            if (vault != null) {
+                receiverVaults.put(receiverId, vault);
+            }
+        }
+
+        List<Nation> poweredNations = new ArrayList<>();
         plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
             @Override
             public Void execute(Connection conn, DSLContext context) throws SQLException {
-                // Get trade vault
-                Record vaultRecord = context.select()
-                        .from("trade_vaults")
-                        .where(DSL.field("trade_id").eq(trade.getId()))
-                        .fetchOne();
-
-                if (vaultRecord == null) {
-                    plugin.getLogger().warning("Trade vault not found for trade: " + trade.getId());
-                    return null;
-                }
-
-                String sendingItemsJson = vaultRecord.get("sending_items_vault", String.class);
-                final boolean[] tradeSuccess = { false };
-                final double[] tradeItemRatio = { 0.0 };
-
-                if (sendingItemsJson != null && !sendingItemsJson.isEmpty()) {
-                    // Check if required items are present
-                    List<Map<String, Object>> requiredItemsList = tradeService.getGson().fromJson(sendingItemsJson,
-                            new TypeToken<List<Map<String, Object>>>() {
-                            }.getType());
-
-                    // Calculate the trade item ratio before transferring
-                    ItemStack[] items = TradeItemsUtil.deserializeItems(requiredItemsList, plugin);
-                    tradeItemRatio[0] = calculateTradeItemRatio(items);
-
-                    // Transfer items from sender to receiver's vault
-                    Nation receivingNation = nationService.getNation(trade.getReceivingNationId());
-                    if (receivingNation != null) {
-                        // Get or create receiver's vault
-                        CompletableFuture<Boolean> transferFuture = vaultService
-                                .getOrCreateVault(trade.getReceivingNationId())
-                                .thenCompose(receiverVault -> {
-                                    if (receiverVault != null) {
-                                        try {
-                                            // Add items to receiver's vault overflow
-                                            List<ItemStack> itemsList = Arrays.stream(items)
-                                                    .filter(Objects::nonNull)
-                                                    .collect(Collectors.toList());
-
-                                            receiverVault.addOverflowItems(itemsList,
-                                                    plugin.getConfigManager().getVaultExpiryTimeMinutes());
-                                            return vaultService.saveVault(receiverVault);
-                                        } catch (Exception e) {
-                                            plugin.getLogger()
-                                                    .severe("Error processing trade items: " + e.getMessage());
-                                            return CompletableFuture.completedFuture(false);
-                                        }
-                                    }
-                                    return CompletableFuture.completedFuture(false);
-                                });
-
-                        // Wait for the transfer to complete
-                        try {
-                            tradeSuccess[0] = transferFuture.get(); // Wait for completion
-                        } catch (Exception e) {
-                            plugin.getLogger().severe("Error waiting for trade transfer: " + e.getMessage());
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    for (Map.Entry<String, List<Trade>> group : byReceiver.entrySet()) {
+                        VaultService.NationVault receiverVault = receiverVaults.get(group.getKey());
+                        if (receiverVault == null) {
+                            plugin.getLogger().warning("No vault for receiving nation " + group.getKey() + " of "
+                                    + group.getValue().size() + " trades");
+                            continue;
                         }
+                        deliver(conn, context, group.getValue(), manifests, receiverVault, poweredNations,
+                                delivered);
                     }
+                } finally {
+                    conn.setAutoCommit(autoCommit);
                 }
+                return null;
+            }
+        });
 
-                // Update trade status
-                if (tradeSuccess[0]) {
-                    // Set trade to ACTIVE if it was PENDING
-                    if (trade.getStatus() == Trade.Status.PENDING) {
-                        trade.setStatus(Trade.Status.ACTIVE);
-                    }
+        // Nations are saved once the lock is released
+        for (Nation nation : new LinkedHashSet<>(poweredNations)) {
+            nationService.saveNation(nation);
+        }
+    }
 
-                    // Increment consecutive trades
-                    trade.incrementConsecutiveTrades();
-                    trade.setLastExecution(new Date());
-
-                    // Calculate next execution time
-                    Calendar calendar = Calendar.getInstance();
-                    // In Minecraft, a day is 24000 ticks (20min real time)
-                    // So 1 Minecraft day = 20 real minutes
-                    calendar.add(Calendar.MINUTE, 20 * trade.getExecutionInterval());
-                    trade.setNextExecution(calendar.getTime());
-
-                    // Award power if consecutive trades reached threshold
-                    int consecutiveNeeded = plugin.getConfigManager().getTradeConsecutiveForPower();
-                    if (trade.getConsecutiveTrades() >= consecutiveNeeded) {
-                        // Award power to both nations, scaled by trade item ratio
-                        Nation sendingNation = nationService.getNation(trade.getSendingNationId());
-                        Nation receivingNation = nationService.getNation(trade.getReceivingNationId());
-
-                        if (sendingNation != null && receivingNation != null) {
-                            double powerIncrement = plugin.getConfigManager().getTradePowerIncrement();
-
-                            // Apply ratio to power gained (cannot be less than 10% of original value)
-                            double adjustedPowerIncrement = Math.max(
-                                    powerIncrement * tradeItemRatio[0],
-                                    powerIncrement * 0.1);
-
-                            // Log the power adjustment
-                            plugin.getLogger().info("Trade " + trade.getId() + " power adjustment: " +
-                                    "Original: " + powerIncrement + ", Ratio: " + tradeItemRatio[0] +
-                                    ", Adjusted: " + adjustedPowerIncrement);
-
-                            sendingNation.addPower(adjustedPowerIncrement);
-                            receivingNation.addPower(adjustedPowerIncrement);
-
-                            nationService.saveNation(sendingNation);
-                            nationService.saveNation(receivingNation);
-
-                            // Reset consecutive trades counter after awarding power
-                            trade.setConsecutiveTrades(0);
-                        }
-                    }
+    /**
+     * Runs every trade for one receiver as a single transaction and writes the
+     * receiver's vault once at the end. The delivered items are written on top
+     * of the vault's overflow without changing the vault. Trade state is only
+     * updated in memory once the transaction has committed, and the vault's
+     * overflow on the main thread after that, so a rollback has nothing to
+     * restore.
+     */
+    private void deliver(Connection conn, DSLContext context, List<Trade> trades,
+            Map<String, TradeVaultCache.Manifest> manifests, VaultService.NationVault receiverVault,
+            List<Nation> poweredNations, Set<String> delivered) {
+        List<Outcome> outcomes = new ArrayList<>();
+        List<ItemStack> deliveredItems = new ArrayList<>();
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MINUTE, plugin.getConfigManager().getVaultExpiryTimeMinutes());
+        Date expiry = calendar.getTime();
 
-                    // Update trade in database
-                    context.update(DSL.table("trades"))
-                            .set(DSL.field("consecutive_trades"), trade.getConsecutiveTrades())
-                            .set(DSL.field("last_execution"), new Timestamp(trade.getLastExecution().getTime()))
-                            .set(DSL.field("status"), trade.getStatus().toString().toLowerCase())
-                            .where(DSL.field("id").eq(trade.getId()))
-                            .execute();
-
-                    // Update next_execution in trade_vaults
-                    context.update(DSL.table("trade_vaults"))
-                            .set(DSL.field("next_execution"), new Timestamp(trade.getNextExecution().getTime()))
-                            .where(DSL.field("trade_id").eq(trade.getId()))
-                            .execute();
-
-                    plugin.getLogger().info("Trade " + trade.getId() + " executed successfully");
-                } else {
-                    plugin.getLogger().info("Trade " + trade.getId() + " failed to execute - items not ready");
+        try {
+            for (Trade trade : trades) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    Outcome outcome = applyTrade(context, trade, manifests.get(trade.getId()));
+                    if (outcome == null) {
+                        conn.rollback(savepoint);
+                        continue;
+                    }
+                    conn.releaseSavepoint(savepoint);
+                    outcomes.add(outcome);
+                    deliveredItems.addAll(outcome.items);
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Trade " + trade.getId() + " rolled back: " + e.getMessage());
+                    conn.rollback(savepoint);
                 }
+            }
 
-                return null;
+            if (outcomes.isEmpty()) {
+                conn.rollback();
+                return;
             }
-        });
+
+            // All deliveries for this receiver are persisted with a single vault write
+            if (!vaultService.writeVault(context, receiverVault, deliveredItems, expiry)) {
+                throw new SQLException("Failed to write vault " + receiverVault.getId());
+            }
+            conn.commit();
+        } catch (Exception e) {
+            plugin.getLogger().severe("Deliveries to nation " + receiverVault.getNationId() + " rolled back: "
+                    + e.getMessage());
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                plugin.getLogger().severe("Failed to roll back deliveries to nation " + receiverVault.getNationId()
+                        + ": " + rollbackError.getMessage());
+            }
+
+            // Older async saves were dropped in favour of the rolled back write
+            vaultService.saveVault(receiverVault);
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin,
+                () -> vaultService.applyDeliveredOverflow(receiverVault, deliveredItems, expiry));
+
+        for (Outcome outcome : outcomes) {
+            Trade trade = outcome.trade;
+            tradeService.updateTradeStatus(trade, outcome.status);
+            trade.setConsecutiveTrades(outcome.consecutiveTrades);
+            trade.setLastExecution(outcome.lastExecution);
+            trade.setNextExecution(outcome.nextExecution);
+            // The sending side is emptied in the cache when the claim is released
+            delivered.add(trade.getId());
+            if (outcome.powerAward > 0) {
+                outcome.sendingNation.addPower(outcome.powerAward);
+                outcome.receivingNation.addPower(outcome.powerAward);
+                poweredNations.add(outcome.sendingNation);
+                poweredNations.add(outcome.receivingNation);
+            }
+            plugin.getLogger().info("Trade " + trade.getId() + " executed successfully");
+        }
     }
 
     /**
-     * Calculates the ratio of actual items to the maximum possible volume
-     * Max volume is defined as 9 slots of full stacks (9 * 64 = 576 items)
-     * 
-     * @param items The items in the trade
-     * @return A ratio between 0.0 and 1.0
+     * Takes a trade's items out of its trade vault and writes the trade's new
+     * state, without committing or touching the trade object
+     *
+     * @return The trade's new state and items, or null if its items aren't ready
      */
-    private double calculateTradeItemRatio(ItemStack[] items) {
-        if (items == null) {
-            return 0.0;
+    private Outcome applyTrade(DSLContext context, Trade trade, TradeVaultCache.Manifest manifest)
+            throws SQLException {
+        if (manifest == null || manifest.isEmpty()) {
+            plugin.getLogger().info("Trade " + trade.getId() + " failed to execute - items not ready");
+            return null;
         }
 
-        int totalItems = 0;
-        int maxStackSize = 64;
-        int maxSlots = 9;
+        // Move the items out of the trade vault, the caller writes them to the receiver's vault overflow
+        int updated = context.update(DSL.table("trade_vaults"))
+                .set(DSL.field("sending_items_vault"), (String) null)
+                .where(DSL.field("trade_id").eq(trade.getId()))
+                .execute();
 
-        for (ItemStack item : items) {
-            if (item != null) {
-                totalItems += item.getAmount();
-            }
+        if (updated == 0) {
+            plugin.getLogger().warning("Trade vault not found for trade: " + trade.getId());
+            return null;
         }
 
-        int maxPossibleItems = maxSlots * maxStackSize; // 9 slots × 64 stack size = 576 items
-        double ratio = (double) totalItems / maxPossibleItems;
+        double tradeItemRatio = manifest.getRatio();
 
-        // Cap at 1.0 maximum
-        return Math.min(ratio, 1.0);
+        Outcome outcome = new Outcome(trade);
+        outcome.items = manifest.copyItems();
+        outcome.consecutiveTrades = trade.getConsecutiveTrades() + 1;
+        outcome.lastExecution = new Date();
+
+        // In Minecraft, a day is 24000 ticks (20min real time)
+        // So 1 Minecraft day = 20 real minutes
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MINUTE, 20 * trade.getExecutionInterval());
+        outcome.nextExecution = calendar.getTime();
+
+        // Award power if consecutive trades reached threshold
+        outcome.sendingNation = nationService.getNation(trade.getSendingNationId());
+        outcome.receivingNation = nationService.getNation(trade.getReceivingNationId());
+        int consecutiveNeeded = plugin.getConfigManager().getTradeConsecutiveForPower();
+        if (outcome.consecutiveTrades >= consecutiveNeeded && outcome.sendingNation != null
+                && outcome.receivingNation != null) {
+            double powerIncrement = plugin.getConfigManager().getTradePowerIncrement();
+
+            // Apply ratio to power gained (cannot be less than 10% of original value)
+            outcome.powerAward = Math.max(powerIncrement * tradeItemRatio, powerIncrement * 0.1);
+
+            // Log the power adjustment
+            plugin.getLogger().info("Trade " + trade.getId() + " power adjustment: " +
+                    "Original: " + powerIncrement + ", Ratio: " + tradeItemRatio +
+                    ", Adjusted: " + outcome.powerAward);
+
+            // Reset consecutive trades counter after awarding power
+            outcome.consecutiveTrades = 0;
+        }
+
+        // Set trade to ACTIVE if it was PENDING
+        outcome.status = trade.getStatus() == Trade.Status.PENDING ? Trade.Status.ACTIVE : trade.getStatus();
+
+        // Update trade in database
+        context.update(DSL.table("trades"))
+                .set(DSL.field("consecutive_trades"), outcome.consecutiveTrades)
+                .set(DSL.field("last_execution"), new Timestamp(outcome.lastExecution.getTime()))
+                .set(DSL.field("status"), outcome.status.toString().toLowerCase())
+                .where(DSL.field("id").eq(trade.getId()))
+                .execute();
+
+        // Update next_execution in trade_vaults
+        context.update(DSL.table("trade_vaults"))
+                .set(DSL.field("next_execution"), new Timestamp(outcome.nextExecution.getTime()))
+                .where(DSL.field("trade_id").eq(trade.getId()))
+                .execute();
+
+        return outcome;
+    }
+
+    /**
+     * A trade's state after a delivery, applied once the transaction commits
+     */
+    private static class Outcome {
+        private final Trade trade;
+        private List<ItemStack> items;
+        private Trade.Status status;
+        private int consecutiveTrades;
+        private Date lastExecution;
+        private Date nextExecution;
+        private Nation sendingNation;
+        private Nation receivingNation;
+        private double powerAward;
+
+        private Outcome(Trade trade) {
+            this.trade = trade;
+        }
     }
 }
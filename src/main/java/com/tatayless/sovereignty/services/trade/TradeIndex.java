@@ -0,0 +1,80 @@
+package com.tatayless.sovereignty.services.trade;
+
+import com.tatayless.sovereignty.models.Trade;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up trades by the nations taking part in them.
+ * Every trade is indexed under both its sending and receiving nation, and
+ * trades that can still run are also kept in a separate open index, so
+ * finding a nation's trades doesn't scan every trade on the server.
+ */
+public class TradeIndex {
+    private final Map<String, Map<String, Trade>> byNation = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Trade>> openByNation = new ConcurrentHashMap<>();
+
+    public void add(Trade trade) {
+        put(byNation, trade.getSendingNationId(), trade);
+        put(byNation, trade.getReceivingNationId(), trade);
+        updateStatus(trade);
+    }
+
+    public void remove(Trade trade) {
+        remove(byNation, trade.getSendingNationId(), trade.getId());
+        remove(byNation, trade.getReceivingNationId(), trade.getId());
+        remove(openByNation, trade.getSendingNationId(), trade.getId());
+        remove(openByNation, trade.getReceivingNationId(), trade.getId());
+    }
+
+    /**
+     * Moves a trade in or out of the open index after its status changed
+     */
+    public void updateStatus(Trade trade) {
+        if (trade.isSchedulable()) {
+            put(openByNation, trade.getSendingNationId(), trade);
+            put(openByNation, trade.getReceivingNationId(), trade);
+        } else {
+            remove(openByNation, trade.getSendingNationId(), trade.getId());
+            remove(openByNation, trade.getReceivingNationId(), trade.getId());
+        }
+    }
+
+    /**
+     * @return Every trade the nation sends or receives in
+     */
+    public List<Trade> getTrades(String nationId) {
+        return copy(byNation.get(nationId));
+    }
+
+    /**
+     * @return The nation's pending and active trades
+     */
+    public List<Trade> getOpenTrades(String nationId) {
+        return copy(openByNation.get(nationId));
+    }
+
+    private static void put(Map<String, Map<String, Trade>> index, String nationId, Trade trade) {
+        // compute() so a put can't land in a map that a concurrent remove just dropped
+        index.compute(nationId, (k, trades) -> {
+            Map<String, Trade> updated = trades != null ? trades : new ConcurrentHashMap<>();
+            updated.put(trade.getId(), trade);
+            return updated;
+        });
+    }
+
+    private static void remove(Map<String, Map<String, Trade>> index, String nationId, String tradeId) {
+        index.computeIfPresent(nationId, (k, trades) -> {
+            trades.remove(tradeId);
+            return trades.isEmpty() ? null : trades;
+        });
+    }
+
+    private static List<Trade> copy(Map<String, Trade> trades) {
+        return trades == null ? Collections.emptyList() : new ArrayList<>(trades.values());
+    }
+}
@@ -17,8 +17,11 @@ import org.jooq.impl.DSL;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -97,6 +100,11 @@ public class TradeItemsUtil {
 
         String tradeId = UUID.randomUUID().toString();
 
+        // First execution after one interval, a Minecraft day is 20 real minutes
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MINUTE, 20 * interval);
+        Date firstExecution = calendar.getTime();
+
         plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
             @Override
             public Void execute(Connection conn, DSLContext context) throws SQLException {
@@ -119,9 +127,11 @@ public class TradeItemsUtil {
                 context.insertInto(
                         DSL.table("trade_vaults"),
                         DSL.field("trade_id"),
-                        DSL.field("execution_interval")).values(
+                        DSL.field("execution_interval"),
+                        DSL.field("next_execution")).values(
                                 tradeId,
-                                interval)
+                                interval,
+                                new Timestamp(firstExecution.getTime()))
                         .execute();
 
                 return null;
@@ -136,7 +146,8 @@ public class TradeItemsUtil {
         Trade trade = new Trade(tradeId, senderNationId, receiverNationId);
         trade.setStatus(Trade.Status.PENDING);
         trade.setExecutionInterval(interval);
-        tradeService.getActiveTrades().put(tradeId, trade);
+        trade.setNextExecution(firstExecution);
+        tradeService.registerTrade(trade);
 
         player.sendMessage(plugin.getLocalizationManager().getComponent("trade.created"));
         player.closeInventory();
@@ -2,17 +2,24 @@ package com.tatayless.sovereignty.services.trade;
 
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.models.ChunkLocation;
 import com.tatayless.sovereignty.models.Nation;
 import com.tatayless.sovereignty.models.Trade;
 import com.tatayless.sovereignty.services.TradeService;
+import com.tatayless.sovereignty.utils.NPCTagUtil;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
@@ -20,26 +27,43 @@ import org.jooq.impl.DSL;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TradeNPCHandler {
     private final TradeService tradeService;
     private final Sovereignty plugin;
 
+    // Persistent data keys identifying trade NPCs
+    private final NamespacedKey tradeKey;
+    private final NamespacedKey npcIdKey;
+    private final NamespacedKey senderKey;
+
+    // Stored NPCs in chunks that haven't been checked for untagged NPCs yet, chunks are dropped once checked
+    private final Map<ChunkLocation, List<StoredNPC>> uncheckedByChunk = new ConcurrentHashMap<>();
+    private volatile boolean uncheckedIndexed;
+    // NPCs that have been spawned but whose row isn't saved yet
+    private final Set<String> savingNPCs = ConcurrentHashMap.newKeySet();
+
     public TradeNPCHandler(TradeService tradeService, Sovereignty plugin) {
         this.tradeService = tradeService;
         this.plugin = plugin;
+        this.tradeKey = new NamespacedKey(plugin, "trade_npc");
+        this.npcIdKey = new NamespacedKey(plugin, "trade_npc_id");
+        this.senderKey = new NamespacedKey(plugin, "trade_npc_sender");
     }
 
     public void openTradeNPCSelectionMenu(Player player, String nationId) {
         // Get trades where this nation is involved
-        List<Trade> nationTrades = tradeService.getActiveTrades().values().stream()
-                .filter(t -> t.getSendingNationId().equals(nationId) || t.getReceivingNationId().equals(nationId))
-                .filter(t -> t.getStatus() == Trade.Status.PENDING || t.getStatus() == Trade.Status.ACTIVE)
-                .collect(Collectors.toList());
+        List<Trade> nationTrades = tradeService.getOpenNationTrades(nationId);
 
         if (nationTrades.isEmpty()) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("trade.no-trades"));
@@ -118,62 +142,46 @@ public class TradeNPCHandler {
             return CompletableFuture.completedFuture(false);
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
-                @Override
-                public Boolean execute(Connection conn, DSLContext context) throws SQLException {
-                    Nation nation = tradeService.getNationService().getNation(nationId);
-                    if (nation == null)
-                        return false;
-
-                    final String partnerNationName;
-                    if (isSender) {
-                        Nation receivingNation = tradeService.getNationService()
-                                .getNation(trade.getReceivingNationId());
-                        partnerNationName = receivingNation != null ? receivingNation.getName() : "Unknown";
-                    } else {
-                        Nation sendingNation = tradeService.getNationService().getNation(trade.getSendingNationId());
-                        partnerNationName = sendingNation != null ? sendingNation.getName() : "Unknown";
-                    }
+        Nation nation = tradeService.getNationService().getNation(nationId);
+        if (nation == null) {
+            return CompletableFuture.completedFuture(false);
+        }
 
-                    // Create the NPC entity
-                    final Villager[] npc = { null };
-                    Bukkit.getScheduler().runTask(plugin, () -> {
-                        npc[0] = (Villager) location.getWorld().spawnEntity(location, EntityType.VILLAGER);
-
-                        // Create stylized name for the trade NPC
-                        net.kyori.adventure.text.Component nameComponent = net.kyori.adventure.text.Component
-                                .text("Trade with ")
-                                .color(net.kyori.adventure.text.format.NamedTextColor.GOLD)
-                                .append(net.kyori.adventure.text.Component
-                                        .text(partnerNationName)
-                                        .color(net.kyori.adventure.text.format.NamedTextColor.AQUA)
-                                        .decorate(net.kyori.adventure.text.format.TextDecoration.BOLD));
-
-                        npc[0].customName(nameComponent);
-                        npc[0].setCustomNameVisible(true);
-                        npc[0].setProfession(Villager.Profession.MASON); // Different profession from vault NPCs
-                        npc[0].setAI(false);
-                        npc[0].setInvulnerable(true);
-                        npc[0].setSilent(true);
-                        npc[0].setRemoveWhenFarAway(false);
-                        // Additional invulnerability settings
-                        npc[0].setCollidable(false); // Prevents physical interaction
-                        npc[0].setPersistent(true); // Makes the entity persistent
-                    });
+        final String partnerNationName;
+        if (isSender) {
+            Nation receivingNation = tradeService.getNationService().getNation(trade.getReceivingNationId());
+            partnerNationName = receivingNation != null ? receivingNation.getName() : "Unknown";
+        } else {
+            Nation sendingNation = tradeService.getNationService().getNation(trade.getSendingNationId());
+            partnerNationName = sendingNation != null ? sendingNation.getName() : "Unknown";
+        }
 
-                    // Wait for entity to be created
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new SQLException("Thread interrupted", e);
-                    }
+        String npcId = UUID.randomUUID().toString();
+
+        // Create the NPC entity on the main thread, then store it
+        savingNPCs.add(npcId);
+        CompletableFuture<Boolean> spawned = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                Villager npc = (Villager) location.getWorld().spawnEntity(location, EntityType.VILLAGER);
+                configureTradeNPC(npc, partnerNationName);
+                tagTradeNPC(npc, tradeId, npcId, isSender);
+                spawned.complete(true);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Failed to create trade NPC: " + e.getMessage());
+                spawned.complete(false);
+            }
+        });
 
-                    // Store the NPC in database
-                    int entityId = npc[0].getEntityId();
-                    String npcId = UUID.randomUUID().toString();
+        return spawned.thenApplyAsync(success -> {
+            if (!success) {
+                savingNPCs.remove(npcId);
+                return false;
+            }
 
+            Boolean saved = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+                @Override
+                public Boolean execute(Connection conn, DSLContext context) throws SQLException {
                     // Use the location components directly, similar to VaultNPCManager
                     String worldName = location.getWorld().getName();
                     double x = location.getX();
@@ -189,7 +197,6 @@ public class TradeNPCHandler {
                             DSL.field("trade_id"),
                             DSL.field("nation_id"),
                             DSL.field("coordinates"),
-                            DSL.field("entity_id"),
                             DSL.field("world"),
                             DSL.field("x"),
                             DSL.field("y"),
@@ -200,21 +207,213 @@ public class TradeNPCHandler {
                                     tradeId,
                                     nationId,
                                     locationStr,
-                                    entityId,
                                     worldName,
                                     x,
                                     y,
                                     z,
                                     isSender ? 1 : 0)
                             .execute();
-
-                    tradeService.getEntityToTradeVault().put(entityId, tradeId);
                     return true;
                 }
             });
+            savingNPCs.remove(npcId);
+            return saved != null && saved;
         });
     }
 
+    private void configureTradeNPC(Villager npc, String partnerNationName) {
+        // Create stylized name for the trade NPC
+        net.kyori.adventure.text.Component nameComponent = net.kyori.adventure.text.Component
+                .text("Trade with ")
+                .color(net.kyori.adventure.text.format.NamedTextColor.GOLD)
+                .append(net.kyori.adventure.text.Component
+                        .text(partnerNationName)
+                        .color(net.kyori.adventure.text.format.NamedTextColor.AQUA)
+                        .decorate(net.kyori.adventure.text.format.TextDecoration.BOLD));
+
+        npc.customName(nameComponent);
+        npc.setCustomNameVisible(true);
+        npc.setProfession(Villager.Profession.MASON); // Different profession from vault NPCs
+        npc.setAI(false);
+        npc.setInvulnerable(true);
+        npc.setSilent(true);
+        npc.setRemoveWhenFarAway(false);
+        // Additional invulnerability settings
+        npc.setCollidable(false); // Prevents physical interaction
+        npc.setPersistent(true); // Makes the entity persistent
+    }
+
+    /**
+     * Stores the trade, the NPC's database row and its side in the entity's
+     * persistent data
+     */
+    private void tagTradeNPC(Villager npc, String tradeId, String npcId, boolean isSender) {
+        NPCTagUtil.tag(npc, tradeKey, tradeId);
+        NPCTagUtil.tag(npc, npcIdKey, npcId);
+        npc.getPersistentDataContainer().set(senderKey, PersistentDataType.BYTE, (byte) (isSender ? 1 : 0));
+    }
+
+    /**
+     * Reads the stored trade NPC locations so NPCs placed before tagging can
+     * be adopted when their chunk's entities load. Chunks that are already
+     * loaded are checked once the locations are read.
+     */
+    public void loadUntaggedNPCLocations() {
+        CompletableFuture.runAsync(() -> {
+            plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
+                @Override
+                public Void execute(Connection conn, DSLContext context) throws SQLException {
+                    for (Record record : context.select().from("trade_vault_npcs").fetch()) {
+                        String worldName = record.get("world", String.class);
+                        World world = worldName != null ? Bukkit.getWorld(worldName) : null;
+                        if (world == null) {
+                            continue;
+                        }
+
+                        Location location = new Location(world, record.get("x", Double.class),
+                                record.get("y", Double.class), record.get("z", Double.class));
+                        StoredNPC npc = new StoredNPC(record.get("id", String.class),
+                                record.get("trade_id", String.class),
+                                record.get("is_for_sender", Integer.class) == 1, location);
+                        uncheckedByChunk.computeIfAbsent(new ChunkLocation(location.getBlockX() >> 4,
+                                location.getBlockZ() >> 4, worldName), k -> new ArrayList<>()).add(npc);
+                    }
+                    return null;
+                }
+            });
+            uncheckedIndexed = true;
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                for (ChunkLocation chunkLocation : new ArrayList<>(uncheckedByChunk.keySet())) {
+                    World world = Bukkit.getWorld(chunkLocation.getWorldName());
+                    if (world != null && world.isChunkLoaded(chunkLocation.getX(), chunkLocation.getZ())) {
+                        Chunk chunk = world.getChunkAt(chunkLocation.getX(), chunkLocation.getZ());
+                        adoptUntaggedNPCs(chunk, Arrays.asList(chunk.getEntities()));
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Tags trade NPCs placed before tagging once their chunk's entities have
+     * loaded. An untagged mason with AI disabled standing at a stored trade NPC
+     * location is given that NPC's tags. Each chunk is only checked once.
+     *
+     * @param chunk    The chunk
+     * @param entities The entities that were loaded with it
+     */
+    public void adoptUntaggedNPCs(Chunk chunk, List<Entity> entities) {
+        if (!uncheckedIndexed) {
+            return;
+        }
+        List<StoredNPC> stored = uncheckedByChunk.remove(new ChunkLocation(chunk));
+        if (stored == null) {
+            return;
+        }
+
+        for (StoredNPC npc : stored) {
+            boolean present = entities.stream().anyMatch(entity -> npc.id.equals(NPCTagUtil.getTag(entity, npcIdKey)));
+            if (present) {
+                continue;
+            }
+
+            Villager untagged = NPCTagUtil.findUntagged(entities, npc.location, Villager.Profession.MASON, tradeKey);
+            if (untagged != null) {
+                tagTradeNPC(untagged, npc.tradeId, npc.id, npc.sender);
+                plugin.getLogger().info("Adopted untagged trade NPC " + npc.id + " for trade " + npc.tradeId);
+            }
+        }
+    }
+
+    /**
+     * Removes trade NPCs whose row or trade no longer exists once their
+     * chunk's entities have loaded. Deleting a trade only removes NPCs in
+     * loaded chunks, the others are caught here. The rows are checked
+     * asynchronously and NPCs are kept if the check fails.
+     *
+     * @param entities The entities that were loaded with a chunk
+     */
+    public void removeStaleNPCs(List<Entity> entities) {
+        Map<String, List<UUID>> npcs = new HashMap<>();
+        for (Entity entity : entities) {
+            String npcId = NPCTagUtil.getTag(entity, npcIdKey);
+            if (npcId != null) {
+                npcs.computeIfAbsent(npcId, k -> new ArrayList<>()).add(entity.getUniqueId());
+            }
+        }
+        if (npcs.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            Set<String> live = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Set<String>>() {
+                @Override
+                public Set<String> execute(Connection conn, DSLContext context) throws SQLException {
+                    Map<String, String> tradeByNPC = new HashMap<>();
+                    for (Record record : context.select(DSL.field("id"), DSL.field("trade_id"))
+                            .from("trade_vault_npcs")
+                            .where(DSL.field("id").in(npcs.keySet()))
+                            .fetch()) {
+                        tradeByNPC.put(record.get("id", String.class), record.get("trade_id", String.class));
+                    }
+
+                    Set<String> trades = new HashSet<>();
+                    if (!tradeByNPC.isEmpty()) {
+                        trades.addAll(context.select(DSL.field("id"))
+                                .from("trades")
+                                .where(DSL.field("id").in(tradeByNPC.values()))
+                                .fetch(DSL.field("id"), String.class));
+                    }
+
+                    Set<String> withTrade = new HashSet<>();
+                    tradeByNPC.forEach((npcId, tradeId) -> {
+                        if (trades.contains(tradeId)) {
+                            withTrade.add(npcId);
+                        }
+                    });
+                    return withTrade;
+                }
+            });
+            if (live == null) {
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                for (Map.Entry<String, List<UUID>> npc : npcs.entrySet()) {
+                    String npcId = npc.getKey();
+                    if (live.contains(npcId) || savingNPCs.contains(npcId)) {
+                        continue;
+                    }
+                    for (UUID entityId : npc.getValue()) {
+                        Entity entity = Bukkit.getEntity(entityId);
+                        if (entity != null && npcId.equals(NPCTagUtil.getTag(entity, npcIdKey))) {
+                            entity.remove();
+                            plugin.getLogger().info("Removed trade NPC " + npcId + " of a deleted trade");
+                        }
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Gets the trade a trade NPC belongs to
+     *
+     * @return The trade ID, or null if the entity isn't a trade NPC
+     */
+    public String getTradeIdFromEntity(Entity entity) {
+        return NPCTagUtil.getTag(entity, tradeKey);
+    }
+
+    /**
+     * Checks whether a trade NPC was placed for the sending side of its trade
+     */
+    public boolean isSenderEntity(Entity entity) {
+        Byte sender = entity.getPersistentDataContainer().get(senderKey, PersistentDataType.BYTE);
+        return sender != null && sender == 1;
+    }
+
     public void attemptDeleteTradeNPC(Player player, String nationId) {
         // Logic to find the closest trade NPC that the player is looking at
         // and delete it if it belongs to their nation
@@ -224,16 +423,14 @@ public class TradeNPCHandler {
         player.sendMessage(plugin.getLocalizationManager().getComponent("trade.npc-looking-for"));
 
         // Get the entity the player is looking at
-        org.bukkit.entity.Entity target = player.getTargetEntity(5); // 5 blocks range
+        Entity target = player.getTargetEntity(5); // 5 blocks range
         if (target == null || !(target instanceof Villager)) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("trade.npc-not-found"));
             return;
         }
 
-        int entityId = target.getEntityId();
-        String tradeId = tradeService.getEntityToTradeVault().get(entityId);
-
-        if (tradeId == null) {
+        String npcId = NPCTagUtil.getTag(target, npcIdKey);
+        if (npcId == null) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("trade.npc-not-trade"));
             return;
         }
@@ -244,7 +441,7 @@ public class TradeNPCHandler {
             public Void execute(Connection conn, DSLContext context) throws SQLException {
                 Record record = context.select()
                         .from("trade_vault_npcs")
-                        .where(DSL.field("entity_id").eq(entityId))
+                        .where(DSL.field("id").eq(npcId))
                         .and(DSL.field("nation_id").eq(nationId))
                         .fetchOne();
 
@@ -258,12 +455,9 @@ public class TradeNPCHandler {
 
                 // Remove from database
                 context.deleteFrom(DSL.table("trade_vault_npcs"))
-                        .where(DSL.field("entity_id").eq(entityId))
+                        .where(DSL.field("id").eq(npcId))
                         .execute();
 
-                // Remove from tracking map
-                tradeService.getEntityToTradeVault().remove(entityId);
-
                 player.sendMessage(plugin.getLocalizationManager().getComponent("trade.npc-removed"));
                 return null;
             }
@@ -281,22 +475,20 @@ public class TradeNPCHandler {
                         .fetch();
 
                 for (Record record : npcResults) {
-                    int entityId = record.get("entity_id", Integer.class);
+                    String worldName = record.get("world", String.class);
+                    World world = worldName != null ? Bukkit.getWorld(worldName) : null;
+                    if (world == null) {
+                        continue;
+                    }
 
-                    // Remove the entity on the main thread
+                    // Remove the entity if its chunk is loaded, otherwise it's removed when its entities load
+                    int chunkX = (int) Math.floor(record.get("x", Double.class)) >> 4;
+                    int chunkZ = (int) Math.floor(record.get("z", Double.class)) >> 4;
                     Bukkit.getScheduler().runTask(plugin, () -> {
-                        for (org.bukkit.entity.Entity entity : Bukkit.getWorlds().stream()
-                                .flatMap(world -> world.getEntities().stream())
-                                .collect(Collectors.toList())) {
-                            if (entity.getEntityId() == entityId) {
-                                entity.remove();
-                                break;
-                            }
+                        if (world.isChunkLoaded(chunkX, chunkZ)) {
+                            NPCTagUtil.removeTagged(world.getChunkAt(chunkX, chunkZ), tradeKey, tradeId);
                         }
                     });
-
-                    // Remove from tracking map
-                    tradeService.getEntityToTradeVault().remove(entityId);
                 }
 
                 // Delete trade vault NPCs
@@ -315,7 +507,7 @@ public class TradeNPCHandler {
                         .execute();
 
                 // Remove from memory
-                tradeService.getActiveTrades().remove(tradeId);
+                tradeService.unregisterTrade(tradeId);
 
                 // Notify player
                 player.sendMessage(plugin.getLocalizationManager().getComponent("trade.deleted"));
@@ -324,4 +516,21 @@ public class TradeNPCHandler {
             }
         });
     }
+
+    /**
+     * A trade NPC row, used to recognise NPCs placed before tagging
+     */
+    private static class StoredNPC {
+        private final String id;
+        private final String tradeId;
+        private final boolean sender;
+        private final Location location;
+
+        private StoredNPC(String id, String tradeId, boolean sender, Location location) {
+            this.id = id;
+            this.tradeId = tradeId;
+            this.sender = sender;
+            this.location = location;
+        }
+    }
 }
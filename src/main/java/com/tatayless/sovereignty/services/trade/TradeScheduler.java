@@ -0,0 +1,153 @@
+package com.tatayless.sovereignty.services.trade;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.models.Trade;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Runs recurring trades when their next execution time comes up.
+ * Trades are kept in a queue ordered by due time, so each check only looks at
+ * the head of the queue instead of every trade. All registration methods are
+ * thread-safe. Trade creation, deletion and execution keep the schedule in sync
+ * through {@link #schedule} and {@link #unschedule}.
+ */
+public class TradeScheduler {
+    private static final long CHECK_INTERVAL_TICKS = 20L; // Check the queue head once per second
+    private static final long RETRY_DELAY_MILLIS = 60_000L; // Trades that couldn't run are retried after a minute
+
+    private final Sovereignty plugin;
+    private final Consumer<List<Trade>> executor;
+
+    // Guarded by "this"
+    private final PriorityQueue<Due> queue = new PriorityQueue<>();
+    private final Map<String, Long> scheduled = new HashMap<>(); // Trade ID -> latest scheduled time
+    private final Set<String> running = new HashSet<>(); // Trades being executed right now
+
+    private BukkitTask task;
+
+    public TradeScheduler(Sovereignty plugin, Consumer<List<Trade>> executor) {
+        this.plugin = plugin;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the async task that executes due trades. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::runDue,
+                CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Schedules the trade at its next execution time, or removes it from the
+     * schedule if it can no longer run
+     *
+     * @param trade The trade to schedule
+     */
+    public void schedule(Trade trade) {
+        if (trade.getNextExecution() == null || !trade.isSchedulable()) {
+            unschedule(trade.getId());
+            return;
+        }
+        schedule(trade, trade.getNextExecution().getTime());
+    }
+
+    private synchronized void schedule(Trade trade, long dueAt) {
+        Long current = scheduled.put(trade.getId(), dueAt);
+        if (current == null || current != dueAt) {
+            // Superseded entries stay in the queue and are skipped when they reach the head
+            queue.add(new Due(trade, dueAt));
+        }
+    }
+
+    public synchronized void unschedule(String tradeId) {
+        scheduled.remove(tradeId);
+        running.remove(tradeId); // Don't reschedule a trade deleted while it was executing
+    }
+
+    public synchronized int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    private void runDue() {
+        long now = System.currentTimeMillis();
+        List<Trade> due = new ArrayList<>();
+
+        synchronized (this) {
+            while (!queue.isEmpty() && queue.peek().dueAt <= now) {
+                Due head = queue.poll();
+                Long latest = scheduled.get(head.trade.getId());
+                if (latest == null || latest != head.dueAt) {
+                    continue; // Stale entry, the trade was rescheduled or removed since
+                }
+                scheduled.remove(head.trade.getId());
+                running.add(head.trade.getId());
+                due.add(head.trade);
+            }
+        }
+
+        if (due.isEmpty()) {
+            return;
+        }
+
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE,
+                () -> "Found " + due.size() + " trades ready for execution");
+
+        // All trades due in this pass are executed as one batch
+        try {
+            executor.accept(due);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error executing " + due.size() + " trades: " + e.getMessage());
+        }
+
+        for (Trade trade : due) {
+            synchronized (this) {
+                if (!running.remove(trade.getId())) {
+                    continue;
+                }
+            }
+
+            // Executed trades have moved on to their next time, anything else is retried later
+            if (trade.getNextExecution() != null && trade.getNextExecution().getTime() > now) {
+                schedule(trade);
+            } else if (trade.isSchedulable()) {
+                schedule(trade, now + RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private static class Due implements Comparable<Due> {
+        private final Trade trade;
+        private final long dueAt;
+
+        private Due(Trade trade, long dueAt) {
+            this.trade = trade;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public int compareTo(Due other) {
+            return Long.compare(dueAt, other.dueAt);
+        }
+    }
+}
@@ -14,7 +14,6 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class TradeUIHandler {
     private final TradeService tradeService;
@@ -56,10 +55,7 @@ public class TradeUIHandler {
     }
 
     public void openTradeDeleteMenu(Player player, String nationId) {
-        List<Trade> nationTrades = tradeService.getActiveTrades().values().stream()
-                .filter(t -> t.getSendingNationId().equals(nationId) || t.getReceivingNationId().equals(nationId))
-                .filter(t -> t.getStatus() == Trade.Status.PENDING || t.getStatus() == Trade.Status.ACTIVE)
-                .collect(Collectors.toList());
+        List<Trade> nationTrades = tradeService.getOpenNationTrades(nationId);
 
         if (nationTrades.isEmpty()) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("trade.no-trades"));
@@ -113,9 +109,7 @@ public class TradeUIHandler {
     }
 
     public void openTradeListMenu(Player player, String nationId) {
-        List<Trade> nationTrades = tradeService.getActiveTrades().values().stream()
-                .filter(t -> t.getSendingNationId().equals(nationId) || t.getReceivingNationId().equals(nationId))
-                .collect(Collectors.toList());
+        List<Trade> nationTrades = tradeService.getNationTrades(nationId);
 
         if (nationTrades.isEmpty()) {
             player.sendMessage(plugin.getLocalizationManager().getComponent("trade.no-trades"));
@@ -0,0 +1,579 @@
+package com.tatayless.sovereignty.services.trade;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of the sending and receiving items of trade vaults.
+ * Vaults are loaded asynchronously the first time they're needed, a failed
+ * load caches nothing and is retried by the next caller. Edits only
+ * update the cache and mark the side dirty; dirty sides are written together
+ * once per save window. Trades nobody has touched for a while are evicted once
+ * their changes are on disk.
+ * Every side carries a generation that changes when the side is cleared or
+ * reloaded, slot edits from an inventory opened on an older generation are
+ * rejected so they can't write delivered items back.
+ */
+public class TradeVaultCache {
+    private static final int VAULT_SIZE = 54;
+    private static final long EVICT_INTERVAL_TICKS = 20L * 60; // Look for idle entries once a minute
+
+    private final Sovereignty plugin;
+    private final Gson gson;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final Object flushLock = new Object(); // Held while a flush writes, so flushes never overlap
+
+    private BukkitTask flushTask;
+    private BukkitTask evictTask;
+
+    public TradeVaultCache(Sovereignty plugin, Gson gson) {
+        this.plugin = plugin;
+        this.gson = gson;
+    }
+
+    public synchronized void start() {
+        if (evictTask != null) {
+            return;
+        }
+        evictTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::evictIdle,
+                EVICT_INTERVAL_TICKS, EVICT_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stops the background tasks and writes out every pending change
+     */
+    public void stop() {
+        synchronized (this) {
+            if (evictTask != null) {
+                evictTask.cancel();
+                evictTask = null;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Gets one side of a trade vault and its generation, loading the trade from
+     * the database if it isn't cached
+     */
+    public CompletableFuture<Contents> getContents(String tradeId, boolean isSender) {
+        Entry entry = entries.get(tradeId);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry.getContents(isSender));
+        }
+        return load(tradeId).thenApply(loaded -> loaded.getContents(isSender));
+    }
+
+    /**
+     * @return The current generation of one side of a cached trade vault, or -1
+     *         if the trade isn't cached
+     */
+    public long getGeneration(String tradeId, boolean isSender) {
+        Entry entry = entries.get(tradeId);
+        return entry != null ? entry.getGeneration(isSender) : -1;
+    }
+
+    /**
+     * Gets one side of a trade vault without loading it
+     *
+     * @return A copy of the vault contents, or null if the trade isn't cached
+     */
+    public ItemStack[] getIfLoaded(String tradeId, boolean isSender) {
+        Entry entry = entries.get(tradeId);
+        return entry != null ? entry.get(isSender) : null;
+    }
+
+    /**
+     * Gets what a trade currently sends, loading the trade if it isn't cached.
+     * The manifest is built once from the cached items and reused until the
+     * sending side changes.
+     */
+    public CompletableFuture<Manifest> getManifest(String tradeId) {
+        Entry entry = entries.get(tradeId);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry.getManifest());
+        }
+        return load(tradeId).thenApply(Entry::getManifest);
+    }
+
+    /**
+     * Gets what a trade currently sends without loading it
+     *
+     * @return The manifest, or null if the trade isn't cached
+     */
+    public Manifest getLoadedManifest(String tradeId) {
+        Entry entry = entries.get(tradeId);
+        return entry != null ? entry.getManifest() : null;
+    }
+
+    /**
+     * Replaces one side of a trade vault. The change is written to the database
+     * with the next flush.
+     */
+    public void put(String tradeId, boolean isSender, ItemStack[] items) {
+        Entry entry = entries.computeIfAbsent(tradeId, k -> new Entry(generations.incrementAndGet()));
+        entry.set(isSender, items, true);
+        scheduleFlush();
+    }
+
+    /**
+     * Changes single slots of one side of a trade vault, leaving the others as
+     * they are. The change is written to the database with the next flush.
+     *
+     * @param generation The generation the editor's inventory was filled from
+     * @param slots      Slot -> new contents, null for emptied slots
+     * @return false if the side has changed generation since, nothing is written
+     */
+    public boolean putSlots(String tradeId, boolean isSender, long generation, Map<Integer, ItemStack> slots) {
+        Entry entry = entries.get(tradeId);
+        if (entry == null || !entry.setSlots(isSender, generation, slots)) {
+            return false;
+        }
+        scheduleFlush();
+        return true;
+    }
+
+    /**
+     * Empties one side of a trade vault whose database copy has already been
+     * cleared, dropping any pending write for it. Starts a new generation, so
+     * edits from inventories opened before are rejected.
+     */
+    public void clear(String tradeId, boolean isSender) {
+        Entry entry = entries.get(tradeId);
+        if (entry != null) {
+            entry.clear(isSender, generations.incrementAndGet());
+        }
+    }
+
+    /**
+     * Forgets a trade, including changes that haven't been written yet. Used
+     * when the trade is deleted. A load that is still running won't cache the
+     * trade again.
+     */
+    public void invalidate(String tradeId) {
+        loading.compute(tradeId, (k, pending) -> {
+            entries.remove(tradeId);
+            return null;
+        });
+    }
+
+    /**
+     * Loads a trade vault, joining the load that is already running for it
+     *
+     * @return Future completing with the cached entry, or exceptionally if the
+     *         read failed or the trade was invalidated while loading
+     */
+    private CompletableFuture<Entry> load(String tradeId) {
+        CompletableFuture<Entry> loaded = new CompletableFuture<>();
+        CompletableFuture<Entry> pending = loading.putIfAbsent(tradeId, loaded);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                load(tradeId, loaded);
+            } catch (RuntimeException e) {
+                loading.remove(tradeId, loaded);
+                loaded.completeExceptionally(e);
+            }
+        });
+        return loaded;
+    }
+
+    private void load(String tradeId, CompletableFuture<Entry> loaded) {
+        Entry read = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Entry>() {
+            @Override
+            public Entry execute(Connection conn, DSLContext context) throws SQLException {
+                Record record = context.select(DSL.field("sending_items_vault"),
+                        DSL.field("receiving_items_vault"))
+                        .from("trade_vaults")
+                        .where(DSL.field("trade_id").eq(tradeId))
+                        .fetchOne();
+
+                Entry entry = new Entry(generations.incrementAndGet());
+                if (record != null) {
+                    entry.sending = deserialize(record.get("sending_items_vault", String.class));
+                    entry.receiving = deserialize(record.get("receiving_items_vault", String.class));
+                }
+                return entry;
+            }
+        });
+
+        if (read == null) {
+            // Nothing is cached, an empty side could be edited and overwrite the stored items
+            loading.remove(tradeId, loaded);
+            loaded.completeExceptionally(new IllegalStateException("Failed to load trade vault " + tradeId));
+            return;
+        }
+
+        // An edit made while loading wins over what was read, an invalidated trade isn't cached again
+        Entry[] cached = { null };
+        loading.computeIfPresent(tradeId, (k, pending) -> {
+            if (pending != loaded) {
+                return pending;
+            }
+            Entry existing = entries.putIfAbsent(tradeId, read);
+            cached[0] = existing != null ? existing : read;
+            return null;
+        });
+        if (cached[0] == null) {
+            loaded.completeExceptionally(
+                    new IllegalStateException("Trade vault " + tradeId + " was removed while loading"));
+            return;
+        }
+        debug(() -> "Loaded trade vault " + tradeId);
+        loaded.complete(cached[0]);
+    }
+
+    private synchronized void scheduleFlush() {
+        if (flushTask != null) {
+            return;
+        }
+        long delayTicks = plugin.getConfigManager().getTradeVaultSaveDelaySeconds() * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, this::flush, delayTicks);
+    }
+
+    /**
+     * Writes every dirty trade vault side in one database operation. Sides that
+     * fail to save stay dirty and are retried with the next flush. A flush that
+     * is already writing is waited for, so once this returns every change made
+     * before the call is on disk.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel();
+                flushTask = null;
+            }
+        }
+
+        synchronized (flushLock) {
+            writeDirty();
+        }
+    }
+
+    private void writeDirty() {
+        List<PendingWrite> writes = new ArrayList<>();
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            synchronized (entry) {
+                if (entry.sendingDirty) {
+                    writes.add(new PendingWrite(cached.getKey(), true, serialize(entry.sending)));
+                    entry.sendingDirty = false;
+                }
+                if (entry.receivingDirty) {
+                    writes.add(new PendingWrite(cached.getKey(), false, serialize(entry.receiving)));
+                    entry.receivingDirty = false;
+                }
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        Boolean written = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            @Override
+            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                for (PendingWrite write : writes) {
+                    String field = write.sender ? "sending_items_vault" : "receiving_items_vault";
+                    int updated = context.update(DSL.table("trade_vaults"))
+                            .set(DSL.field(field), write.itemsJson)
+                            .where(DSL.field("trade_id").eq(write.tradeId))
+                            .execute();
+
+                    if (updated == 0 && entries.containsKey(write.tradeId)) {
+                        // Create the trade vault row if it doesn't exist yet
+                        context.insertInto(
+                                DSL.table("trade_vaults"),
+                                DSL.field("id"),
+                                DSL.field("trade_id"),
+                                DSL.field(field))
+                                .values(UUID.randomUUID().toString(), write.tradeId, write.itemsJson)
+                                .execute();
+                    }
+                }
+                return true;
+            }
+        });
+
+        if (written == null || !written) {
+            plugin.getLogger().warning("Failed to save " + writes.size() + " trade vaults, they will be retried");
+            for (PendingWrite write : writes) {
+                Entry entry = entries.get(write.tradeId);
+                if (entry != null) {
+                    entry.markDirty(write.sender);
+                }
+            }
+            scheduleFlush();
+            return;
+        }
+        debug(() -> "Saved " + writes.size() + " trade vault sides");
+    }
+
+    /**
+     * Drops trades that nobody has opened or edited recently and that have no
+     * unsaved changes or viewers
+     */
+    private void evictIdle() {
+        long idleMillis = plugin.getConfigManager().getTradeVaultCacheIdleMinutes() * 60_000L;
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int before = entries.size();
+
+        entries.entrySet().removeIf(cached -> {
+            Entry entry = cached.getValue();
+            synchronized (entry) {
+                return entry.lastAccess < cutoff && !entry.sendingDirty && !entry.receivingDirty
+                        && !plugin.getVaultUpdateManager().hasTradeVaultViewers(cached.getKey());
+            }
+        });
+
+        int evicted = before - entries.size();
+        if (evicted > 0) {
+            debug(() -> "Evicted " + evicted + " idle trade vaults");
+        }
+    }
+
+    private ItemStack[] deserialize(String itemsJson) {
+        ItemStack[] items = new ItemStack[VAULT_SIZE];
+        if (itemsJson == null || itemsJson.isEmpty()) {
+            return items;
+        }
+
+        List<Map<String, Object>> itemsList = gson.fromJson(
+                itemsJson, new TypeToken<List<Map<String, Object>>>() {
+                }.getType());
+
+        // Slots are kept in place, empty slots are stored as null
+        for (int i = 0; i < itemsList.size() && i < items.length; i++) {
+            Map<String, Object> itemMap = itemsList.get(i);
+            if (itemMap != null) {
+                try {
+                    items[i] = ItemStack.deserialize(itemMap);
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Failed to deserialize trade item: " + e.getMessage());
+                }
+            }
+        }
+        return items;
+    }
+
+    private String serialize(ItemStack[] items) {
+        List<Map<String, Object>> serializedItems = new ArrayList<>();
+        for (ItemStack item : items) {
+            if (item != null) {
+                try {
+                    serializedItems.add(item.serialize());
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Failed to serialize trade item: " + e.getMessage());
+                    serializedItems.add(null);
+                }
+            } else {
+                serializedItems.add(null);
+            }
+        }
+        return gson.toJson(serializedItems);
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE, message);
+    }
+
+    /**
+     * Both sides of one trade vault. Arrays are replaced rather than modified,
+     * so callers always get their own copy.
+     */
+    private static class Entry {
+        private ItemStack[] sending = new ItemStack[VAULT_SIZE];
+        private ItemStack[] receiving = new ItemStack[VAULT_SIZE];
+        private boolean sendingDirty;
+        private boolean receivingDirty;
+        private long sendingGeneration;
+        private long receivingGeneration;
+        private long lastAccess = System.currentTimeMillis();
+        private Manifest manifest; // Built on demand from the sending side
+
+        private Entry(long generation) {
+            this.sendingGeneration = generation;
+            this.receivingGeneration = generation;
+        }
+
+        private synchronized ItemStack[] get(boolean isSender) {
+            lastAccess = System.currentTimeMillis();
+            return copy(isSender ? sending : receiving);
+        }
+
+        private synchronized Contents getContents(boolean isSender) {
+            lastAccess = System.currentTimeMillis();
+            return new Contents(copy(isSender ? sending : receiving), getGeneration(isSender));
+        }
+
+        private synchronized long getGeneration(boolean isSender) {
+            return isSender ? sendingGeneration : receivingGeneration;
+        }
+
+        private synchronized void set(boolean isSender, ItemStack[] items, boolean dirty) {
+            lastAccess = System.currentTimeMillis();
+            if (isSender) {
+                sending = copy(items);
+                sendingDirty = dirty;
+                manifest = null;
+            } else {
+                receiving = copy(items);
+                receivingDirty = dirty;
+            }
+        }
+
+        private synchronized void clear(boolean isSender, long generation) {
+            set(isSender, new ItemStack[VAULT_SIZE], false);
+            if (isSender) {
+                sendingGeneration = generation;
+            } else {
+                receivingGeneration = generation;
+            }
+        }
+
+        private synchronized boolean setSlots(boolean isSender, long generation, Map<Integer, ItemStack> slots) {
+            if (generation != getGeneration(isSender)) {
+                return false;
+            }
+            lastAccess = System.currentTimeMillis();
+            ItemStack[] items = copy(isSender ? sending : receiving);
+            for (Map.Entry<Integer, ItemStack> slot : slots.entrySet()) {
+                if (slot.getKey() < items.length) {
+                    items[slot.getKey()] = slot.getValue() != null ? slot.getValue().clone() : null;
+                }
+            }
+            if (isSender) {
+                sending = items;
+                sendingDirty = true;
+                manifest = null;
+            } else {
+                receiving = items;
+                receivingDirty = true;
+            }
+            return true;
+        }
+
+        private synchronized Manifest getManifest() {
+            lastAccess = System.currentTimeMillis();
+            if (manifest == null) {
+                manifest = new Manifest(sending);
+            }
+            return manifest;
+        }
+
+        private synchronized void markDirty(boolean isSender) {
+            if (isSender) {
+                sendingDirty = true;
+            } else {
+                receivingDirty = true;
+            }
+        }
+
+        private static ItemStack[] copy(ItemStack[] items) {
+            ItemStack[] copy = new ItemStack[Math.max(VAULT_SIZE, items.length)];
+            for (int i = 0; i < items.length; i++) {
+                copy[i] = items[i] != null ? items[i].clone() : null;
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * A copy of one side of a trade vault and the generation it was read at
+     */
+    public static class Contents {
+        private final ItemStack[] items;
+        private final long generation;
+
+        private Contents(ItemStack[] items, long generation) {
+            this.items = items;
+            this.generation = generation;
+        }
+
+        public ItemStack[] getItems() {
+            return items;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+    }
+
+    /**
+     * The items a trade sends on each execution, with the item ratio used to
+     * scale the power award. Immutable, so it can be shared between executions.
+     */
+    public static class Manifest {
+        private final List<ItemStack> items;
+        private final double ratio;
+
+        private Manifest(ItemStack[] sending) {
+            List<ItemStack> list = new ArrayList<>();
+            for (ItemStack item : sending) {
+                if (item != null && !item.getType().isAir()) {
+                    list.add(item.clone());
+                }
+            }
+            this.items = Collections.unmodifiableList(list);
+
+            // Ratio of the items to one row of full stacks, capped at 1.0
+            int maxPossibleItems = TradeItemsUtil.calculateMaxItemVolume(1);
+            this.ratio = Math.min((double) TradeItemsUtil.calculateTotalItemCount(sending) / maxPossibleItems, 1.0);
+        }
+
+        public boolean isEmpty() {
+            return items.isEmpty();
+        }
+
+        /**
+         * @return Copies of the items, safe to hand over to a vault
+         */
+        public List<ItemStack> copyItems() {
+            List<ItemStack> copy = new ArrayList<>(items.size());
+            for (ItemStack item : items) {
+                copy.add(item.clone());
+            }
+            return copy;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+    }
+
+    private static class PendingWrite {
+        private final String tradeId;
+        private final boolean sender;
+        private final String itemsJson;
+
+        private PendingWrite(String tradeId, boolean sender, String itemsJson) {
+            this.tradeId = tradeId;
+            this.sender = sender;
+            this.itemsJson = itemsJson;
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.tatayless.sovereignty.services.trade;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.tatayless.sovereignty.Sovereignty;
-import com.tatayless.sovereignty.database.DatabaseOperation;
 import com.tatayless.sovereignty.models.Trade;
 import com.tatayless.sovereignty.services.TradeService;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -17,16 +16,15 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
-import org.jooq.DSLContext;
-import org.jooq.Record;
-import org.jooq.impl.DSL;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class TradeVaultHandler {
 
@@ -39,7 +37,10 @@ public class TradeVaultHandler {
     public static final int INFO_BUTTON_SLOT = 4; // Middle of top row
 
     // Cache for vault items
-    private final Map<String, Map<Boolean, ItemStack[]>> tradeVaultItems = new HashMap<>();
+    private final TradeVaultCache vaultCache;
+
+    // Trades whose sending side is being delivered and can't be opened, main thread only
+    private final Set<String> deliveringTrades = new HashSet<>();
 
     // NamespacedKeys for PersistentDataContainer
     private final NamespacedKey buttonTypeKey;
@@ -50,6 +51,7 @@ public class TradeVaultHandler {
         this.tradeService = tradeService;
         this.plugin = plugin;
         this.gson = new Gson();
+        this.vaultCache = new TradeVaultCache(plugin, gson);
 
         // Initialize NamespacedKeys
         this.buttonTypeKey = new NamespacedKey(plugin, "trade_button_type");
@@ -65,16 +67,43 @@ public class TradeVaultHandler {
         }
 
         boolean isSender = trade.getSendingNationId().equals(nationId);
+
+        // Load the vault contents off the main thread, then open it
+        vaultCache.getContents(tradeId, isSender).thenAccept(contents -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (!player.isOnline() || !tradeService.getActiveTrades().containsKey(tradeId)) {
+                return;
+            }
+            if (contents.getGeneration() != vaultCache.getGeneration(tradeId, isSender)) {
+                // Emptied by a delivery while loading, read it again
+                openTradeVault(player, nationId, tradeId);
+                return;
+            }
+            openTradeVault(player, nationId, trade, isSender, contents);
+        })).exceptionally(e -> {
+            plugin.getLogger().warning("Failed to open trade vault " + tradeId + ": " + e.getMessage());
+            player.sendMessage(plugin.getLocalizationManager().getComponent("trade.vault-load-failed"));
+            return null;
+        });
+    }
+
+    private void openTradeVault(Player player, String nationId, Trade trade, boolean isSender,
+            TradeVaultCache.Contents contents) {
+        String tradeId = trade.getId();
+        if (isSender && deliveringTrades.contains(tradeId)) {
+            player.sendMessage(plugin.getLocalizationManager().getComponent("trade.vault-delivering"));
+            return;
+        }
+
         String title = isSender ? "Trade Sending Vault" : "Trade Receiving Vault";
+        ItemStack[] vaultItems = contents.getItems();
 
         // Create inventory with custom holder
-        TradeVaultInventoryHolder holder = new TradeVaultInventoryHolder(tradeId, nationId, isSender);
+        TradeVaultInventoryHolder holder = new TradeVaultInventoryHolder(tradeId, nationId, isSender,
+                contents.getGeneration());
         Inventory inventory = Bukkit.createInventory(holder, 54,
                 net.kyori.adventure.text.Component.text(title + ": " + trade.getId()));
         holder.setInventory(inventory);
 
-        // Retrieve items from the vault
-        ItemStack[] vaultItems = getTradeVaultItems(tradeId, isSender);
         if (vaultItems != null) {
             // Only copy items that aren't in special slots
             for (int i = 0; i < vaultItems.length && i < 54; i++) {
@@ -83,6 +112,7 @@ public class TradeVaultHandler {
                 }
             }
         }
+        holder.resetBaseline();
 
         // Add info button
         inventory.setItem(INFO_BUTTON_SLOT, createInfoButton(trade, isSender));
@@ -110,27 +140,28 @@ public class TradeVaultHandler {
             return;
         }
 
-        // Create a copy of the inventory contents, ignoring buttons
-        ItemStack[] contents = new ItemStack[inventory.getSize()];
-
-        for (int i = 0; i < contents.length; i++) {
-            // Skip button slots
-            if (i == CONFIRM_BUTTON_SLOT || i == INFO_BUTTON_SLOT) {
-                continue;
-            }
-            contents[i] = inventory.getItem(i);
+        // Only the slots this player changed are written, so concurrent editors don't overwrite each other
+        TradeVaultInventoryHolder holder = (TradeVaultInventoryHolder) inventory.getHolder();
+        Map<Integer, ItemStack> changed = holder.collectChanges();
+        if (changed.isEmpty()) {
+            return;
         }
 
         // Save items to database
-        TradeVaultInventoryHolder holder = (TradeVaultInventoryHolder) inventory.getHolder();
-        saveTradeVaultItems(holder.getTradeId(), holder.isSender(), contents);
+        if (!vaultCache.putSlots(holder.getTradeId(), holder.isSender(), holder.getGeneration(), changed)) {
+            // The vault was delivered or reloaded since this inventory was opened, its contents are stale
+            plugin.getLogger().warning("Dropped " + changed.size() + " stale trade vault slots from "
+                    + player.getName() + " for trade " + holder.getTradeId());
+            player.closeInventory();
+            return;
+        }
 
         // Update other viewers of this trade vault
         plugin.getVaultUpdateManager().updateTradeVaultViewers(
                 holder.getTradeId(),
                 holder.isSender(),
                 player.getUniqueId(),
-                inventory);
+                changed);
     }
 
     public void handleTradeVaultClick(InventoryClickEvent event, TradeSession session) {
@@ -270,134 +301,64 @@ public class TradeVaultHandler {
         return confirmButton;
     }
 
-    // Methods to interact with the database
+    // Trade vault contents, backed by the cache
     public ItemStack[] getTradeVaultItems(String tradeId, boolean isSender) {
-        // Check cache first
-        if (tradeVaultItems.containsKey(tradeId) &&
-                tradeVaultItems.get(tradeId).containsKey(isSender)) {
-            return tradeVaultItems.get(tradeId).get(isSender);
-        }
-
-        // Not in cache, load from database
-        return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<ItemStack[]>() {
-            @Override
-            public ItemStack[] execute(Connection conn, DSLContext context) throws SQLException {
-                String field = isSender ? "sender_items" : "receiver_items";
-
-                Record record = context.select(DSL.field(field))
-                        .from("trade_vaults")
-                        .where(DSL.field("trade_id").eq(tradeId))
-                        .fetchOne();
-
-                if (record == null) {
-                    // Create empty vault entry if it doesn't exist
-                    context.insertInto(
-                            DSL.table("trade_vaults"),
-                            DSL.field("trade_id"),
-                            DSL.field("execution_interval"))
-                            .values(tradeId, 24) // Default 24 hour interval
-                            .onDuplicateKeyIgnore()
-                            .execute();
-
-                    return new ItemStack[54];
-                }
-
-                String itemsJson = record.get(field, String.class);
-                if (itemsJson == null || itemsJson.isEmpty()) {
-                    return new ItemStack[54];
-                }
+        return vaultCache.getIfLoaded(tradeId, isSender);
+    }
 
-                // Deserialize items
-                List<Map<String, Object>> itemsList = gson.fromJson(
-                        itemsJson, new TypeToken<List<Map<String, Object>>>() {
-                        }.getType());
-
-                ItemStack[] items = new ItemStack[54];
-                int index = 0;
-                for (Map<String, Object> itemMap : itemsList) {
-                    if (index >= items.length)
-                        break;
-
-                    if (itemMap != null) {
-                        try {
-                            items[index] = ItemStack.deserialize(itemMap);
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Failed to deserialize trade item: " + e.getMessage());
-                        }
-                    }
-                    index++;
-                }
+    public void saveTradeVaultItems(String tradeId, boolean isSender, ItemStack[] items) {
+        vaultCache.put(tradeId, isSender, items);
+    }
 
-                // Store in cache
-                tradeVaultItems.computeIfAbsent(tradeId, k -> new HashMap<>())
-                        .put(isSender, items);
+    // Clear cache for a specific trade
+    public void clearCache(String tradeId) {
+        vaultCache.invalidate(tradeId);
+    }
 
-                return items;
-            }
-        });
+    public TradeVaultCache getVaultCache() {
+        return vaultCache;
     }
 
-    public void saveTradeVaultItems(String tradeId, boolean isSender, ItemStack[] items) {
-        // Update cache
-        tradeVaultItems.computeIfAbsent(tradeId, k -> new HashMap<>())
-                .put(isSender, items);
-
-        // Convert items to JSON
-        List<Map<String, Object>> serializedItems = new ArrayList<>();
-        for (ItemStack item : items) {
-            if (item != null) {
-                try {
-                    serializedItems.add(item.serialize());
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Failed to serialize trade item: " + e.getMessage());
-                }
-            } else {
-                serializedItems.add(null);
+    /**
+     * Takes the sending side of each trade for delivery. Trades whose sending
+     * side is open are left for a later run. Claimed sides can't be opened
+     * until {@link #releaseSendingVaults} is called, so what they send can't
+     * change before the delivery. Must be called on the main thread.
+     *
+     * @param trades The trades about to be executed, their vaults must be cached
+     * @return Trade ID -> what the trade sends, for the claimed trades
+     */
+    public Map<String, TradeVaultCache.Manifest> claimSendingVaults(List<Trade> trades) {
+        Map<String, TradeVaultCache.Manifest> claimed = new HashMap<>();
+        for (Trade trade : trades) {
+            String tradeId = trade.getId();
+            if (plugin.getVaultUpdateManager().hasTradeVaultViewers(tradeId, true)) {
+                plugin.getDebugLogger().debug(DebugLogger.Subsystem.TRADE,
+                        () -> "Deferring trade " + tradeId + ", its sending vault is open");
+                continue;
             }
-        }
 
-        String itemsJson = gson.toJson(serializedItems);
-        String field = isSender ? "sender_items" : "receiver_items";
-
-        // Save to database
-        plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
-            @Override
-            public Void execute(Connection conn, DSLContext context) throws SQLException {
-                // Check if entry exists
-                Record record = context.select(DSL.field("trade_id"))
-                        .from("trade_vaults")
-                        .where(DSL.field("trade_id").eq(tradeId))
-                        .fetchOne();
-
-                if (record == null) {
-                    // Create new entry
-                    context.insertInto(
-                            DSL.table("trade_vaults"),
-                            DSL.field("trade_id"),
-                            DSL.field(field),
-                            DSL.field("execution_interval"))
-                            .values(tradeId, itemsJson, 24)
-                            .execute();
-                } else {
-                    // Update existing entry
-                    context.update(DSL.table("trade_vaults"))
-                            .set(DSL.field(field), itemsJson)
-                            .where(DSL.field("trade_id").eq(tradeId))
-                            .execute();
-                }
-                return null;
+            TradeVaultCache.Manifest manifest = vaultCache.getLoadedManifest(tradeId);
+            if (manifest != null) {
+                deliveringTrades.add(tradeId);
+                claimed.put(tradeId, manifest);
             }
-        });
-    }
-
-    // Clear cache for a specific trade
-    public void clearCache(String tradeId) {
-        tradeVaultItems.remove(tradeId);
+        }
+        return claimed;
     }
 
-    // Clear all cache
-    public void clearAllCache() {
-        tradeVaultItems.clear();
+    /**
+     * Releases sending sides claimed for delivery, emptying the ones that were
+     * delivered. Must be called on the main thread.
+     *
+     * @param claimed   IDs of the claimed trades
+     * @param delivered IDs of the trades whose items were delivered
+     */
+    public void releaseSendingVaults(Collection<String> claimed, Collection<String> delivered) {
+        for (String tradeId : delivered) {
+            vaultCache.clear(tradeId, true);
+        }
+        deliveringTrades.removeAll(claimed);
     }
 
     // When a player closes the trade vault inventory
@@ -420,12 +381,17 @@ public class TradeVaultHandler {
         private final String tradeId;
         private final String nationId;
         private final boolean sender;
+        // Cache generation the contents were read at
+        private final long generation;
         private Inventory inventory;
+        // Contents this viewer last saved or was sent, changes are measured against it
+        private final ItemStack[] baseline = new ItemStack[54];
 
-        public TradeVaultInventoryHolder(String tradeId, String nationId, boolean sender) {
+        public TradeVaultInventoryHolder(String tradeId, String nationId, boolean sender, long generation) {
             this.tradeId = tradeId;
             this.nationId = nationId;
             this.sender = sender;
+            this.generation = generation;
         }
 
         @Override
@@ -448,6 +414,61 @@ public class TradeVaultHandler {
         public boolean isSender() {
             return sender;
         }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Takes the inventory's current contents as the baseline
+         */
+        public void resetBaseline() {
+            for (int i = 0; i < baseline.length && i < inventory.getSize(); i++) {
+                ItemStack item = inventory.getItem(i);
+                baseline[i] = item != null ? item.clone() : null;
+            }
+        }
+
+        /**
+         * Finds the slots this viewer changed since the last call and moves the
+         * baseline forward. Button slots are never reported.
+         *
+         * @return Slot -> new contents, null for emptied slots
+         */
+        public Map<Integer, ItemStack> collectChanges() {
+            Map<Integer, ItemStack> changed = new HashMap<>();
+            for (int i = 0; i < baseline.length && i < inventory.getSize(); i++) {
+                if (i == CONFIRM_BUTTON_SLOT || i == INFO_BUTTON_SLOT) {
+                    continue;
+                }
+                ItemStack item = inventory.getItem(i);
+                if (!Objects.equals(item, baseline[i])) {
+                    baseline[i] = item != null ? item.clone() : null;
+                    changed.put(i, item != null ? item.clone() : null);
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Writes slots changed by another viewer into this viewer's inventory,
+         * without reporting them as this viewer's changes
+         *
+         * @return The number of slots that differed
+         */
+        public int applyChanges(Map<Integer, ItemStack> changes) {
+            int applied = 0;
+            for (Map.Entry<Integer, ItemStack> change : changes.entrySet()) {
+                int slot = change.getKey();
+                ItemStack item = change.getValue();
+                baseline[slot] = item != null ? item.clone() : null;
+                if (!Objects.equals(item, inventory.getItem(slot))) {
+                    inventory.setItem(slot, item != null ? item.clone() : null);
+                    applied++;
+                }
+            }
+            return applied;
+        }
     }
 
     // Check if an item is a trade button by examining its PDC
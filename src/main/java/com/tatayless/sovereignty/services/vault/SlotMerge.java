@@ -0,0 +1,196 @@
+package com.tatayless.sovereignty.services.vault;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-slot three-way merge of a vault page.
+ * An editor's copy of a page is merged against the state it started from and
+ * the page's current contents, using a version per slot to tell whether anyone
+ * else wrote the slot in between. Items go through {@link Stacks}, so the merge
+ * has no Bukkit dependency and can be tested on its own. Callers are
+ * responsible for locking the page while merging.
+ */
+public final class SlotMerge {
+
+    private SlotMerge() {
+    }
+
+    /**
+     * How the merge reads and builds item stacks
+     */
+    public interface Stacks<T> {
+        /**
+         * @return true if the item counts as an empty slot, e.g. air
+         */
+        boolean isEmpty(T item);
+
+        /**
+         * @return true if the two items can share a stack
+         */
+        boolean isSimilar(T a, T b);
+
+        int getAmount(T item);
+
+        int getMaxStackSize(T item);
+
+        /**
+         * @return A new stack like the template with the given amount
+         */
+        T withAmount(T template, int amount);
+    }
+
+    /**
+     * The merged page and the items that didn't fit in it
+     */
+    public static final class Result<T> {
+        private final T[] merged;
+        private final List<T> displaced;
+        private final List<T> missing;
+
+        private Result(T[] merged, List<T> displaced, List<T> missing) {
+            this.merged = merged;
+            this.displaced = displaced;
+            this.missing = missing;
+        }
+
+        /**
+         * The new page contents
+         */
+        public T[] getMerged() {
+            return merged;
+        }
+
+        /**
+         * Items the editor added that lost a conflicting write and must go
+         * somewhere else
+         */
+        public List<T> getDisplaced() {
+            return displaced;
+        }
+
+        /**
+         * Items the editor took out that someone else had already taken
+         */
+        public List<T> getMissing() {
+            return missing;
+        }
+    }
+
+    /**
+     * Merges an editor's copy of a page into the current contents.
+     * Slots the editor didn't touch keep their current contents. A touched slot
+     * whose version still matches the base takes the editor's item. When both
+     * sides wrote a slot, the editor's change is replayed on top of the current
+     * stack: what the editor took out is removed from it and what the editor
+     * put in is added to it. Additions that don't fit are displaced, removals
+     * of items that are already gone are reported as missing.
+     *
+     * @param current      The page as it is now
+     * @param versions     The current version of every slot
+     * @param base         The page the editor started from
+     * @param baseVersions The slot versions read together with base
+     * @param edited       The editor's copy of the page
+     * @param size         The number of slots on a page
+     * @param stacks       How items are read and built
+     * @return The merged page, versions are not changed
+     */
+    public static <T> Result<T> merge(T[] current, long[] versions, T[] base, long[] baseVersions, T[] edited,
+            int size, Stacks<T> stacks) {
+        T[] merged = Arrays.copyOf(current, size);
+        List<T> displaced = new ArrayList<>();
+        List<T> missing = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            T before = slot(base, i, stacks);
+            T after = slot(edited, i, stacks);
+            T now = slot(current, i, stacks);
+
+            if (Objects.equals(before, after)) {
+                merged[i] = now; // Untouched by this editor
+                continue;
+            }
+            if (versions[i] == baseVersions[i]) {
+                merged[i] = copy(after, stacks); // Nobody else wrote it
+                continue;
+            }
+
+            // Split the editor's change into what was taken out and what was put in
+            T removed = null;
+            T added = null;
+            if (before != null && after != null && stacks.isSimilar(before, after)) {
+                int delta = stacks.getAmount(after) - stacks.getAmount(before);
+                if (delta < 0) {
+                    removed = stacks.withAmount(before, -delta);
+                } else if (delta > 0) {
+                    added = stacks.withAmount(after, delta);
+                }
+            } else {
+                removed = before;
+                added = after;
+            }
+
+            if (removed != null) {
+                int wanted = stacks.getAmount(removed);
+                int taken = now != null && stacks.isSimilar(now, removed)
+                        ? Math.min(wanted, stacks.getAmount(now))
+                        : 0;
+                if (taken > 0) {
+                    int left = stacks.getAmount(now) - taken;
+                    now = left > 0 ? stacks.withAmount(now, left) : null;
+                }
+                if (taken < wanted) {
+                    missing.add(stacks.withAmount(removed, wanted - taken));
+                }
+            }
+
+            if (added != null) {
+                int amount = stacks.getAmount(added);
+                if (now == null) {
+                    int placed = Math.min(amount, stacks.getMaxStackSize(added));
+                    now = stacks.withAmount(added, placed);
+                    amount -= placed;
+                } else if (stacks.isSimilar(now, added)) {
+                    int placed = Math.min(amount, stacks.getMaxStackSize(now) - stacks.getAmount(now));
+                    if (placed > 0) {
+                        now = stacks.withAmount(now, stacks.getAmount(now) + placed);
+                        amount -= placed;
+                    }
+                }
+                if (amount > 0) {
+                    displaced.add(stacks.withAmount(added, amount));
+                }
+            }
+
+            merged[i] = now;
+        }
+
+        return new Result<>(merged, displaced, missing);
+    }
+
+    /**
+     * Bumps the version of every slot whose contents differ between two
+     * versions of a page
+     */
+    public static <T> void bumpVersions(T[] previous, T[] next, long[] versions, Stacks<T> stacks) {
+        for (int i = 0; i < versions.length; i++) {
+            if (!Objects.equals(slot(previous, i, stacks), slot(next, i, stacks))) {
+                versions[i]++;
+            }
+        }
+    }
+
+    private static <T> T slot(T[] items, int index, Stacks<T> stacks) {
+        if (items == null || index >= items.length) {
+            return null;
+        }
+        T item = items[index];
+        return item != null && !stacks.isEmpty(item) ? item : null;
+    }
+
+    private static <T> T copy(T item, Stacks<T> stacks) {
+        return item != null ? stacks.withAmount(item, stacks.getAmount(item)) : null;
+    }
+}
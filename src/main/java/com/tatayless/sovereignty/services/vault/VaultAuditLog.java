@@ -0,0 +1,194 @@
+package com.tatayless.sovereignty.services.vault;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import org.bukkit.Material;
+import org.bukkit.scheduler.BukkitTask;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Append-only record of vault deposits and withdrawals.
+ * Entries are buffered in memory and written with a single JDBC batch insert
+ * every few seconds, so recording an entry never touches the database.
+ */
+public class VaultAuditLog {
+    private static final String INSERT_SQL = "INSERT INTO vault_audit_log "
+            + "(vault_id, player_id, player_name, material, amount, page, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final Sovereignty plugin;
+    private final Queue<Entry> buffer = new ConcurrentLinkedQueue<>();
+    private BukkitTask flushTask;
+
+    public VaultAuditLog(Sovereignty plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (flushTask != null || !plugin.getConfigManager().isVaultAuditEnabled()) {
+            return;
+        }
+        long intervalTicks = plugin.getConfigManager().getVaultAuditFlushSeconds() * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush,
+                intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Stops the flush task and writes out whatever is still buffered
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Buffers a deposit (positive amount) or withdrawal (negative amount)
+     */
+    public void record(String vaultId, String playerId, String playerName, Material material, int amount,
+            int page) {
+        if (amount == 0 || !plugin.getConfigManager().isVaultAuditEnabled()) {
+            return;
+        }
+        buffer.add(new Entry(vaultId, playerId, playerName, material.name(), amount, page,
+                System.currentTimeMillis()));
+    }
+
+    private synchronized void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        List<Entry> batch = new ArrayList<>();
+        Entry entry;
+        while ((entry = buffer.poll()) != null) {
+            batch.add(entry);
+        }
+
+        Boolean written = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            @Override
+            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                try (PreparedStatement statement = conn.prepareStatement(INSERT_SQL)) {
+                    for (Entry e : batch) {
+                        statement.setString(1, e.vaultId);
+                        statement.setString(2, e.playerId);
+                        statement.setString(3, e.playerName);
+                        statement.setString(4, e.material);
+                        statement.setInt(5, e.amount);
+                        statement.setInt(6, e.page);
+                        statement.setLong(7, e.createdAt);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                return true;
+            }
+        });
+
+        if (written == null || !written) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write " + batch.size()
+                    + " vault audit entries, they will be retried");
+            buffer.addAll(batch);
+            return;
+        }
+        debug(() -> "Wrote " + batch.size() + " vault audit entries");
+    }
+
+    /**
+     * Reads one page of a vault's audit log, newest first. Entries still in the
+     * buffer aren't included until the next flush.
+     *
+     * @param vaultId  The vault to read
+     * @param page     Zero-based page number
+     * @param pageSize Entries per page
+     */
+    public CompletableFuture<List<Entry>> query(String vaultId, int page, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> plugin.getDatabaseManager()
+                .executeWithLock(new DatabaseOperation<List<Entry>>() {
+                    @Override
+                    public List<Entry> execute(Connection conn, DSLContext context) throws SQLException {
+                        List<Entry> entries = new ArrayList<>();
+                        for (Record record : context.select().from("vault_audit_log")
+                                .where(DSL.field("vault_id").eq(vaultId))
+                                .orderBy(DSL.field("id").desc())
+                                .limit(pageSize)
+                                .offset(page * pageSize)
+                                .fetch()) {
+                            entries.add(new Entry(
+                                    record.get("vault_id", String.class),
+                                    record.get("player_id", String.class),
+                                    record.get("player_name", String.class),
+                                    record.get("material", String.class),
+                                    record.get("amount", Integer.class),
+                                    record.get("page", Integer.class),
+                                    record.get("created_at", Long.class)));
+                        }
+                        return entries;
+                    }
+                }));
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.VAULT, message);
+    }
+
+    public static class Entry {
+        private final String vaultId;
+        private final String playerId;
+        private final String playerName;
+        private final String material;
+        private final int amount;
+        private final int page;
+        private final long createdAt;
+
+        private Entry(String vaultId, String playerId, String playerName, String material, int amount, int page,
+                long createdAt) {
+            this.vaultId = vaultId;
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.material = material;
+            this.amount = amount;
+            this.page = page;
+            this.createdAt = createdAt;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public String getMaterial() {
+            return material;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
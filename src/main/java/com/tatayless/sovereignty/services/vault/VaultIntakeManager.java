@@ -0,0 +1,212 @@
+package com.tatayless.sovereignty.services.vault;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.models.ChunkLocation;
+import com.tatayless.sovereignty.models.Nation;
+import com.tatayless.sovereignty.services.VaultService;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Hopper;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Feeds items from marked hoppers into nation vaults.
+ * Hoppers that receive items are queued by the listener and drained once per
+ * tick, with every item for the same nation deposited in a single batch. The
+ * vaults touched by intake are only saved once per save window, so a large
+ * farm doesn't cause a database write for every item it moves.
+ */
+public class VaultIntakeManager {
+    private final Sovereignty plugin;
+    private final VaultService vaultService;
+    private final NamespacedKey intakeKey;
+
+    // Only touched from the main thread
+    private final Set<Location> pendingHoppers = new LinkedHashSet<>();
+    private final Set<String> dirtyNations = new HashSet<>();
+    private boolean drainScheduled;
+    private BukkitTask saveTask;
+
+    public VaultIntakeManager(Sovereignty plugin, VaultService vaultService) {
+        this.plugin = plugin;
+        this.vaultService = vaultService;
+        this.intakeKey = new NamespacedKey(plugin, "vault_intake");
+    }
+
+    /**
+     * Gets the nation an intake hopper feeds, without taking a block state
+     * snapshot
+     *
+     * @return The nation ID, or null if the holder isn't an intake hopper
+     */
+    public String getIntakeNationId(InventoryHolder holder) {
+        if (!(holder instanceof Hopper)) {
+            return null;
+        }
+        return ((Hopper) holder).getPersistentDataContainer().get(intakeKey, PersistentDataType.STRING);
+    }
+
+    public String getIntakeNationId(Block block) {
+        BlockState state = block.getState(false);
+        return state instanceof Hopper ? getIntakeNationId((Hopper) state) : null;
+    }
+
+    /**
+     * Marks a hopper as a vault intake for a nation
+     *
+     * @return true if the block is a hopper
+     */
+    public boolean setIntake(Block block, String nationId) {
+        // Toggling is rare, so use a snapshot and write it back so the flag is saved with the chunk
+        BlockState state = block.getState();
+        if (!(state instanceof Hopper)) {
+            return false;
+        }
+
+        Hopper hopper = (Hopper) state;
+        if (nationId != null) {
+            hopper.getPersistentDataContainer().set(intakeKey, PersistentDataType.STRING, nationId);
+        } else {
+            hopper.getPersistentDataContainer().remove(intakeKey);
+        }
+        hopper.update();
+
+        if (nationId != null) {
+            queue(block.getLocation());
+        }
+        return true;
+    }
+
+    /**
+     * Queues a hopper to be drained on the next tick
+     */
+    public void queue(Location location) {
+        if (!plugin.getConfigManager().isVaultIntakeEnabled()) {
+            return;
+        }
+
+        pendingHoppers.add(location);
+        if (!drainScheduled) {
+            drainScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled = false;
+
+        int budget = plugin.getConfigManager().getVaultIntakeMaxStacksPerTick();
+        Map<String, List<ItemStack>> batches = new HashMap<>();
+        Iterator<Location> iterator = pendingHoppers.iterator();
+
+        while (iterator.hasNext() && budget > 0) {
+            Location location = iterator.next();
+            iterator.remove();
+
+            if (!location.isWorldLoaded()
+                    || !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                continue;
+            }
+
+            Block block = location.getBlock();
+            String nationId = getIntakeNationId(block);
+            if (nationId == null || !isInTerritory(nationId, block)) {
+                continue;
+            }
+
+            VaultService.NationVault vault = vaultService.getLoadedVault(nationId);
+            if (vault == null) {
+                // Load it now, the hopper is picked up again on its next transfer
+                vaultService.getOrCreateVault(nationId);
+                continue;
+            }
+
+            Inventory inventory = ((Hopper) block.getState(false)).getInventory();
+            List<ItemStack> batch = batches.computeIfAbsent(nationId, k -> new ArrayList<>());
+            for (int slot = 0; slot < inventory.getSize(); slot++) {
+                ItemStack item = inventory.getItem(slot);
+                if (item == null || item.getType().isAir()) {
+                    continue;
+                }
+                if (budget == 0) {
+                    pendingHoppers.add(location); // Finish this hopper on the next tick
+                    break;
+                }
+                batch.add(item.clone());
+                inventory.setItem(slot, null);
+                budget--;
+            }
+        }
+
+        for (Map.Entry<String, List<ItemStack>> entry : batches.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+
+            VaultService.NationVault vault = vaultService.getLoadedVault(entry.getKey());
+            int overflowed = vaultService.depositItems(vault, entry.getValue());
+            dirtyNations.add(entry.getKey());
+
+            debug(() -> "Intake deposited " + entry.getValue().size() + " stacks into vault " + vault.getId()
+                    + (overflowed > 0 ? " (" + overflowed + " to overflow)" : ""));
+        }
+
+        if (!dirtyNations.isEmpty() && saveTask == null) {
+            long delayTicks = plugin.getConfigManager().getVaultIntakeSaveDelaySeconds() * 20L;
+            saveTask = plugin.getServer().getScheduler().runTaskLater(plugin, this::flushSaves, delayTicks);
+        }
+
+        if (!pendingHoppers.isEmpty() && !drainScheduled) {
+            drainScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::drain);
+        }
+    }
+
+    /**
+     * Saves every vault that received items since the last flush
+     *
+     * @return Future completing once all saves have finished
+     */
+    public CompletableFuture<Void> flushSaves() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+
+        List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+        for (String nationId : dirtyNations) {
+            VaultService.NationVault vault = vaultService.getLoadedVault(nationId);
+            if (vault != null) {
+                saves.add(vaultService.saveVault(vault));
+            }
+        }
+        debug(() -> "Flushing intake saves for " + dirtyNations.size() + " vaults");
+        dirtyNations.clear();
+
+        return CompletableFuture.allOf(saves.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Intake only works while the hopper stays in the nation's territory
+     */
+    private boolean isInTerritory(String nationId, Block block) {
+        Nation owner = plugin.getServiceManager().getNationService()
+                .getNationByChunk(new ChunkLocation(block.getChunk()));
+        return owner != null && owner.getId().equals(nationId);
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.VAULT, message);
+    }
+}
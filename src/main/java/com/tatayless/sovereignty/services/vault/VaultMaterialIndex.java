@@ -0,0 +1,88 @@
+package com.tatayless.sovereignty.services.vault;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-vault index of item amounts by material and page.
+ * The index is updated incrementally from the old and new contents of a page
+ * whenever the page is replaced, so lookups never have to scan the vault.
+ */
+public class VaultMaterialIndex {
+    private final Map<Material, Entry> entries = new EnumMap<>(Material.class);
+
+    /**
+     * Applies the difference between the previous and new contents of a page
+     *
+     * @param page     The page that changed
+     * @param oldItems The previous page contents, may be null
+     * @param newItems The new page contents, may be null
+     */
+    public synchronized void updatePage(int page, ItemStack[] oldItems, ItemStack[] newItems) {
+        int length = Math.max(oldItems != null ? oldItems.length : 0, newItems != null ? newItems.length : 0);
+        for (int i = 0; i < length; i++) {
+            ItemStack oldItem = oldItems != null && i < oldItems.length ? oldItems[i] : null;
+            ItemStack newItem = newItems != null && i < newItems.length ? newItems[i] : null;
+            if (oldItem == newItem) {
+                continue;
+            }
+            if (oldItem != null && !oldItem.getType().isAir()) {
+                adjust(oldItem.getType(), page, -oldItem.getAmount());
+            }
+            if (newItem != null && !newItem.getType().isAir()) {
+                adjust(newItem.getType(), page, newItem.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Total amount of a material across all pages
+     */
+    public synchronized int count(Material material) {
+        Entry entry = entries.get(material);
+        return entry != null ? entry.total : 0;
+    }
+
+    /**
+     * Amount of a material on each page that holds it, ordered by page
+     */
+    public synchronized Map<Integer, Integer> getPageCounts(Material material) {
+        Entry entry = entries.get(material);
+        return entry != null ? new TreeMap<>(entry.pageCounts) : new TreeMap<>();
+    }
+
+    /**
+     * Lowest page holding the material, or -1 if the vault has none
+     */
+    public synchronized int findFirstPage(Material material) {
+        Entry entry = entries.get(material);
+        return entry != null && !entry.pageCounts.isEmpty() ? entry.pageCounts.firstKey() : -1;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private void adjust(Material material, int page, int amount) {
+        Entry entry = entries.computeIfAbsent(material, k -> new Entry());
+        entry.total += amount;
+        int pageCount = entry.pageCounts.getOrDefault(page, 0) + amount;
+        if (pageCount > 0) {
+            entry.pageCounts.put(page, pageCount);
+        } else {
+            entry.pageCounts.remove(page);
+        }
+        if (entry.total <= 0) {
+            entries.remove(material);
+        }
+    }
+
+    private static class Entry {
+        private int total;
+        private final TreeMap<Integer, Integer> pageCounts = new TreeMap<>();
+    }
+}
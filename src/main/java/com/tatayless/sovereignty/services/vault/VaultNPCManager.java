@@ -2,8 +2,13 @@ package com.tatayless.sovereignty.services.vault;
 
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.models.ChunkLocation;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import com.tatayless.sovereignty.utils.NPCTagUtil;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -15,113 +20,233 @@ import org.jooq.impl.DSL;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Places and removes nation vault NPCs.
+ * Each NPC carries its vault ID in its persistent data, so it is recognised
+ * directly from the entity and survives restarts without being respawned.
+ * Stored NPC locations are indexed by chunk and only checked when that
+ * chunk's entities load, which respawns an NPC that went missing and removes
+ * ones whose vault has its NPC somewhere else or no NPC at all. NPCs placed
+ * before tagging are adopted at that point instead of respawned.
+ */
 public class VaultNPCManager {
+    private static final long RETRY_DELAY_TICKS = 20L * 60; // A failed index read is retried after a minute
+
     private final Sovereignty plugin;
-    private final Map<Integer, String> entityToVault = new HashMap<>(); // Maps entity ID to vault ID
+    private final NamespacedKey vaultKey;
+
+    // Chunk -> vault ID -> NPC position, keyed by world name so worlds loaded later are covered too
+    private final Map<ChunkLocation, Map<String, Position>> npcsByChunk = new ConcurrentHashMap<>();
+    private final Map<String, ChunkLocation> chunkByVault = new ConcurrentHashMap<>();
+    // Set once the stored locations were read successfully, until then nothing is spawned or removed
+    private volatile boolean indexed;
 
     public VaultNPCManager(Sovereignty plugin) {
         this.plugin = plugin;
+        this.vaultKey = new NamespacedKey(plugin, "vault_npc");
     }
 
-    public Map<Integer, String> getEntityToVaultMap() {
-        return entityToVault;
+    /**
+     * Gets the vault a vault NPC opens
+     *
+     * @return The vault ID, or null if the entity isn't a vault NPC
+     */
+    public String getVaultIdFromEntity(Entity entity) {
+        return NPCTagUtil.getTag(entity, vaultKey);
     }
 
-    public String getVaultIdFromEntity(int entityId) {
-        return entityToVault.get(entityId);
+    /**
+     * Reads the stored NPC locations into the chunk index. No chunks are
+     * loaded, NPCs in chunks that are already loaded are checked once the
+     * index is ready. If the read fails it is retried later, until then
+     * vault NPCs are left alone.
+     */
+    public void loadNPCLocations() {
+        CompletableFuture.runAsync(() -> {
+            DatabaseOperation<Result<Record>> read = new DatabaseOperation<Result<Record>>() {
+                @Override
+                public Result<Record> execute(Connection conn, DSLContext context) throws SQLException {
+                    return context.select().from("vault_npcs").fetch();
+                }
+            };
+            Result<Record> records = plugin.getDatabaseManager().executeWithLock(read);
+            if (records == null) {
+                plugin.getLogger().severe("Failed to read vault NPC locations, retrying in a minute");
+                Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::loadNPCLocations, RETRY_DELAY_TICKS);
+                return;
+            }
+
+            for (Record record : records) {
+                String worldName = record.get("world", String.class);
+                if (worldName != null) {
+                    Position position = new Position(record.get("x", Double.class), record.get("y", Double.class),
+                            record.get("z", Double.class));
+                    index(record.get("nation_vault_id", String.class), worldName, position);
+                }
+            }
+
+            plugin.getLogger().info("Indexed " + chunkByVault.size() + " vault NPCs in "
+                    + npcsByChunk.size() + " chunks");
+            indexed = true;
+
+            // Chunks that loaded before the index was ready were skipped, check them now
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                for (ChunkLocation chunkLocation : npcsByChunk.keySet()) {
+                    World world = Bukkit.getWorld(chunkLocation.getWorldName());
+                    if (world != null && world.isChunkLoaded(chunkLocation.getX(), chunkLocation.getZ())) {
+                        Chunk chunk = world.getChunkAt(chunkLocation.getX(), chunkLocation.getZ());
+                        materialize(chunk, Arrays.asList(chunk.getEntities()));
+                    }
+                }
+            });
+        });
     }
 
     /**
-     * Loads all vault NPCs from the database and respawns them in the world
+     * Makes sure a chunk whose entities just loaded holds exactly the vault
+     * NPCs the index expects. A missing NPC is replaced by an untagged one
+     * placed before tagging if there is one at its location, otherwise it is
+     * respawned. An NPC is only removed when its vault's NPC is indexed in
+     * another chunk, when it duplicates one, or once the database confirms
+     * its vault has no NPC. Does nothing until the stored locations have
+     * been indexed, loaded chunks are caught up once they are.
+     *
+     * @param chunk    The chunk
+     * @param entities The entities that were loaded with it
      */
-    public void loadAndRespawnNPCs() {
-        plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
-            @Override
-            public Void execute(Connection conn, DSLContext context) throws SQLException {
-                // First load the NPC to vault mappings
-                Result<Record> npcResults = context.select().from("vault_npcs").fetch();
-
-                for (Record record : npcResults) {
-                    int entityId = record.get("entity_id", Integer.class);
-                    String vaultId = record.get("nation_vault_id", String.class);
-                    entityToVault.put(entityId, vaultId);
-                }
+    public void materialize(Chunk chunk, List<Entity> entities) {
+        if (!indexed) {
+            return;
+        }
 
-                plugin.getLogger().info("Loaded " + entityToVault.size() + " vault NPC mappings from database");
+        ChunkLocation chunkLocation = new ChunkLocation(chunk);
+        Map<String, Position> expected = npcsByChunk.get(chunkLocation);
+        Set<String> present = new HashSet<>();
+        Map<String, List<UUID>> unindexed = new HashMap<>();
 
-                // Now respawn all NPCs
-                respawnAllNPCs(context);
+        for (Entity entity : entities) {
+            String vaultId = getVaultIdFromEntity(entity);
+            if (vaultId == null) {
+                continue;
+            }
+            ChunkLocation indexedChunk = chunkByVault.get(vaultId);
+            if (indexedChunk == null) {
+                unindexed.computeIfAbsent(vaultId, k -> new ArrayList<>()).add(entity.getUniqueId());
+                continue;
+            }
+            // NPCs left behind by a move, and duplicates, are removed
+            if (!indexedChunk.equals(chunkLocation) || !present.add(vaultId)) {
+                entity.remove();
+                debug(() -> "Removed stale vault NPC for vault " + vaultId);
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            removeUnstored(unindexed);
+        }
+
+        if (expected == null) {
+            return;
+        }
+        for (Map.Entry<String, Position> npc : expected.entrySet()) {
+            if (!present.contains(npc.getKey())) {
+                Location location = npc.getValue().toLocation(chunk.getWorld());
+                Villager untagged = NPCTagUtil.findUntagged(entities, location, Villager.Profession.LIBRARIAN,
+                        vaultKey);
+                if (untagged != null) {
+                    configureVaultNPC(untagged, npc.getKey());
+                    plugin.getLogger().info("Adopted untagged vault NPC for vault " + npc.getKey());
+                    continue;
+                }
 
-                return null;
+                Villager villager = (Villager) chunk.getWorld().spawnEntity(location, EntityType.VILLAGER);
+                configureVaultNPC(villager, npc.getKey());
+                debug(() -> "Spawned missing vault NPC for vault " + npc.getKey());
             }
-        });
+        }
     }
 
     /**
-     * Respawns all vault NPCs in their correct locations
+     * Removes vault NPCs that aren't in the index once the database confirms
+     * their vault has no NPC. If the check fails they are kept. Runs the
+     * query asynchronously and the removal on the main thread.
+     *
+     * @param npcs Vault ID -> entities tagged with it
      */
-    private void respawnAllNPCs(DSLContext context) {
-        Result<Record> npcRecords = context.select().from("vault_npcs").fetch();
-
-        if (!npcRecords.isEmpty()) {
-            plugin.getLogger().info("Respawning " + npcRecords.size() + " vault NPCs");
+    private void removeUnstored(Map<String, List<UUID>> npcs) {
+        CompletableFuture.runAsync(() -> {
+            Set<String> stored = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Set<String>>() {
+                @Override
+                public Set<String> execute(Connection conn, DSLContext context) throws SQLException {
+                    return new HashSet<>(context.select(DSL.field("nation_vault_id")).from("vault_npcs")
+                            .where(DSL.field("nation_vault_id").in(npcs.keySet()))
+                            .fetch(DSL.field("nation_vault_id"), String.class));
+                }
+            });
+            if (stored == null) {
+                return;
+            }
 
-            for (Record record : npcRecords) {
-                String worldName = record.get("world", String.class);
-                double x = record.get("x", Double.class);
-                double y = record.get("y", Double.class);
-                double z = record.get("z", Double.class);
-                @SuppressWarnings("unused")
-                String nationId = record.get("nation_id", String.class);
-                String vaultId = record.get("nation_vault_id", String.class);
-
-                World world = Bukkit.getWorld(worldName);
-                if (world != null) {
-                    Location location = new Location(world, x, y, z);
-
-                    Bukkit.getScheduler().runTask(plugin, () -> {
-                        try {
-                            // Create a new villager
-                            Villager villager = (Villager) world.spawnEntity(location, EntityType.VILLAGER);
-
-                            // Configure the villager
-                            configureVaultNPC(villager);
-
-                            int entityId = villager.getEntityId();
-                            entityToVault.put(entityId, vaultId);
-
-                            // Update entity ID in database
-                            plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Void>() {
-                                @Override
-                                public Void execute(Connection conn, DSLContext ctx) throws SQLException {
-                                    ctx.update(DSL.table("vault_npcs"))
-                                            .set(DSL.field("entity_id"), entityId)
-                                            .where(DSL.field("nation_vault_id").eq(vaultId))
-                                            .execute();
-                                    return null;
-                                }
-                            });
-                        } catch (Exception e) {
-                            plugin.getLogger().severe("Failed to respawn vault NPC: " + e.getMessage());
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                for (Map.Entry<String, List<UUID>> npc : npcs.entrySet()) {
+                    String vaultId = npc.getKey();
+                    // Placed or moved since the check
+                    if (stored.contains(vaultId) || chunkByVault.containsKey(vaultId)) {
+                        continue;
+                    }
+                    for (UUID entityId : npc.getValue()) {
+                        Entity entity = Bukkit.getEntity(entityId);
+                        if (entity != null && vaultId.equals(getVaultIdFromEntity(entity))) {
+                            entity.remove();
+                            debug(() -> "Removed vault NPC of vault " + vaultId + " without an NPC");
                         }
-                    });
-                } else {
-                    plugin.getLogger().warning("Could not respawn NPC: world '" + worldName + "' not found");
+                    }
                 }
-            }
+            });
+        });
+    }
+
+    private void index(String vaultId, Location location) {
+        index(vaultId, location.getWorld().getName(), new Position(location.getX(), location.getY(), location.getZ()));
+    }
+
+    private void index(String vaultId, String worldName, Position position) {
+        unindex(vaultId);
+        ChunkLocation chunkLocation = new ChunkLocation(position.getBlockX() >> 4, position.getBlockZ() >> 4,
+                worldName);
+        npcsByChunk.compute(chunkLocation, (k, npcs) -> {
+            Map<String, Position> updated = npcs != null ? npcs : new ConcurrentHashMap<>();
+            updated.put(vaultId, position);
+            return updated;
+        });
+        chunkByVault.put(vaultId, chunkLocation);
+    }
+
+    private void unindex(String vaultId) {
+        ChunkLocation previous = chunkByVault.remove(vaultId);
+        if (previous != null) {
+            npcsByChunk.computeIfPresent(previous, (k, npcs) -> {
+                npcs.remove(vaultId);
+                return npcs.isEmpty() ? null : npcs;
+            });
         }
     }
 
     /**
      * Applies standard configuration to a vault NPC villager
      */
-    private void configureVaultNPC(Villager villager) {
+    private void configureVaultNPC(Villager villager, String vaultId) {
         villager.setProfession(Villager.Profession.LIBRARIAN);
         villager.customName(net.kyori.adventure.text.Component.text("Nation Vault")
                 .color(net.kyori.adventure.text.format.NamedTextColor.GOLD));
@@ -131,6 +256,7 @@ public class VaultNPCManager {
         villager.setSilent(true);
         // Set villager to not despawn
         villager.setPersistent(true);
+        NPCTagUtil.tag(villager, vaultKey, vaultId);
     }
 
     /**
@@ -138,150 +264,173 @@ public class VaultNPCManager {
      */
     public CompletableFuture<Boolean> createOrMoveVaultNPC(String nationId, String vaultId, Location location,
             String playerId) {
+        final Location[] previous = { null };
+
         return CompletableFuture.supplyAsync(() -> {
-            return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            Boolean found = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
                 @Override
                 public Boolean execute(Connection conn, DSLContext context) throws SQLException {
-                    // Check if an NPC already exists
                     Record npcRecord = context.select().from("vault_npcs")
                             .where(DSL.field("nation_vault_id").eq(vaultId))
                             .fetchOne();
+                    previous[0] = npcRecord != null ? toLocation(npcRecord) : null;
+                    return true;
+                }
+            });
+            return found != null;
+        }).thenCompose(found -> {
+            if (!found) {
+                return CompletableFuture.completedFuture(false);
+            }
 
-                    final boolean[] isNewNpc = { npcRecord == null };
-
-                    // Create the entity in the game world
-                    CompletableFuture<Integer> entityIdFuture = new CompletableFuture<>();
-
-                    Bukkit.getScheduler().runTask(plugin, () -> {
-                        try {
-                            // If we have an existing NPC, remove it first
-                            if (!isNewNpc[0]) {
-                                int oldEntityId = npcRecord.get("entity_id", Integer.class);
-                                entityToVault.remove(oldEntityId);
-
-                                for (org.bukkit.World world : Bukkit.getWorlds()) {
-                                    for (Entity entity : world.getEntities()) {
-                                        if (entity.getEntityId() == oldEntityId && entity instanceof Villager) {
-                                            entity.remove();
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-
-                            // Create a new villager
-                            Villager villager = (Villager) location.getWorld().spawnEntity(location,
-                                    EntityType.VILLAGER);
-                            configureVaultNPC(villager);
-
-                            int entityId = villager.getEntityId();
-                            entityToVault.put(entityId, vaultId);
-                            entityIdFuture.complete(entityId);
-                        } catch (Exception e) {
-                            plugin.getLogger().severe("Failed to create vault NPC: " + e.getMessage());
-                            entityIdFuture.completeExceptionally(e);
-                        }
-                    });
-
-                    try {
-                        // Wait for the entity to be created and get its ID
-                        int entityId = entityIdFuture.get(10, TimeUnit.SECONDS);
-
-                        if (isNewNpc[0]) {
-                            // Generate a new UUID for the NPC
-                            String npcId = UUID.randomUUID().toString();
-
-                            context.insertInto(
-                                    DSL.table("vault_npcs"),
-                                    DSL.field("id"),
-                                    DSL.field("nation_id"),
-                                    DSL.field("nation_vault_id"),
-                                    DSL.field("coordinates"),
-                                    DSL.field("entity_id"),
-                                    DSL.field("created_by"),
-                                    DSL.field("world"),
-                                    DSL.field("x"),
-                                    DSL.field("y"),
-                                    DSL.field("z")).values(
-                                            npcId,
-                                            nationId,
-                                            vaultId,
-                                            location.getX() + "," + location.getY() + "," +
-                                                    location.getZ() + "," + location.getWorld().getName(),
-                                            entityId,
-                                            playerId,
-                                            location.getWorld().getName(),
-                                            location.getX(),
-                                            location.getY(),
-                                            location.getZ())
-                                    .execute();
-                        } else {
-                            context.update(DSL.table("vault_npcs"))
-                                    .set(DSL.field("entity_id"), entityId)
-                                    .set(DSL.field("coordinates"), location.getX() + "," + location.getY() + "," +
-                                            location.getZ() + "," + location.getWorld().getName())
-                                    .set(DSL.field("world"), location.getWorld().getName())
-                                    .set(DSL.field("x"), location.getX())
-                                    .set(DSL.field("y"), location.getY())
-                                    .set(DSL.field("z"), location.getZ())
-                                    .where(DSL.field("nation_vault_id").eq(vaultId))
-                                    .execute();
-                        }
+            // The old NPC is gone before the new one is placed, they may share a chunk
+            unindex(vaultId);
+            CompletableFuture<Integer> removed = previous[0] != null
+                    ? NPCTagUtil.removeTagged(previous[0], vaultKey, vaultId)
+                    : CompletableFuture.completedFuture(0);
+            return removed.thenCompose(count -> spawnVaultNPC(location, vaultId));
+        }).thenApplyAsync(spawned -> spawned && saveVaultNPC(nationId, vaultId, location, playerId));
+    }
 
-                        return true;
-                    } catch (Exception e) {
-                        plugin.getLogger().severe("Failed to create/update vault NPC record: " + e.getMessage());
-                        return false;
-                    }
+    private CompletableFuture<Boolean> spawnVaultNPC(Location location, String vaultId) {
+        CompletableFuture<Boolean> spawned = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                Villager villager = (Villager) location.getWorld().spawnEntity(location, EntityType.VILLAGER);
+                configureVaultNPC(villager, vaultId);
+                index(vaultId, location);
+                spawned.complete(true);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Failed to create vault NPC: " + e.getMessage());
+                spawned.complete(false);
+            }
+        });
+        return spawned;
+    }
+
+    private boolean saveVaultNPC(String nationId, String vaultId, Location location, String playerId) {
+        Boolean saved = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            @Override
+            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                String coordinates = location.getX() + "," + location.getY() + "," +
+                        location.getZ() + "," + location.getWorld().getName();
+
+                int updated = context.update(DSL.table("vault_npcs"))
+                        .set(DSL.field("coordinates"), coordinates)
+                        .set(DSL.field("world"), location.getWorld().getName())
+                        .set(DSL.field("x"), location.getX())
+                        .set(DSL.field("y"), location.getY())
+                        .set(DSL.field("z"), location.getZ())
+                        .where(DSL.field("nation_vault_id").eq(vaultId))
+                        .execute();
+
+                if (updated == 0) {
+                    context.insertInto(
+                            DSL.table("vault_npcs"),
+                            DSL.field("id"),
+                            DSL.field("nation_id"),
+                            DSL.field("nation_vault_id"),
+                            DSL.field("coordinates"),
+                            DSL.field("created_by"),
+                            DSL.field("world"),
+                            DSL.field("x"),
+                            DSL.field("y"),
+                            DSL.field("z")).values(
+                                    UUID.randomUUID().toString(),
+                                    nationId,
+                                    vaultId,
+                                    coordinates,
+                                    playerId,
+                                    location.getWorld().getName(),
+                                    location.getX(),
+                                    location.getY(),
+                                    location.getZ())
+                            .execute();
                 }
-            });
+                return true;
+            }
         });
+
+        if (saved == null) {
+            plugin.getLogger().severe("Failed to create/update vault NPC record for vault " + vaultId);
+            return false;
+        }
+        return true;
     }
 
     /**
      * Removes a vault NPC for a nation
      */
     public CompletableFuture<Boolean> removeVaultNPC(String nationId, String vaultId) {
+        final Location[] previous = { null };
+        unindex(vaultId);
+
         return CompletableFuture.supplyAsync(() -> {
-            return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            Boolean deleted = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
                 @Override
                 public Boolean execute(Connection conn, DSLContext context) throws SQLException {
-                    // Find entity ID associated with this vault
-                    Integer entityId = null;
-
-                    for (Map.Entry<Integer, String> entry : entityToVault.entrySet()) {
-                        if (entry.getValue().equals(vaultId)) {
-                            entityId = entry.getKey();
-                            break;
-                        }
-                    }
+                    Record npcRecord = context.select().from("vault_npcs")
+                            .where(DSL.field("nation_vault_id").eq(vaultId))
+                            .fetchOne();
+                    previous[0] = npcRecord != null ? toLocation(npcRecord) : null;
 
                     // Delete from database
                     context.deleteFrom(DSL.table("vault_npcs"))
                             .where(DSL.field("nation_vault_id").eq(vaultId))
                             .execute();
-
-                    // Remove from memory and world
-                    if (entityId != null) {
-                        final int finalEntityId = entityId;
-                        entityToVault.remove(entityId);
-
-                        // Find and remove the entity from the world
-                        Bukkit.getScheduler().runTask(plugin, () -> {
-                            for (World world : Bukkit.getWorlds()) {
-                                for (Entity entity : world.getEntities()) {
-                                    if (entity.getEntityId() == finalEntityId && entity instanceof Villager) {
-                                        entity.remove();
-                                        break;
-                                    }
-                                }
-                            }
-                        });
-                    }
-
                     return true;
                 }
             });
+            return deleted != null;
+        }).thenCompose(deleted -> {
+            if (!deleted || previous[0] == null) {
+                return CompletableFuture.completedFuture(deleted);
+            }
+
+            // Remove the entity from the chunk it was placed in
+            return NPCTagUtil.removeTagged(previous[0], vaultKey, vaultId).thenApply(count -> true);
         });
     }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.NPC, message);
+    }
+
+    private Location toLocation(Record record) {
+        String worldName = record.get("world", String.class);
+        World world = worldName != null ? Bukkit.getWorld(worldName) : null;
+        if (world == null) {
+            plugin.getLogger().warning("Vault NPC world '" + worldName + "' not found");
+            return null;
+        }
+        return new Location(world, record.get("x", Double.class), record.get("y", Double.class),
+                record.get("z", Double.class));
+    }
+
+    /**
+     * A stored NPC position without its world, which may not be loaded yet
+     */
+    private static class Position {
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private Position(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        private int getBlockX() {
+            return (int) Math.floor(x);
+        }
+
+        private int getBlockZ() {
+            return (int) Math.floor(z);
+        }
+
+        private Location toLocation(World world) {
+            return new Location(world, x, y, z);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.tatayless.sovereignty.services.vault;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.services.VaultService;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Expires vault overflow items by deadline instead of scanning every vault.
+ * Vaults with pending overflow are kept in a queue ordered by expiry time, and
+ * a main-thread task only ever looks at the head of the queue. Expired vaults
+ * are handed to the supplied callback so the clear goes through the normal
+ * vault write path.
+ */
+public class VaultOverflowScheduler {
+    private static final long CHECK_INTERVAL_TICKS = 20L; // Check the queue head once per second
+
+    private final Sovereignty plugin;
+    private final Consumer<VaultService.NationVault> expiryHandler;
+
+    // Guarded by "this", vaults can be tracked from async save/load threads
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>();
+    private final Map<String, Long> scheduledExpiry = new HashMap<>(); // Vault ID -> latest scheduled expiry
+
+    private BukkitTask task;
+
+    public VaultOverflowScheduler(Sovereignty plugin, Consumer<VaultService.NationVault> expiryHandler) {
+        this.plugin = plugin;
+        this.expiryHandler = expiryHandler;
+    }
+
+    /**
+     * Starts the main-thread task that expires due overflow
+     */
+    public void start() {
+        if (task != null) {
+            return;
+        }
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::expireDue,
+                CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Schedules the vault's current overflow expiry, if any. Safe to call
+     * repeatedly, a vault is only re-queued when its expiry has changed.
+     *
+     * @param vault The vault to track
+     */
+    public synchronized void track(VaultService.NationVault vault) {
+        if (vault == null) {
+            return;
+        }
+
+        Date expiry = vault.getOverflowExpiry();
+        if (expiry == null || !vault.hasOverflow()) {
+            scheduledExpiry.remove(vault.getId());
+            return;
+        }
+
+        long expiresAt = expiry.getTime();
+        Long current = scheduledExpiry.put(vault.getId(), expiresAt);
+        if (current == null || current != expiresAt) {
+            // Superseded entries stay in the queue and are skipped when they reach the head
+            deadlines.add(new Deadline(vault, expiresAt));
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return scheduledExpiry.size();
+    }
+
+    private void expireDue() {
+        long now = System.currentTimeMillis();
+
+        while (true) {
+            VaultService.NationVault expired;
+            synchronized (this) {
+                Deadline head = deadlines.peek();
+                if (head == null || head.expiresAt > now) {
+                    return;
+                }
+                deadlines.poll();
+
+                Long latest = scheduledExpiry.get(head.vault.getId());
+                if (latest == null || latest != head.expiresAt) {
+                    continue; // Stale entry, the expiry was extended or cleared since
+                }
+                scheduledExpiry.remove(head.vault.getId());
+
+                Date expiry = head.vault.getOverflowExpiry();
+                if (expiry == null || expiry.getTime() != head.expiresAt) {
+                    continue;
+                }
+                expired = head.vault;
+            }
+
+            expiryHandler.accept(expired);
+        }
+    }
+
+    private static class Deadline implements Comparable<Deadline> {
+        private final VaultService.NationVault vault;
+        private final long expiresAt;
+
+        private Deadline(VaultService.NationVault vault, long expiresAt) {
+            this.vault = vault;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            return Long.compare(expiresAt, other.expiresAt);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.tatayless.sovereignty.services.vault;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.services.VaultService;
+import org.bukkit.inventory.ItemStack;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Point-in-time history of nation vaults.
+ * Page arrays in a {@link VaultService.NationVault} are replaced on every save
+ * and never modified in place, so a snapshot is just a shallow copy of the page
+ * map that shares the unchanged arrays with the live vault. Pages that changed
+ * since the previous snapshot are found by reference comparison, and only
+ * those are compressed and stored. Every few snapshots a full keyframe is
+ * stored so a restore never has to replay more than one chain.
+ */
+public class VaultSnapshotManager {
+    private final Sovereignty plugin;
+
+    // Vault ID -> pages as of the last stored snapshot
+    private final Map<String, SnapshotState> lastSnapshots = new ConcurrentHashMap<>();
+
+    public VaultSnapshotManager(Sovereignty plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Stores a snapshot of the vault if the configured interval has passed since
+     * the previous one. Must be called on the main thread.
+     *
+     * @param vault The vault to snapshot
+     */
+    public void captureIfDue(VaultService.NationVault vault) {
+        if (!plugin.getConfigManager().isVaultSnapshotsEnabled()) {
+            return;
+        }
+
+        SnapshotState previous = lastSnapshots.get(vault.getId());
+        long intervalMillis = plugin.getConfigManager().getVaultSnapshotIntervalMinutes() * 60_000L;
+        if (previous != null && System.currentTimeMillis() - previous.takenAt < intervalMillis) {
+            return;
+        }
+
+        capture(vault);
+    }
+
+    /**
+     * Stores a snapshot of the vault now. Must be called on the main thread, the
+     * encoding and database write happen asynchronously. If the write fails the
+     * next snapshot is a keyframe, so no delta is built on pages that were never
+     * stored.
+     *
+     * @param vault The vault to snapshot
+     * @return Future completing with true if a snapshot was stored
+     */
+    public CompletableFuture<Boolean> capture(VaultService.NationVault vault) {
+        long now = System.currentTimeMillis();
+        Map<Integer, ItemStack[]> pages = vault.copyPages();
+
+        SnapshotState previous = lastSnapshots.get(vault.getId());
+        boolean keyframe = previous == null
+                || previous.sinceKeyframe + 1 >= plugin.getConfigManager().getVaultSnapshotKeyframeInterval();
+
+        Map<Integer, ItemStack[]> changedPages = new HashMap<>();
+        for (Map.Entry<Integer, ItemStack[]> entry : pages.entrySet()) {
+            if (keyframe || previous.pages.get(entry.getKey()) != entry.getValue()) {
+                changedPages.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (!keyframe && changedPages.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        lastSnapshots.put(vault.getId(),
+                new SnapshotState(pages, now, keyframe ? 0 : previous.sinceKeyframe + 1));
+
+        String vaultId = vault.getId();
+        return CompletableFuture.supplyAsync(() -> {
+            String data;
+            try {
+                data = encodePages(changedPages);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to encode snapshot for vault " + vaultId, e);
+                return false;
+            }
+
+            long retentionMillis = plugin.getConfigManager().getVaultSnapshotRetentionHours() * 3_600_000L;
+            Boolean stored = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+                @Override
+                public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                    context.insertInto(
+                            DSL.table("vault_snapshots"),
+                            DSL.field("id"),
+                            DSL.field("vault_id"),
+                            DSL.field("taken_at"),
+                            DSL.field("keyframe"),
+                            DSL.field("data"))
+                            .values(UUID.randomUUID().toString(), vaultId, now, keyframe ? 1 : 0, data)
+                            .execute();
+
+                    pruneSnapshots(context, vaultId, now - retentionMillis);
+                    return true;
+                }
+            });
+            return stored != null && stored;
+        }).exceptionally(ex -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to store snapshot for vault " + vaultId, ex);
+            return false;
+        }).thenApply(stored -> {
+            if (!stored) {
+                // The delta chain is broken from here, start over with a keyframe
+                plugin.getLogger().warning("Failed to store snapshot for vault " + vaultId
+                        + ", the next snapshot will be a keyframe");
+                lastSnapshots.remove(vaultId);
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * Drops snapshots older than the cutoff, keeping the newest keyframe at or
+     * before the cutoff so the remaining deltas can still be replayed.
+     */
+    private void pruneSnapshots(DSLContext context, String vaultId, long cutoff) {
+        Record oldestNeeded = context.select(DSL.max(DSL.field("taken_at", Long.class)).as("taken_at"))
+                .from("vault_snapshots")
+                .where(DSL.field("vault_id").eq(vaultId))
+                .and(DSL.field("keyframe").eq(1))
+                .and(DSL.field("taken_at").le(cutoff))
+                .fetchOne();
+
+        Long keepFrom = oldestNeeded != null ? oldestNeeded.get("taken_at", Long.class) : null;
+        if (keepFrom == null) {
+            return;
+        }
+
+        context.deleteFrom(DSL.table("vault_snapshots"))
+                .where(DSL.field("vault_id").eq(vaultId))
+                .and(DSL.field("taken_at").lt(keepFrom))
+                .execute();
+    }
+
+    /**
+     * Rebuilds the vault pages as they were at the given time by replaying the
+     * newest keyframe at or before that time and the deltas stored after it.
+     *
+     * @param vaultId   The vault to restore
+     * @param timestamp The point in time, in epoch millis
+     * @return Future with the restored pages, or null if no snapshot covers that
+     *         time
+     */
+    public CompletableFuture<Map<Integer, ItemStack[]>> loadPagesAt(String vaultId, long timestamp) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Record> chain = plugin.getDatabaseManager()
+                    .executeWithLock(new DatabaseOperation<List<Record>>() {
+                        @Override
+                        public List<Record> execute(Connection conn, DSLContext context) throws SQLException {
+                            Result<Record> results = context.select().from("vault_snapshots")
+                                    .where(DSL.field("vault_id").eq(vaultId))
+                                    .and(DSL.field("taken_at").le(timestamp))
+                                    .orderBy(DSL.field("taken_at").desc())
+                                    .fetch();
+
+                            // Walk back to the newest keyframe, deltas before it aren't needed
+                            List<Record> records = new ArrayList<>();
+                            for (Record record : results) {
+                                records.add(record);
+                                if (record.get("keyframe", Integer.class) == 1) {
+                                    Collections.reverse(records);
+                                    return records;
+                                }
+                            }
+                            return null;
+                        }
+                    });
+
+            if (chain == null) {
+                return null;
+            }
+
+            Map<Integer, ItemStack[]> pages = new HashMap<>();
+            for (Record record : chain) {
+                try {
+                    pages.putAll(decodePages(record.get("data", String.class)));
+                } catch (IOException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Failed to decode snapshot " + record.get("id")
+                            + " for vault " + vaultId, e);
+                    return null;
+                }
+            }
+            return pages;
+        });
+    }
+
+    public void forget(String vaultId) {
+        lastSnapshots.remove(vaultId);
+    }
+
+    private String encodePages(Map<Integer, ItemStack[]> pages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(pages.size());
+            for (Map.Entry<Integer, ItemStack[]> entry : pages.entrySet()) {
+                ItemStack[] items = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeShort(items.length);
+
+                int filled = 0;
+                for (ItemStack item : items) {
+                    if (item != null && !item.getType().isAir()) {
+                        filled++;
+                    }
+                }
+                out.writeShort(filled);
+
+                for (int slot = 0; slot < items.length; slot++) {
+                    ItemStack item = items[slot];
+                    if (item == null || item.getType().isAir()) {
+                        continue;
+                    }
+                    byte[] itemBytes = item.serializeAsBytes();
+                    out.writeShort(slot);
+                    out.writeInt(itemBytes.length);
+                    out.write(itemBytes);
+                }
+            }
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private Map<Integer, ItemStack[]> decodePages(String data) throws IOException {
+        Map<Integer, ItemStack[]> pages = new HashMap<>();
+        byte[] raw = Base64.getDecoder().decode(data);
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(raw)))) {
+            int pageCount = in.readInt();
+            for (int p = 0; p < pageCount; p++) {
+                int page = in.readInt();
+                ItemStack[] items = new ItemStack[in.readShort()];
+                int filled = in.readShort();
+                for (int i = 0; i < filled; i++) {
+                    int slot = in.readShort();
+                    byte[] itemBytes = new byte[in.readInt()];
+                    in.readFully(itemBytes);
+                    items[slot] = ItemStack.deserializeBytes(itemBytes);
+                }
+                pages.put(page, items);
+            }
+        }
+        return pages;
+    }
+
+    private static class SnapshotState {
+        private final Map<Integer, ItemStack[]> pages;
+        private final long takenAt;
+        private final int sinceKeyframe;
+
+        private SnapshotState(Map<Integer, ItemStack[]> pages, long takenAt, int sinceKeyframe) {
+            this.pages = pages;
+            this.takenAt = takenAt;
+            this.sinceKeyframe = sinceKeyframe;
+        }
+    }
+}
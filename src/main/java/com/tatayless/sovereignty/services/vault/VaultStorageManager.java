@@ -5,6 +5,7 @@ import com.google.gson.reflect.TypeToken;
 import com.tatayless.sovereignty.Sovereignty;
 import com.tatayless.sovereignty.database.DatabaseOperation;
 import com.tatayless.sovereignty.services.VaultService;
+import com.tatayless.sovereignty.utils.DebugLogger;
 import org.bukkit.inventory.ItemStack;
 import org.jooq.DSLContext;
 import org.jooq.Record;
@@ -17,145 +18,67 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public class VaultStorageManager {
     private final Sovereignty plugin;
     private final Gson gson = new Gson();
 
+    // Orders saves so a slow older save never overwrites a newer one
+    private final AtomicLong saveSequence = new AtomicLong();
+    private final Map<String, Long> latestSaveRequest = new ConcurrentHashMap<>();
+
+    // Vault ID -> page -> serialized form of the page array it was built from
+    private final Map<String, Map<Integer, CachedPage>> pageCache = new ConcurrentHashMap<>();
+
+    // Cost of capturing vaults on the calling (usually main) thread
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong snapshotNanosTotal = new AtomicLong();
+    private final AtomicLong snapshotNanosMax = new AtomicLong();
+
     public VaultStorageManager(Sovereignty plugin) {
         this.plugin = plugin;
     }
 
     /**
-     * Saves a vault to the database
+     * Saves a vault to the database.
+     * The vault's pages are captured on the calling thread before anything else
+     * happens. Page arrays are replaced rather than modified in place, so copying
+     * the page map is enough to get an immutable view, and all serialization and
+     * database work then runs off-thread against that snapshot.
      */
     public CompletableFuture<Boolean> saveVault(VaultService.NationVault vault) {
-        // Capture state immediately for logging, before async execution
         final String vaultId = vault.getId();
         final String nationId = vault.getNationId();
-        plugin.getLogger().info("[DEBUG] Received request to save vault " + vaultId + " for nation " + nationId);
+
+        long snapshotStart = System.nanoTime();
+        final SaveSnapshot snapshot = new SaveSnapshot(vault, saveSequence.incrementAndGet());
+        latestSaveRequest.put(vaultId, snapshot.sequence);
+        recordSnapshotTime(vaultId, System.nanoTime() - snapshotStart);
+
+        debug(() -> "Received request to save vault " + vaultId + " for nation " + nationId
+                + " (save #" + snapshot.sequence + ")");
 
         return CompletableFuture.supplyAsync(() -> {
-            // Log inside the async task
-            plugin.getLogger().info(
-                    "[DEBUG] Starting async save task for vault " + vaultId + " (Nation: " + nationId + ")");
+            if (isSuperseded(vaultId, snapshot.sequence)) {
+                debug(() -> "Skipping save #" + snapshot.sequence + " for vault " + vaultId
+                        + ", a newer save is pending");
+                return true;
+            }
+
+            final EncodedVault encoded = encode(vaultId, snapshot);
             return plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
                 @Override
                 public Boolean execute(Connection conn, DSLContext context) throws SQLException {
                     try {
-                        plugin.getLogger().info("[DEBUG] Serializing vault data for vault " + vaultId);
-                        Map<String, List<Map<String, Object>>> pagesMap = new HashMap<>();
-                        int totalItemsAcrossPages = 0;
-                        int pageCount = 0;
-
-                        // Use getter and add null check
-                        Map<Integer, ItemStack[]> vaultPages = vault.getPages();
-                        if (vaultPages == null) {
-                            plugin.getLogger()
-                                    .severe("[ERROR] Vault " + vaultId
-                                            + " has null pages map during save! This should not happen.");
-                            vaultPages = new HashMap<>();
-                        }
-
-                        for (Map.Entry<Integer, ItemStack[]> entry : vaultPages.entrySet()) {
-                            Integer pageIndex = entry.getKey();
-                            ItemStack[] items = entry.getValue();
-
-                            if (items != null) {
-                                List<Map<String, Object>> serializedItems = serializeItems(items);
-                                int pageItemCount = (int) Arrays.stream(items).filter(Objects::nonNull).count();
-                                totalItemsAcrossPages += pageItemCount;
-                                pageCount++;
-
-                                if (serializedItems != null && !serializedItems.isEmpty()) {
-                                    pagesMap.put(String.valueOf(pageIndex), serializedItems);
-                                    plugin.getLogger().info("[DEBUG] Serialized " + pageItemCount +
-                                            " items (found in original array) for vault " + vaultId + " page "
-                                            + pageIndex +
-                                            ". Serialized list size: " + serializedItems.size());
-                                } else if (pageItemCount > 0) {
-                                    plugin.getLogger()
-                                            .warning("[DEBUG] Page " + pageIndex + " for vault " + vaultId +
-                                                    " had " + pageItemCount
-                                                    + " items but resulted in empty/null serialized list.");
-                                }
-                            } else {
-                                plugin.getLogger().warning("[DEBUG] Page " + pageIndex + " for vault " + vaultId
-                                        + " has null ItemStack array.");
-                            }
-                        }
-
-                        String itemsJson = gson.toJson(pagesMap);
-                        String overflowItemsJson = null;
-                        int overflowItemCount = 0;
-
-                        if (vault.getOverflowItems() != null) {
-                            List<Map<String, Object>> serializedOverflow = serializeItems(vault.getOverflowItems());
-                            if (serializedOverflow != null) {
-                                overflowItemsJson = gson.toJson(serializedOverflow);
-                                overflowItemCount = (int) Arrays.stream(vault.getOverflowItems())
-                                        .filter(Objects::nonNull).count();
-                                plugin.getLogger().info("[DEBUG] Serialized " + overflowItemCount
-                                        + " overflow items for vault " + vaultId);
-                            }
-                        }
-
-                        plugin.getLogger().info("[DEBUG] Preparing DB operation for vault " + vaultId + ": " +
-                                totalItemsAcrossPages + " items across " + pageCount + " pages. " +
-                                overflowItemCount + " overflow items. " +
-                                "Pages JSON size: " + (itemsJson != null ? itemsJson.length() : 0) + " chars. " +
-                                "Overflow JSON size: " + (overflowItemsJson != null ? overflowItemsJson.length() : 0)
-                                + " chars.");
-                        if (plugin.getLogger().isLoggable(Level.FINE)) {
-                            plugin.getLogger().fine("[DEBUG] Vault " + vaultId + " Pages JSON to save: " + itemsJson);
-                            plugin.getLogger()
-                                    .fine("[DEBUG] Vault " + vaultId + " Overflow JSON to save: " + overflowItemsJson);
-                        }
-
-                        Record existingRecord = context.select(DSL.field("id"))
-                                .from("nation_vaults")
-                                .where(DSL.field("id").eq(vaultId))
-                                .fetchOne();
-
-                        boolean success;
-                        Timestamp expiryTimestamp = vault.getOverflowExpiry() != null
-                                ? new Timestamp(vault.getOverflowExpiry().getTime())
-                                : null;
-
-                        if (existingRecord != null) {
-                            plugin.getLogger().info("[DEBUG] Updating existing vault record for " + vaultId);
-                            int updated = context.update(DSL.table("nation_vaults"))
-                                    .set(DSL.field("items"), itemsJson)
-                                    .set(DSL.field("overflow_items"), overflowItemsJson)
-                                    .set(DSL.field("overflow_expiry"), expiryTimestamp)
-                                    .where(DSL.field("id").eq(vaultId))
-                                    .execute();
-
-                            success = updated > 0;
-                            if (!success)
-                                plugin.getLogger()
-                                        .warning("[DEBUG] Vault update query affected 0 rows for ID: " + vaultId);
-
-                        } else {
-                            plugin.getLogger().info("[DEBUG] Creating new vault record for " + vaultId);
-                            int inserted = context.insertInto(DSL.table("nation_vaults"))
-                                    .set(DSL.field("id"), vaultId)
-                                    .set(DSL.field("nation_id"), nationId)
-                                    .set(DSL.field("items"), itemsJson)
-                                    .set(DSL.field("overflow_items"), overflowItemsJson)
-                                    .set(DSL.field("overflow_expiry"), expiryTimestamp)
-                                    .execute();
-
-                            success = inserted > 0;
-                            if (!success)
-                                plugin.getLogger()
-                                        .warning("[DEBUG] Vault insert query affected 0 rows for ID: " + vaultId);
+                        // Check again, a newer save may have come in while this one was serializing
+                        if (isSuperseded(vaultId, snapshot.sequence)) {
+                            return true;
                         }
-
-                        plugin.getLogger().info("[DEBUG] Vault save database operation " +
-                                (success ? "successful" : "failed") + " for vault " + vaultId);
-                        return success;
+                        return write(context, vaultId, nationId, snapshot, encoded);
                     } catch (Exception e) {
                         plugin.getLogger().log(Level.SEVERE,
                                 "[ERROR] Error during database operation for vault " + vaultId + ": " + e.getMessage(),
@@ -171,6 +94,164 @@ public class VaultStorageManager {
         });
     }
 
+    /**
+     * Writes a vault synchronously on the caller's connection, so the write can
+     * be part of a larger transaction. Async saves of older contents that haven't
+     * been written yet are dropped, if the transaction is rolled back the caller
+     * must save the vault again.
+     *
+     * @param context   The context of the caller's connection
+     * @param vault     The vault to write
+     * @param delivered Items written as overflow on top of the vault's own,
+     *                  the vault itself is not changed
+     * @param expiry    The overflow expiry written with the delivered items
+     * @return true if the row was written
+     */
+    public boolean writeVault(DSLContext context, VaultService.NationVault vault, List<ItemStack> delivered,
+            Date expiry) throws SQLException {
+        SaveSnapshot snapshot = new SaveSnapshot(vault, saveSequence.incrementAndGet(), delivered, expiry);
+        latestSaveRequest.put(vault.getId(), snapshot.sequence);
+        return write(context, vault.getId(), vault.getNationId(), snapshot, encode(vault.getId(), snapshot));
+    }
+
+    private EncodedVault encode(String vaultId, SaveSnapshot snapshot) {
+        debug(() -> "Serializing vault data for vault " + vaultId);
+        Map<Integer, CachedPage> cachedPages = pageCache.computeIfAbsent(vaultId,
+                k -> new ConcurrentHashMap<>());
+        Map<String, List<Map<String, Object>>> pagesMap = new HashMap<>();
+        int totalItemsAcrossPages = 0;
+        int reusedPages = 0;
+
+        for (Map.Entry<Integer, ItemStack[]> entry : snapshot.pages.entrySet()) {
+            Integer pageIndex = entry.getKey();
+            ItemStack[] items = entry.getValue();
+            if (items == null) {
+                debug(() -> "Page " + pageIndex + " for vault " + vaultId + " has null ItemStack array.");
+                continue;
+            }
+
+            // Unchanged pages still hold the same array, reuse their serialized form
+            CachedPage cached = cachedPages.get(pageIndex);
+            if (cached == null || cached.source != items) {
+                cached = new CachedPage(items, serializeItems(items));
+                cachedPages.put(pageIndex, cached);
+            } else {
+                reusedPages++;
+            }
+
+            int pageItemCount = (int) Arrays.stream(items).filter(Objects::nonNull).count();
+            totalItemsAcrossPages += pageItemCount;
+
+            if (!cached.serialized.isEmpty()) {
+                pagesMap.put(String.valueOf(pageIndex), cached.serialized);
+            } else if (pageItemCount > 0) {
+                plugin.getLogger().warning("Page " + pageIndex + " for vault " + vaultId +
+                        " had " + pageItemCount + " items but resulted in empty/null serialized list.");
+            }
+        }
+        cachedPages.keySet().retainAll(snapshot.pages.keySet());
+
+        EncodedVault encoded = new EncodedVault(gson.toJson(pagesMap),
+                snapshot.overflowItems != null ? gson.toJson(serializeItems(snapshot.overflowItems)) : null);
+
+        final int itemTotal = totalItemsAcrossPages;
+        final int reused = reusedPages;
+        debug(() -> "Preparing DB operation for vault " + vaultId + ": " +
+                itemTotal + " items across " + snapshot.pages.size() + " pages (" + reused
+                + " reused from cache). " +
+                "Pages JSON size: " + encoded.itemsJson.length() + " chars. " +
+                "Overflow JSON size: " + (encoded.overflowJson != null ? encoded.overflowJson.length() : 0)
+                + " chars.");
+        return encoded;
+    }
+
+    private boolean write(DSLContext context, String vaultId, String nationId, SaveSnapshot snapshot,
+            EncodedVault encoded) throws SQLException {
+        Record existingRecord = context.select(DSL.field("id"))
+                .from("nation_vaults")
+                .where(DSL.field("id").eq(vaultId))
+                .fetchOne();
+
+        boolean success;
+        Timestamp expiryTimestamp = snapshot.overflowExpiry != null
+                ? new Timestamp(snapshot.overflowExpiry)
+                : null;
+
+        if (existingRecord != null) {
+            debug(() -> "Updating existing vault record for " + vaultId);
+            int updated = context.update(DSL.table("nation_vaults"))
+                    .set(DSL.field("items"), encoded.itemsJson)
+                    .set(DSL.field("overflow_items"), encoded.overflowJson)
+                    .set(DSL.field("overflow_expiry"), expiryTimestamp)
+                    .where(DSL.field("id").eq(vaultId))
+                    .execute();
+
+            success = updated > 0;
+            if (!success)
+                plugin.getLogger()
+                        .warning("Vault update query affected 0 rows for ID: " + vaultId);
+
+        } else {
+            debug(() -> "Creating new vault record for " + vaultId);
+            int inserted = context.insertInto(DSL.table("nation_vaults"))
+                    .set(DSL.field("id"), vaultId)
+                    .set(DSL.field("nation_id"), nationId)
+                    .set(DSL.field("items"), encoded.itemsJson)
+                    .set(DSL.field("overflow_items"), encoded.overflowJson)
+                    .set(DSL.field("overflow_expiry"), expiryTimestamp)
+                    .execute();
+
+            success = inserted > 0;
+            if (!success)
+                plugin.getLogger()
+                        .warning("Vault insert query affected 0 rows for ID: " + vaultId);
+        }
+
+        final boolean saved = success;
+        debug(() -> "Vault save database operation " +
+                (saved ? "successful" : "failed") + " for vault " + vaultId);
+        return success;
+    }
+
+    /**
+     * A later save of the same vault carries a newer snapshot, so an older one
+     * that hasn't been written yet can be dropped
+     */
+    private boolean isSuperseded(String vaultId, long sequence) {
+        Long latest = latestSaveRequest.get(vaultId);
+        return latest != null && latest > sequence;
+    }
+
+    private void recordSnapshotTime(String vaultId, long nanos) {
+        snapshotCount.incrementAndGet();
+        snapshotNanosTotal.addAndGet(nanos);
+        snapshotNanosMax.accumulateAndGet(nanos, Math::max);
+
+        plugin.getDebugLogger().sampled(DebugLogger.Subsystem.VAULT, "save-snapshot",
+                () -> "Vault save snapshot for " + vaultId + " took " + (nanos / 1000) + "us on "
+                        + Thread.currentThread().getName() + " (avg " + getAverageSnapshotMicros()
+                        + "us, max " + getMaxSnapshotMicros() + "us over " + snapshotCount.get() + " saves)");
+    }
+
+    /**
+     * Average time spent capturing a vault on the calling thread per save
+     */
+    public long getAverageSnapshotMicros() {
+        long count = snapshotCount.get();
+        return count > 0 ? snapshotNanosTotal.get() / count / 1000 : 0;
+    }
+
+    /**
+     * Longest time spent capturing a vault on the calling thread for a single save
+     */
+    public long getMaxSnapshotMicros() {
+        return snapshotNanosMax.get() / 1000;
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.VAULT, message);
+    }
+
     /**
      * Loads or creates a vault for a nation
      */
@@ -329,7 +410,7 @@ public class VaultStorageManager {
      */
     public List<Map<String, Object>> serializeItems(ItemStack[] items) {
         if (items == null) {
-            plugin.getLogger().info("[DEBUG] Attempted to serialize null ItemStack array.");
+            debug(() -> "Attempted to serialize null ItemStack array.");
             return new ArrayList<>();
         }
 
@@ -346,7 +427,7 @@ public class VaultStorageManager {
                     itemsList.add(serialized);
                     successItems++;
                 } catch (Exception e) {
-                    plugin.getLogger().warning("[DEBUG] Failed to serialize item at index " + i + " (Type: "
+                    plugin.getLogger().warning("Failed to serialize item at index " + i + " (Type: "
                             + item.getType() + "): " + e.getMessage());
                     errorItems++;
                 }
@@ -355,34 +436,79 @@ public class VaultStorageManager {
             }
         }
 
-        plugin.getLogger().info("[DEBUG] Item serialization summary: " +
+        final int successCount = successItems;
+        final int nullCount = nullItems;
+        final int errorCount = errorItems;
+        debug(() -> "Item serialization summary: " +
                 "input_array_length=" + items.length +
-                ", successful=" + successItems +
-                ", null_or_air=" + nullItems +
-                ", errors=" + errorItems +
+                ", successful=" + successCount +
+                ", null_or_air=" + nullCount +
+                ", errors=" + errorCount +
                 ", output_list_size=" + itemsList.size());
 
         return itemsList;
     }
 
     /**
-     * Schedules a task to clean up expired overflow items
+     * Immutable view of a vault taken at save time
      */
-    public void scheduleOverflowCleanup(Map<String, VaultService.NationVault> nationVaults) {
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            Date now = new Date();
-            List<VaultService.NationVault> vaultsToUpdate = new ArrayList<>();
-
-            for (VaultService.NationVault vault : nationVaults.values()) {
-                if (vault.getOverflowExpiry() != null && vault.getOverflowExpiry().before(now)) {
-                    vault.clearOverflow();
-                    vaultsToUpdate.add(vault);
-                }
+    private static class SaveSnapshot {
+        private final long sequence;
+        private final Map<Integer, ItemStack[]> pages;
+        private final ItemStack[] overflowItems;
+        private final Long overflowExpiry;
+
+        private SaveSnapshot(VaultService.NationVault vault, long sequence) {
+            this(vault, sequence, null, null);
+        }
+
+        private SaveSnapshot(VaultService.NationVault vault, long sequence, List<ItemStack> delivered,
+                Date deliveredExpiry) {
+            this.sequence = sequence;
+            // Page arrays are never modified in place, a shallow copy is enough
+            this.pages = vault.copyPages();
+
+            ItemStack[] overflow;
+            Date expiry;
+            synchronized (vault) {
+                overflow = vault.getOverflowItems();
+                expiry = vault.getOverflowExpiry();
+            }
+            if (delivered != null && !delivered.isEmpty()) {
+                overflow = VaultService.NationVault.mergeOverflow(overflow, delivered);
+                expiry = deliveredExpiry;
             }
 
-            for (VaultService.NationVault vault : vaultsToUpdate) {
-                saveVault(vault);
+            // Overflow is small and its items aren't copy-on-write, so clone them
+            if (overflow != null) {
+                this.overflowItems = new ItemStack[overflow.length];
+                for (int i = 0; i < overflow.length; i++) {
+                    this.overflowItems[i] = overflow[i] != null ? overflow[i].clone() : null;
+                }
+            } else {
+                this.overflowItems = null;
             }
-        }, 1200, 1200);
+            this.overflowExpiry = expiry != null ? expiry.getTime() : null;
+        }
+    }
+
+    private static class EncodedVault {
+        private final String itemsJson;
+        private final String overflowJson;
+
+        private EncodedVault(String itemsJson, String overflowJson) {
+            this.itemsJson = itemsJson;
+            this.overflowJson = overflowJson;
+        }
+    }
+
+    private static class CachedPage {
+        private final ItemStack[] source;
+        private final List<Map<String, Object>> serialized;
+
+        private CachedPage(ItemStack[] source, List<Map<String, Object>> serialized) {
+            this.source = source;
+            this.serialized = serialized;
+        }
     }
 }
@@ -0,0 +1,143 @@
+package com.tatayless.sovereignty.services.war;
+
+import com.tatayless.sovereignty.models.ChunkLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the chunks a losing nation hands over after a war.
+ * Works on packed chunk keys from {@link TerritorySnapshot}s: the search is
+ * seeded with every loser chunk on the border with the winner and grows from
+ * there breadth first, so the annexed region stays attached to the winner.
+ * If the border doesn't yield enough chunks, the rest of the loser's territory
+ * is taken one connected region at a time. The only objects allocated per
+ * chunk are the {@link ChunkLocation}s of the chunks actually annexed.
+ */
+public class AnnexationEngine {
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DZ = { 0, 0, 1, -1 };
+
+    private AnnexationEngine() {
+    }
+
+    /**
+     * Selects the chunks to annex
+     *
+     * @param loser  The losing nation's claims
+     * @param winner The winning nation's territory
+     * @param count  How many chunks to annex
+     * @return Up to count loser chunks, border chunks first
+     */
+    public static List<ChunkLocation> select(TerritorySnapshot loser, TerritorySnapshot winner, int count) {
+        List<ChunkLocation> result = new ArrayList<>(Math.min(count, loser.size()));
+        if (count <= 0 || loser.isEmpty()) {
+            return result;
+        }
+
+        List<WorldSearch> searches = new ArrayList<>();
+        for (String worldName : loser.getWorlds()) {
+            searches.add(new WorldSearch(worldName, loser.getChunks(worldName)));
+        }
+
+        // Grow from the border with the winner first
+        for (WorldSearch search : searches) {
+            ChunkKeySet border = winner.getChunks(search.worldName);
+            if (border != null) {
+                search.seedBorder(border, count - result.size(), result);
+            }
+        }
+        for (WorldSearch search : searches) {
+            search.expand(count, result);
+        }
+
+        // Then take whole connected regions until enough chunks are annexed
+        for (WorldSearch search : searches) {
+            for (long key : search.loser.toArray()) {
+                if (result.size() >= count) {
+                    return result;
+                }
+                if (search.select(key, result)) {
+                    search.expand(count, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Breadth first search state for one world
+     */
+    private static class WorldSearch {
+        private final String worldName;
+        private final ChunkKeySet loser;
+        private final ChunkKeySet selected;
+        private final long[] queue; // Every chunk is queued at most once, so no wrap-around is needed
+        private int head;
+        private int tail;
+
+        WorldSearch(String worldName, ChunkKeySet loser) {
+            this.worldName = worldName;
+            this.loser = loser;
+            this.selected = new ChunkKeySet(loser.size());
+            this.queue = new long[loser.size()];
+        }
+
+        /**
+         * Queues every loser chunk that touches the winner's territory.
+         * Scans whichever of the two territories is smaller.
+         */
+        void seedBorder(ChunkKeySet winner, int limit, List<ChunkLocation> result) {
+            int target = result.size() + limit;
+            boolean scanWinner = winner.size() < loser.size();
+            ChunkKeySet scanned = scanWinner ? winner : loser;
+            ChunkKeySet other = scanWinner ? loser : winner;
+
+            for (long key : scanned.toArray()) {
+                int x = ChunkKeySet.x(key);
+                int z = ChunkKeySet.z(key);
+                for (int i = 0; i < DX.length && result.size() < target; i++) {
+                    long neighbour = ChunkKeySet.key(x + DX[i], z + DZ[i]);
+                    if (!other.contains(neighbour)) {
+                        continue;
+                    }
+                    if (scanWinner) {
+                        select(neighbour, result);
+                    } else {
+                        select(key, result);
+                        break;
+                    }
+                }
+                if (result.size() >= target) {
+                    return;
+                }
+            }
+        }
+
+        void expand(int count, List<ChunkLocation> result) {
+            while (head < tail && result.size() < count) {
+                long key = queue[head++];
+                int x = ChunkKeySet.x(key);
+                int z = ChunkKeySet.z(key);
+                for (int i = 0; i < DX.length && result.size() < count; i++) {
+                    long neighbour = ChunkKeySet.key(x + DX[i], z + DZ[i]);
+                    if (loser.contains(neighbour)) {
+                        select(neighbour, result);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return true if the chunk hadn't been selected yet
+         */
+        boolean select(long key, List<ChunkLocation> result) {
+            if (!selected.add(key)) {
+                return false;
+            }
+            queue[tail++] = key;
+            result.add(new ChunkLocation(ChunkKeySet.x(key), ChunkKeySet.z(key), worldName));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.tatayless.sovereignty.services.war;
+
+/**
+ * Set of chunk coordinates packed into longs.
+ * Uses open addressing over a plain long array, so adding and looking up a
+ * chunk never allocates, unlike a set of {@code ChunkLocation}s.
+ */
+public class ChunkKeySet {
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private boolean hasFreeKey; // The key that equals the free marker is stored out of the table
+    private int size;
+    private int mask;
+
+    public ChunkKeySet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Packs chunk coordinates into one long, x in the high and z in the low half
+     */
+    public static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int z(long key) {
+        return (int) key;
+    }
+
+    /**
+     * @return true if the key wasn't in the set yet
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            if (hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The keys in table order
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (hasFreeKey) {
+            result[i++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length << 1];
+        mask = keys.length - 1;
+        for (long key : old) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private int slot(long key) {
+        // Mix the bits so neighbouring chunks don't probe into each other's slots
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
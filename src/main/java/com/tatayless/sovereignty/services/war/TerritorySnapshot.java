@@ -0,0 +1,87 @@
+package com.tatayless.sovereignty.services.war;
+
+import com.tatayless.sovereignty.models.ChunkLocation;
+import com.tatayless.sovereignty.models.Nation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable copy of a nation's territory, chunk keys grouped by world.
+ * Taken on the thread that owns the nation's chunk sets, so annexation can
+ * run on another thread without reading the live sets.
+ */
+public class TerritorySnapshot {
+    private final Map<String, ChunkKeySet> byWorld;
+    private final int size;
+
+    private TerritorySnapshot(Map<String, ChunkKeySet> byWorld, int size) {
+        this.byWorld = byWorld;
+        this.size = size;
+    }
+
+    /**
+     * Snapshot of the chunks a nation claimed itself
+     */
+    public static TerritorySnapshot ofClaims(Nation nation) {
+        return of(Collections.singletonList(nation.getClaimedChunks()));
+    }
+
+    /**
+     * Snapshot of everything a nation holds, claimed and annexed
+     */
+    public static TerritorySnapshot ofTerritory(Nation nation) {
+        return of(Arrays.asList(nation.getClaimedChunks(), nation.getAnnexedChunks()));
+    }
+
+    public static TerritorySnapshot of(Collection<? extends Collection<ChunkLocation>> chunkSets) {
+        int expected = 0;
+        for (Collection<ChunkLocation> chunks : chunkSets) {
+            expected += chunks.size();
+        }
+
+        Map<String, ChunkKeySet> byWorld = new HashMap<>();
+        int size = 0;
+        for (Collection<ChunkLocation> chunks : chunkSets) {
+            for (ChunkLocation chunk : chunks) {
+                ChunkKeySet keys = byWorld.get(chunk.getWorldName());
+                if (keys == null) {
+                    keys = new ChunkKeySet(expected);
+                    byWorld.put(chunk.getWorldName(), keys);
+                }
+                if (keys.add(ChunkKeySet.key(chunk.getX(), chunk.getZ()))) {
+                    size++;
+                }
+            }
+        }
+        return new TerritorySnapshot(byWorld, size);
+    }
+
+    public boolean contains(String worldName, long key) {
+        ChunkKeySet keys = byWorld.get(worldName);
+        return keys != null && keys.contains(key);
+    }
+
+    /**
+     * @return The chunk keys in a world, or null if the territory has none there
+     */
+    ChunkKeySet getChunks(String worldName) {
+        return byWorld.get(worldName);
+    }
+
+    public Set<String> getWorlds() {
+        return Collections.unmodifiableSet(byWorld.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,214 @@
+package com.tatayless.sovereignty.services.war;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.events.TerritoryEvent;
+import com.tatayless.sovereignty.events.TerritoryEventBus;
+import com.tatayless.sovereignty.models.Nation;
+import com.tatayless.sovereignty.models.SovereigntyPlayer;
+import com.tatayless.sovereignty.services.MessageDispatcher;
+import com.tatayless.sovereignty.services.WarService;
+import com.tatayless.sovereignty.services.WarService.War;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Shows each active war's kill progress as a boss bar to the members of both
+ * nations. Kills only mark a war's bar as changed, a timer redraws changed
+ * bars once per second, so a burst of kills costs one update. Viewers are
+ * attached on join and detached on quit, membership changes and war end
+ * through the online member index, never by scanning online players. All bar
+ * changes happen on the main thread.
+ */
+public class WarBossBars {
+    private static final long UPDATE_INTERVAL_TICKS = 20L; // At most one redraw per war per second
+
+    private final Sovereignty plugin;
+    private final WarService warService;
+    private final Map<String, BossBar> bars = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    private BukkitTask task;
+
+    public WarBossBars(Sovereignty plugin, WarService warService) {
+        this.plugin = plugin;
+        this.warService = warService;
+
+        TerritoryEventBus eventBus = plugin.getServiceManager().getEventBus();
+        eventBus.subscribe(TerritoryEvent.WarStarted.class, event -> Bukkit.getScheduler().runTask(plugin,
+                () -> showToNations(event.getWarId(), event.getAttackerNationId(), event.getDefenderNationId())));
+        eventBus.subscribe(TerritoryEvent.WarEnded.class, event -> Bukkit.getScheduler().runTask(plugin,
+                () -> removeBar(event.getWarId(), event.getAttackerNationId(), event.getDefenderNationId())));
+        eventBus.subscribe(TerritoryEvent.MembershipChanged.class, event -> Bukkit.getScheduler().runTask(plugin,
+                () -> moveViewer(event.getPlayerId(), event.getOldNationId(), event.getNewNationId())));
+    }
+
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::redrawChanged,
+                    UPDATE_INTERVAL_TICKS, UPDATE_INTERVAL_TICKS);
+        }
+    }
+
+    /**
+     * Stops redrawing and hides every bar. Must be called on the main thread.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (String warId : new ArrayList<>(bars.keySet())) {
+            War war = warService.getWar(warId);
+            if (war != null) {
+                removeBar(warId, war.getAttackerNationId(), war.getDefenderNationId());
+            }
+        }
+        bars.clear();
+        changed.clear();
+    }
+
+    /**
+     * Flags a war's bar for the next redraw. Safe to call from any thread.
+     */
+    public void markChanged(String warId) {
+        if (bars.containsKey(warId)) {
+            changed.add(warId);
+        }
+    }
+
+    public void playerJoined(Player player) {
+        SovereigntyPlayer sovereigntyPlayer = plugin.getServiceManager().getPlayerService()
+                .getPlayer(player.getUniqueId().toString());
+        if (sovereigntyPlayer != null && sovereigntyPlayer.hasNation()) {
+            for (War war : warService.getNationWars(sovereigntyPlayer.getNationId())) {
+                player.showBossBar(getOrCreateBar(war));
+            }
+        }
+    }
+
+    /**
+     * Shows every active war to the online members of both nations, for
+     * players who were already online when the wars loaded, e.g. after a
+     * reload. Expects the online member index to be filled.
+     */
+    public void showActiveWars() {
+        for (War war : warService.getActiveWars()) {
+            showToNations(war.getId(), war.getAttackerNationId(), war.getDefenderNationId());
+        }
+    }
+
+    public void playerQuit(Player player) {
+        SovereigntyPlayer sovereigntyPlayer = plugin.getServiceManager().getPlayerService()
+                .getPlayer(player.getUniqueId().toString());
+        if (sovereigntyPlayer != null && sovereigntyPlayer.hasNation()) {
+            hideNationWars(player, sovereigntyPlayer.getNationId());
+        }
+    }
+
+    private void moveViewer(String playerId, String oldNationId, String newNationId) {
+        Player player = Bukkit.getPlayer(UUID.fromString(playerId));
+        if (player == null) {
+            return;
+        }
+        if (oldNationId != null) {
+            hideNationWars(player, oldNationId);
+        }
+        if (newNationId != null) {
+            for (War war : warService.getNationWars(newNationId)) {
+                player.showBossBar(getOrCreateBar(war));
+            }
+        }
+    }
+
+    private void hideNationWars(Player player, String nationId) {
+        for (War war : warService.getNationWars(nationId)) {
+            BossBar bar = bars.get(war.getId());
+            if (bar != null) {
+                player.hideBossBar(bar);
+            }
+        }
+    }
+
+    private void showToNations(String warId, String attackerNationId, String defenderNationId) {
+        War war = warService.getWar(warId);
+        if (war == null) {
+            return;
+        }
+        BossBar bar = getOrCreateBar(war);
+        forOnlineMembers(attackerNationId, player -> player.showBossBar(bar));
+        forOnlineMembers(defenderNationId, player -> player.showBossBar(bar));
+    }
+
+    private void removeBar(String warId, String attackerNationId, String defenderNationId) {
+        changed.remove(warId);
+        BossBar bar = bars.remove(warId);
+        if (bar == null) {
+            return;
+        }
+        forOnlineMembers(attackerNationId, player -> player.hideBossBar(bar));
+        forOnlineMembers(defenderNationId, player -> player.hideBossBar(bar));
+    }
+
+    private void forOnlineMembers(String nationId, Consumer<Player> action) {
+        MessageDispatcher index = plugin.getServiceManager().getMessageDispatcher();
+        for (UUID playerId : index.getOnlinePlayers(nationId)) {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null) {
+                action.accept(player);
+            }
+        }
+    }
+
+    private BossBar getOrCreateBar(War war) {
+        return bars.computeIfAbsent(war.getId(),
+                id -> BossBar.bossBar(render(war), progress(war), BossBar.Color.RED, BossBar.Overlay.PROGRESS));
+    }
+
+    private void redrawChanged() {
+        for (String warId : new ArrayList<>(changed)) {
+            changed.remove(warId);
+            War war = warService.getWar(warId);
+            BossBar bar = bars.get(warId);
+            if (war != null && bar != null) {
+                bar.name(render(war));
+                bar.progress(progress(war));
+            }
+        }
+    }
+
+    private Component render(War war) {
+        return plugin.getLocalizationManager().getComponent(
+                "war.bossbar",
+                "attacker", getNationName(war.getAttackerNationId()),
+                "defender", getNationName(war.getDefenderNationId()),
+                "attackerKills", String.valueOf(war.getAttackerKills()),
+                "defenderKills", String.valueOf(war.getDefenderKills()),
+                "requiredKills", String.valueOf(war.getRequiredKills()));
+    }
+
+    /**
+     * How close the leading side is to winning
+     */
+    private static float progress(War war) {
+        if (war.getRequiredKills() <= 0) {
+            return 0f;
+        }
+        int leading = Math.max(war.getAttackerKills(), war.getDefenderKills());
+        return Math.min(1f, (float) leading / war.getRequiredKills());
+    }
+
+    private String getNationName(String nationId) {
+        Nation nation = plugin.getServiceManager().getNationService().getNation(nationId);
+        return nation != null ? nation.getName() : "?";
+    }
+}
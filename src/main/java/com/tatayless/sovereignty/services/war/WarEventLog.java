@@ -0,0 +1,359 @@
+package com.tatayless.sovereignty.services.war;
+
+import com.tatayless.sovereignty.Sovereignty;
+import com.tatayless.sovereignty.database.DatabaseOperation;
+import com.tatayless.sovereignty.utils.DebugLogger;
+import org.bukkit.scheduler.BukkitTask;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Append-only record of war kills, assassinations, annexations and war ends.
+ * Events are buffered in memory and written with a single JDBC batch insert
+ * every few seconds. Every event also updates rolling per-day tallies per
+ * player, nation and war, so statistics are answered from memory without
+ * reading the history. On start the tallies are rebuilt from the events
+ * inside the stats window.
+ */
+public class WarEventLog {
+    private static final String INSERT_SQL = "INSERT INTO war_events "
+            + "(war_id, type, player_id, nation_id, target_player_id, target_nation_id, amount, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    public enum Type {
+        KILL, ASSASSINATION, ANNEXATION, END
+    }
+
+    /**
+     * What the tallies count
+     */
+    public enum Metric {
+        KILLS, DEATHS, ASSASSINATIONS, CHUNKS_ANNEXED, WARS_WON, WARS_LOST
+    }
+
+    private final Sovereignty plugin;
+    private final int days;
+    private final Queue<Event> buffer = new ConcurrentLinkedQueue<>();
+    private final Map<String, Tally> playerTallies = new ConcurrentHashMap<>();
+    private final Map<String, Tally> nationTallies = new ConcurrentHashMap<>();
+    // War ID -> player ID -> kills, only for wars that haven't ended
+    private final Map<String, Map<String, Integer>> warKills = new ConcurrentHashMap<>();
+    private BukkitTask flushTask;
+
+    public WarEventLog(Sovereignty plugin) {
+        this.plugin = plugin;
+        this.days = plugin.getConfigManager().getWarStatsDays();
+    }
+
+    /**
+     * Rebuilds the tallies from the stored events inside the stats window and
+     * starts the flush task. Events recorded from now on are tallied live.
+     */
+    public void start() {
+        if (flushTask != null) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture.runAsync(() -> loadTallies(startedAt));
+
+        long intervalTicks = plugin.getConfigManager().getWarEventFlushSeconds() * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush,
+                intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Stops the flush task and writes out whatever is still buffered
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    public void recordKill(String warId, String playerId, String nationId, String victimId, String victimNationId,
+            boolean assassination) {
+        record(new Event(warId, assassination ? Type.ASSASSINATION : Type.KILL, playerId, nationId, victimId,
+                victimNationId, 1, System.currentTimeMillis()));
+    }
+
+    public void recordAnnexation(String warId, String winnerNationId, String loserNationId, int chunks) {
+        record(new Event(warId, Type.ANNEXATION, null, winnerNationId, null, loserNationId, chunks,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * @param winnerNationId The winner, or null if the war was cancelled
+     * @param loserNationId  The loser, or null if the war was cancelled
+     */
+    public void recordEnd(String warId, String winnerNationId, String loserNationId) {
+        record(new Event(warId, Type.END, null, winnerNationId, null, loserNationId, 1,
+                System.currentTimeMillis()));
+    }
+
+    private void record(Event event) {
+        buffer.add(event);
+        tally(event);
+    }
+
+    /**
+     * @return A player's count for a metric over the stats window
+     */
+    public long getPlayerStat(String playerId, Metric metric) {
+        Tally tally = playerTallies.get(playerId);
+        return tally != null ? tally.sum(metric, today()) : 0;
+    }
+
+    /**
+     * @return A nation's count for a metric over the stats window
+     */
+    public long getNationStat(String nationId, Metric metric) {
+        Tally tally = nationTallies.get(nationId);
+        return tally != null ? tally.sum(metric, today()) : 0;
+    }
+
+    /**
+     * @return Player IDs with the most kills over the stats window, best first
+     */
+    public List<Map.Entry<String, Long>> getTopKillers(int limit) {
+        long today = today();
+        List<Map.Entry<String, Long>> killers = new ArrayList<>();
+        for (Map.Entry<String, Tally> entry : playerTallies.entrySet()) {
+            long kills = entry.getValue().sum(Metric.KILLS, today);
+            if (kills > 0) {
+                killers.add(Map.entry(entry.getKey(), kills));
+            }
+        }
+        killers.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return killers.size() > limit ? new ArrayList<>(killers.subList(0, limit)) : killers;
+    }
+
+    /**
+     * @return The player with the most kills in an ongoing war, or null
+     */
+    public Map.Entry<String, Integer> getTopKiller(String warId) {
+        Map<String, Integer> kills = warKills.get(warId);
+        if (kills == null) {
+            return null;
+        }
+        return kills.entrySet().stream().max(Map.Entry.comparingByValue())
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .orElse(null);
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    private void tally(Event event) {
+        long day = event.createdAt / DAY_MILLIS;
+        switch (event.type) {
+            case ASSASSINATION:
+                tally(nationTallies, event.nationId, Metric.ASSASSINATIONS, day, 1);
+                // An assassination is also a kill
+            case KILL:
+                tally(playerTallies, event.playerId, Metric.KILLS, day, 1);
+                tally(playerTallies, event.targetPlayerId, Metric.DEATHS, day, 1);
+                tally(nationTallies, event.nationId, Metric.KILLS, day, 1);
+                tally(nationTallies, event.targetNationId, Metric.DEATHS, day, 1);
+                if (event.playerId != null) {
+                    warKills.computeIfAbsent(event.warId, k -> new ConcurrentHashMap<>())
+                            .merge(event.playerId, 1, Integer::sum);
+                }
+                break;
+            case ANNEXATION:
+                tally(nationTallies, event.nationId, Metric.CHUNKS_ANNEXED, day, event.amount);
+                break;
+            case END:
+                tally(nationTallies, event.nationId, Metric.WARS_WON, day, 1);
+                tally(nationTallies, event.targetNationId, Metric.WARS_LOST, day, 1);
+                warKills.remove(event.warId);
+                break;
+        }
+    }
+
+    private void tally(Map<String, Tally> tallies, String id, Metric metric, long day, int amount) {
+        if (id != null) {
+            tallies.computeIfAbsent(id, k -> new Tally(days)).add(metric, day, amount);
+        }
+    }
+
+    private void loadTallies(long before) {
+        long since = (today() - days + 1) * DAY_MILLIS;
+        Integer loaded = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Integer>() {
+            @Override
+            public Integer execute(Connection conn, DSLContext context) throws SQLException {
+                int count = 0;
+                for (Record record : context.select().from("war_events")
+                        .where(DSL.field("created_at").ge(since))
+                        .and(DSL.field("created_at").lt(before))
+                        .orderBy(DSL.field("id"))
+                        .fetch()) {
+                    Type type;
+                    try {
+                        type = Type.valueOf(record.get("type", String.class));
+                    } catch (IllegalArgumentException e) {
+                        continue;
+                    }
+                    tally(new Event(
+                            record.get("war_id", String.class),
+                            type,
+                            record.get("player_id", String.class),
+                            record.get("nation_id", String.class),
+                            record.get("target_player_id", String.class),
+                            record.get("target_nation_id", String.class),
+                            record.get("amount", Integer.class),
+                            record.get("created_at", Long.class)));
+                    count++;
+                }
+                return count;
+            }
+        });
+
+        if (loaded == null) {
+            plugin.getLogger().warning("Failed to load war events, /war stats only covers new events");
+            return;
+        }
+        plugin.getLogger().info("Loaded " + loaded + " war events from the last " + days + " days");
+    }
+
+    private synchronized void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        List<Event> batch = new ArrayList<>();
+        Event event;
+        while ((event = buffer.poll()) != null) {
+            batch.add(event);
+        }
+
+        Boolean written = plugin.getDatabaseManager().executeWithLock(new DatabaseOperation<Boolean>() {
+            @Override
+            public Boolean execute(Connection conn, DSLContext context) throws SQLException {
+                try (PreparedStatement statement = conn.prepareStatement(INSERT_SQL)) {
+                    for (Event e : batch) {
+                        statement.setString(1, e.warId);
+                        statement.setString(2, e.type.name());
+                        setNullableString(statement, 3, e.playerId);
+                        setNullableString(statement, 4, e.nationId);
+                        setNullableString(statement, 5, e.targetPlayerId);
+                        setNullableString(statement, 6, e.targetNationId);
+                        statement.setInt(7, e.amount);
+                        statement.setLong(8, e.createdAt);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                return true;
+            }
+        });
+
+        if (written == null || !written) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write " + batch.size()
+                    + " war events, they will be retried");
+            buffer.addAll(batch);
+            return;
+        }
+        debug(() -> "Wrote " + batch.size() + " war events");
+    }
+
+    private static void setNullableString(PreparedStatement statement, int index, String value)
+            throws SQLException {
+        if (value != null) {
+            statement.setString(index, value);
+        } else {
+            statement.setNull(index, Types.VARCHAR);
+        }
+    }
+
+    private static long today() {
+        return System.currentTimeMillis() / DAY_MILLIS;
+    }
+
+    private void debug(Supplier<String> message) {
+        plugin.getDebugLogger().debug(DebugLogger.Subsystem.WAR, message);
+    }
+
+    /**
+     * Per-day counts for the last few days, one ring slot per day. A slot is
+     * reset when a new day reuses it, so old days drop out on their own.
+     */
+    private static class Tally {
+        private final long[] slotDays;
+        private final long[][] counts = new long[Metric.values().length][];
+
+        Tally(int days) {
+            this.slotDays = new long[days];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new long[days];
+            }
+        }
+
+        synchronized void add(Metric metric, long day, int amount) {
+            int slot = (int) (day % slotDays.length);
+            if (slotDays[slot] != day) {
+                if (slotDays[slot] > day) {
+                    return; // Older than the window
+                }
+                slotDays[slot] = day;
+                for (long[] metricCounts : counts) {
+                    metricCounts[slot] = 0;
+                }
+            }
+            counts[metric.ordinal()][slot] += amount;
+        }
+
+        synchronized long sum(Metric metric, long today) {
+            long total = 0;
+            long[] metricCounts = counts[metric.ordinal()];
+            for (int slot = 0; slot < slotDays.length; slot++) {
+                if (today - slotDays[slot] < slotDays.length) {
+                    total += metricCounts[slot];
+                }
+            }
+            return total;
+        }
+    }
+
+    private static class Event {
+        private final String warId;
+        private final Type type;
+        private final String playerId;
+        private final String nationId;
+        private final String targetPlayerId;
+        private final String targetNationId;
+        private final int amount;
+        private final long createdAt;
+
+        private Event(String warId, Type type, String playerId, String nationId, String targetPlayerId,
+                String targetNationId, int amount, long createdAt) {
+            this.warId = warId;
+            this.type = type;
+            this.playerId = playerId;
+            this.nationId = nationId;
+            this.targetPlayerId = targetPlayerId;
+            this.targetNationId = targetNationId;
+            this.amount = amount;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.tatayless.sovereignty.utils;
+
+import com.tatayless.sovereignty.Sovereignty;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-subsystem debug logging for hot paths.
+ * Messages are passed as suppliers and are only built when the subsystem's
+ * debug flag is enabled in the config, so disabled debug output costs a
+ * single boolean check.
+ */
+public class DebugLogger {
+
+    /**
+     * Subsystems that can be toggled independently under the "debug" config
+     * section
+     */
+    public enum Subsystem {
+        VAULT("vault"),
+        TRADE("trade"),
+        WAR("war"),
+        NPC("npc"),
+        DATABASE("database");
+
+        private final String configKey;
+
+        Subsystem(String configKey) {
+            this.configKey = configKey;
+        }
+
+        public String getConfigKey() {
+            return configKey;
+        }
+    }
+
+    private final Sovereignty plugin;
+    private final Map<Subsystem, Boolean> enabled = new EnumMap<>(Subsystem.class);
+    private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+    private volatile long sampleIntervalMillis;
+
+    public DebugLogger(Sovereignty plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Re-read the debug flags from the config
+     */
+    public void reload() {
+        for (Subsystem subsystem : Subsystem.values()) {
+            enabled.put(subsystem, plugin.getConfigManager().isDebugEnabled(subsystem.getConfigKey()));
+        }
+        sampleIntervalMillis = plugin.getConfigManager().getDebugSampleIntervalSeconds() * 1000L;
+        samples.clear();
+    }
+
+    public boolean isEnabled(Subsystem subsystem) {
+        return enabled.get(subsystem);
+    }
+
+    /**
+     * Log a debug message if the subsystem's debug flag is enabled
+     *
+     * @param subsystem The subsystem the message belongs to
+     * @param message   Supplier of the message, only invoked when enabled
+     */
+    public void debug(Subsystem subsystem, Supplier<String> message) {
+        if (!isEnabled(subsystem)) {
+            return;
+        }
+        plugin.getLogger().info("[DEBUG/" + subsystem.getConfigKey() + "] " + message.get());
+    }
+
+    /**
+     * Log a debug message at most once per sample interval for the given key.
+     * Calls that are dropped in between are counted and reported with the next
+     * message that gets through.
+     *
+     * @param subsystem The subsystem the message belongs to
+     * @param sampleKey Key identifying the call site being sampled
+     * @param message   Supplier of the message, only invoked when logged
+     */
+    public void sampled(Subsystem subsystem, String sampleKey, Supplier<String> message) {
+        if (!isEnabled(subsystem)) {
+            return;
+        }
+
+        Sample sample = samples.computeIfAbsent(sampleKey, k -> new Sample());
+        long now = System.currentTimeMillis();
+        long last = sample.lastLogged.get();
+        if (now - last < sampleIntervalMillis || !sample.lastLogged.compareAndSet(last, now)) {
+            sample.suppressed.incrementAndGet();
+            return;
+        }
+
+        long suppressed = sample.suppressed.getAndSet(0);
+        String suffix = suppressed > 0 ? " (+" + suppressed + " similar suppressed)" : "";
+        plugin.getLogger().info("[DEBUG/" + subsystem.getConfigKey() + "] " + message.get() + suffix);
+    }
+
+    private static class Sample {
+        private final AtomicLong lastLogged = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
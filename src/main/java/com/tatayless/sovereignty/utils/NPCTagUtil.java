@@ -0,0 +1,117 @@
+package com.tatayless.sovereignty.utils;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility class for identifying plugin NPCs through their persistent data.
+ * The tag is saved with the entity, so an NPC keeps its identity across
+ * restarts and can be found from its stored location without scanning worlds.
+ */
+public class NPCTagUtil {
+    // How far an untagged NPC may stand from its stored location and still be adopted
+    private static final double ADOPT_DISTANCE_SQUARED = 1.5 * 1.5;
+
+    /**
+     * Tag an entity with the ID of what it represents
+     *
+     * @param entity The entity to tag
+     * @param key    The tag key
+     * @param id     The vault or trade ID
+     */
+    public static void tag(Entity entity, NamespacedKey key, String id) {
+        entity.getPersistentDataContainer().set(key, PersistentDataType.STRING, id);
+    }
+
+    /**
+     * Read an entity's tag
+     *
+     * @param entity The entity to check
+     * @param key    The tag key
+     * @return The tagged ID, or null if the entity isn't tagged
+     */
+    public static String getTag(Entity entity, NamespacedKey key) {
+        if (!(entity instanceof Villager)) {
+            return null;
+        }
+        return entity.getPersistentDataContainer().get(key, PersistentDataType.STRING);
+    }
+
+    /**
+     * Find an NPC placed before NPCs were tagged: a villager without any of the
+     * plugin's tags, with the given profession and AI disabled, standing at a
+     * stored NPC location
+     *
+     * @param entities   The entities of the chunk the location is in
+     * @param location   The stored NPC location
+     * @param profession The profession the plugin gives this kind of NPC
+     * @param key        Any of the plugin's tag keys, only its namespace is used
+     * @return The villager, or null if there is none
+     */
+    public static Villager findUntagged(List<Entity> entities, Location location, Villager.Profession profession,
+            NamespacedKey key) {
+        for (Entity entity : entities) {
+            if (!(entity instanceof Villager)) {
+                continue;
+            }
+            Villager villager = (Villager) entity;
+            if (villager.hasAI() || !profession.equals(villager.getProfession())
+                    || !villager.getWorld().equals(location.getWorld())
+                    || villager.getLocation().distanceSquared(location) > ADOPT_DISTANCE_SQUARED) {
+                continue;
+            }
+
+            boolean tagged = villager.getPersistentDataContainer().getKeys().stream()
+                    .anyMatch(existing -> existing.getNamespace().equals(key.getNamespace()));
+            if (!tagged) {
+                return villager;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove every villager carrying the given tag from the chunk at a
+     * location. The chunk is loaded asynchronously if needed, the removal
+     * itself runs on the main thread.
+     *
+     * @param location Where the NPC was placed
+     * @param key      The tag key
+     * @param id       The tagged ID to remove
+     * @return Future completing with the number of removed entities
+     */
+    public static CompletableFuture<Integer> removeTagged(Location location, NamespacedKey key, String id) {
+        if (location.getWorld() == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return location.getWorld().getChunkAtAsync(location).thenApply(chunk -> removeTagged(chunk, key, id));
+    }
+
+    /**
+     * Remove every villager carrying the given tag from a loaded chunk. Must
+     * be called on the main thread.
+     *
+     * @param chunk The chunk
+     * @param key   The tag key
+     * @param id    The tagged ID to remove
+     * @return The number of removed entities
+     */
+    public static int removeTagged(Chunk chunk, NamespacedKey key, String id) {
+        int removed = 0;
+        for (Entity entity : chunk.getEntities()) {
+            if (id.equals(getTag(entity, key))) {
+                entity.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
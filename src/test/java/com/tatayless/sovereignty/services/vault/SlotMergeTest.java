@@ -0,0 +1,294 @@
+package com.tatayless.sovereignty.services.vault;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotMergeTest {
+    private static final int SIZE = 54;
+    private static final int MAX_STACK = 64;
+    private static final String[] TYPES = { "stone", "iron", "gold" };
+
+    @Test
+    void editsOfDifferentSlotsFromTheSameBaseAreBothKept() {
+        Page page = new Page();
+        page.items[0] = new Item("stone", 10);
+        page.items[1] = new Item("iron", 5);
+
+        Page.Snapshot first = page.read();
+        Page.Snapshot second = page.read();
+        first.items[0] = new Item("stone", 20);
+        second.items[1] = null;
+
+        SlotMerge.Result<Item> a = page.merge(first);
+        SlotMerge.Result<Item> b = page.merge(second);
+
+        assertEquals(new Item("stone", 20), page.items[0]);
+        assertNull(page.items[1]);
+        assertTrue(a.getDisplaced().isEmpty() && b.getDisplaced().isEmpty());
+        assertTrue(a.getMissing().isEmpty() && b.getMissing().isEmpty());
+    }
+
+    @Test
+    void amountChangesOfTheSameStackAreAdded() {
+        Page page = new Page();
+        page.items[3] = new Item("gold", 30);
+
+        Page.Snapshot first = page.read();
+        Page.Snapshot second = page.read();
+        first.items[3] = new Item("gold", 50);
+        second.items[3] = new Item("gold", 60);
+
+        page.merge(first);
+        SlotMerge.Result<Item> result = page.merge(second);
+
+        // 30 + 20 + 30 = 80, one full stack stays and the rest is displaced
+        assertEquals(new Item("gold", MAX_STACK), page.items[3]);
+        assertEquals(List.of(new Item("gold", 16)), result.getDisplaced());
+    }
+
+    @Test
+    void conflictingItemsAreDisplacedAndDoubleWithdrawalsReported() {
+        Page page = new Page();
+        page.items[7] = new Item("stone", 10);
+
+        Page.Snapshot first = page.read();
+        Page.Snapshot second = page.read();
+        first.items[7] = new Item("iron", 4);
+        second.items[7] = new Item("gold", 2);
+
+        page.merge(first);
+        SlotMerge.Result<Item> result = page.merge(second);
+
+        assertEquals(new Item("iron", 4), page.items[7]);
+        assertEquals(List.of(new Item("gold", 2)), result.getDisplaced());
+        assertEquals(List.of(new Item("stone", 10)), result.getMissing());
+    }
+
+    /**
+     * Editors on several threads repeatedly read the page, change a few slots
+     * of their copy and merge it back. Every deposit has to end up on the page
+     * or be displaced, and every withdrawal has to come off the page or be
+     * reported as missing, so nothing is lost or duplicated.
+     */
+    @Test
+    void concurrentEditorsNeverLoseOrDuplicateItems() throws Exception {
+        int editors = 8;
+        int rounds = 5_000;
+
+        Page page = new Page();
+        Random setup = new Random(1);
+        for (int i = 0; i < SIZE; i += 2) {
+            page.items[i] = new Item(TYPES[setup.nextInt(TYPES.length)], 1 + setup.nextInt(MAX_STACK));
+        }
+        Map<String, Long> initial = page.totals();
+
+        ExecutorService executor = Executors.newFixedThreadPool(editors);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Ledger>> results = new ArrayList<>();
+        for (int e = 0; e < editors; e++) {
+            long seed = 100 + e;
+            results.add(executor.submit(() -> {
+                start.await();
+                return edit(page, new Random(seed), rounds);
+            }));
+        }
+        start.countDown();
+
+        Ledger total = new Ledger();
+        for (Future<Ledger> result : results) {
+            total.add(result.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        Map<String, Long> finalTotals = page.totals();
+        for (String type : TYPES) {
+            long expected = initial.getOrDefault(type, 0L) + total.get(total.deposited, type);
+            long accounted = finalTotals.getOrDefault(type, 0L) + total.get(total.displaced, type)
+                    + total.get(total.withdrawn, type) - total.get(total.missing, type);
+            assertEquals(expected, accounted, "Items of type " + type + " were lost or duplicated");
+        }
+
+        for (Item item : page.items) {
+            if (item != null) {
+                assertTrue(item.amount > 0 && item.amount <= MAX_STACK, "Invalid stack " + item);
+            }
+        }
+    }
+
+    private static Ledger edit(Page page, Random random, int rounds) {
+        Ledger ledger = new Ledger();
+        for (int round = 0; round < rounds; round++) {
+            Page.Snapshot copy = page.read();
+            Ledger pending = new Ledger();
+
+            for (int change = 1 + random.nextInt(3); change > 0; change--) {
+                int slot = random.nextInt(SIZE);
+                Item item = copy.items[slot];
+                if (random.nextBoolean()) {
+                    // Deposit into an empty slot or onto a matching stack
+                    String type = item != null ? item.type : TYPES[random.nextInt(TYPES.length)];
+                    int current = item != null ? item.amount : 0;
+                    int amount = Math.min(1 + random.nextInt(16), MAX_STACK - current);
+                    if (amount > 0) {
+                        copy.items[slot] = new Item(type, current + amount);
+                        pending.record(pending.deposited, type, amount);
+                    }
+                } else if (item != null) {
+                    // Take some or all of a stack
+                    int amount = 1 + random.nextInt(item.amount);
+                    copy.items[slot] = amount < item.amount ? new Item(item.type, item.amount - amount) : null;
+                    pending.record(pending.withdrawn, item.type, amount);
+                }
+            }
+
+            if (random.nextInt(4) == 0) {
+                Thread.yield(); // Let other editors commit in between
+            }
+
+            SlotMerge.Result<Item> result = page.merge(copy);
+            for (Item displaced : result.getDisplaced()) {
+                pending.record(pending.displaced, displaced.type, displaced.amount);
+            }
+            for (Item missing : result.getMissing()) {
+                pending.record(pending.missing, missing.type, missing.amount);
+            }
+            ledger.add(pending);
+        }
+        return ledger;
+    }
+
+    /**
+     * A page with slot versions, locked the same way NationVault locks its pages
+     */
+    private static class Page {
+        private Item[] items = new Item[SIZE];
+        private final long[] versions = new long[SIZE];
+
+        synchronized Snapshot read() {
+            return new Snapshot(items.clone(), items.clone(), versions.clone());
+        }
+
+        synchronized SlotMerge.Result<Item> merge(Snapshot snapshot) {
+            SlotMerge.Result<Item> result = SlotMerge.merge(items, versions, snapshot.base, snapshot.baseVersions,
+                    snapshot.items, SIZE, STACKS);
+            SlotMerge.bumpVersions(items, result.getMerged(), versions, STACKS);
+            items = result.getMerged();
+            return result;
+        }
+
+        synchronized Map<String, Long> totals() {
+            Map<String, Long> totals = new HashMap<>();
+            for (Item item : items) {
+                if (item != null) {
+                    totals.merge(item.type, (long) item.amount, Long::sum);
+                }
+            }
+            return totals;
+        }
+
+        private static class Snapshot {
+            private final Item[] base;
+            private final Item[] items;
+            private final long[] baseVersions;
+
+            private Snapshot(Item[] base, Item[] items, long[] baseVersions) {
+                this.base = base;
+                this.items = items;
+                this.baseVersions = baseVersions;
+            }
+        }
+    }
+
+    private static class Ledger {
+        private final Map<String, Long> deposited = new HashMap<>();
+        private final Map<String, Long> withdrawn = new HashMap<>();
+        private final Map<String, Long> displaced = new HashMap<>();
+        private final Map<String, Long> missing = new HashMap<>();
+
+        void record(Map<String, Long> counts, String type, long amount) {
+            counts.merge(type, amount, Long::sum);
+        }
+
+        long get(Map<String, Long> counts, String type) {
+            return counts.getOrDefault(type, 0L);
+        }
+
+        void add(Ledger other) {
+            other.deposited.forEach((type, amount) -> record(deposited, type, amount));
+            other.withdrawn.forEach((type, amount) -> record(withdrawn, type, amount));
+            other.displaced.forEach((type, amount) -> record(displaced, type, amount));
+            other.missing.forEach((type, amount) -> record(missing, type, amount));
+        }
+    }
+
+    private static final SlotMerge.Stacks<Item> STACKS = new SlotMerge.Stacks<Item>() {
+        @Override
+        public boolean isEmpty(Item item) {
+            return item.amount <= 0;
+        }
+
+        @Override
+        public boolean isSimilar(Item a, Item b) {
+            return a.type.equals(b.type);
+        }
+
+        @Override
+        public int getAmount(Item item) {
+            return item.amount;
+        }
+
+        @Override
+        public int getMaxStackSize(Item item) {
+            return MAX_STACK;
+        }
+
+        @Override
+        public Item withAmount(Item template, int amount) {
+            return new Item(template.type, amount);
+        }
+    };
+
+    private static final class Item {
+        private final String type;
+        private final int amount;
+
+        private Item(String type, int amount) {
+            this.type = type;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return amount == other.amount && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, amount);
+        }
+
+        @Override
+        public String toString() {
+            return amount + "x" + type;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.tatayless.sovereignty.services.war;
+
+import com.tatayless.sovereignty.models.ChunkLocation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Times {@link AnnexationEngine#select} on square and ragged territories of
+ * 10k and 100k chunks. The winner borders the loser on one side and a quarter
+ * of the loser's chunks are annexed, like a typical war outcome.
+ * Run with {@code ./gradlew annexationBenchmark}.
+ */
+public class AnnexationEngineBenchmark {
+    private static final String WORLD = "world";
+    private static final int[] SIZES = { 10_000, 100_000 };
+    private static final double ANNEXED_SHARE = 0.25;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DZ = { 0, 0, 1, -1 };
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %8s %10s %12s %12s %12s %14s%n", "shape", "chunks", "annexed", "snapshot ms",
+                "median ms", "max ms", "alloc/select");
+        for (int size : SIZES) {
+            run("square", square(size), size);
+            run("ragged", ragged(size, 42), size);
+        }
+    }
+
+    private static void run(String shape, Territories territories, int size) {
+        int count = (int) (size * ANNEXED_SHARE);
+
+        long snapshotStart = System.nanoTime();
+        TerritorySnapshot loser = TerritorySnapshot.of(Collections.singletonList(territories.loser));
+        TerritorySnapshot winner = TerritorySnapshot.of(Collections.singletonList(territories.winner));
+        double snapshotMillis = (System.nanoTime() - snapshotStart) / 1e6;
+
+        int annexed = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            annexed = AnnexationEngine.select(loser, winner, count).size();
+        }
+
+        long[] nanos = new long[MEASURED_ROUNDS];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            annexed = AnnexationEngine.select(loser, winner, count).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = (allocatedBytes() - allocatedBefore) / MEASURED_ROUNDS;
+
+        Arrays.sort(nanos);
+        System.out.printf("%-8s %8d %10d %12.2f %12.2f %12.2f %11d KB%n", shape, loser.size(), annexed,
+                snapshotMillis, nanos[nanos.length / 2] / 1e6, nanos[nanos.length - 1] / 1e6, allocated / 1024);
+    }
+
+    /**
+     * A square loser with a winner of half its size along its west edge
+     */
+    private static Territories square(int size) {
+        int side = (int) Math.ceil(Math.sqrt(size));
+        List<ChunkLocation> loser = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            loser.add(new ChunkLocation(i % side, i / side, WORLD));
+        }
+
+        List<ChunkLocation> winner = new ArrayList<>(size / 2);
+        int width = Math.max(1, size / 2 / side);
+        for (int z = 0; z < side; z++) {
+            for (int x = -width; x < 0; x++) {
+                winner.add(new ChunkLocation(x, z, WORLD));
+            }
+        }
+        return new Territories(loser, winner);
+    }
+
+    /**
+     * A loser grown at random from one chunk, so it has a jagged outline,
+     * enclaves and thin strips, with a winner grown the same way next to it
+     */
+    private static Territories ragged(int size, long seed) {
+        Random random = new Random(seed);
+        Set<Long> loserKeys = grow(0, 0, size, random, Collections.emptySet());
+
+        int minX = Integer.MAX_VALUE;
+        for (long key : loserKeys) {
+            minX = Math.min(minX, ChunkKeySet.x(key));
+        }
+        Set<Long> winnerKeys = grow(minX - 1, 0, size / 2, random, loserKeys);
+
+        return new Territories(toLocations(loserKeys), toLocations(winnerKeys));
+    }
+
+    private static Set<Long> grow(int startX, int startZ, int size, Random random, Set<Long> taken) {
+        Set<Long> grown = new HashSet<>();
+        List<Long> frontier = new ArrayList<>();
+        frontier.add(ChunkKeySet.key(startX, startZ));
+
+        while (grown.size() < size && !frontier.isEmpty()) {
+            // Take a random frontier chunk, swapping the last one into its place
+            int index = random.nextInt(frontier.size());
+            long key = frontier.get(index);
+            frontier.set(index, frontier.get(frontier.size() - 1));
+            frontier.remove(frontier.size() - 1);
+
+            if (taken.contains(key) || !grown.add(key)) {
+                continue;
+            }
+            int x = ChunkKeySet.x(key);
+            int z = ChunkKeySet.z(key);
+            for (int i = 0; i < DX.length; i++) {
+                long neighbour = ChunkKeySet.key(x + DX[i], z + DZ[i]);
+                if (!grown.contains(neighbour) && !taken.contains(neighbour)) {
+                    frontier.add(neighbour);
+                }
+            }
+        }
+        return grown;
+    }
+
+    private static List<ChunkLocation> toLocations(Set<Long> keys) {
+        List<ChunkLocation> locations = new ArrayList<>(keys.size());
+        for (long key : keys) {
+            locations.add(new ChunkLocation(ChunkKeySet.x(key), ChunkKeySet.z(key), WORLD));
+        }
+        return locations;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static class Territories {
+        private final List<ChunkLocation> loser;
+        private final List<ChunkLocation> winner;
+
+        private Territories(List<ChunkLocation> loser, List<ChunkLocation> winner) {
+            this.loser = loser;
+            this.winner = winner;
+        }
+    }
+}